@@ -0,0 +1,23 @@
+package com.cdr.gen;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The configuration shared by the benchmarks: the default configuration with a
+ * fixed seed, a single thread and a small population.
+ * @author Maycon Viana Bordin <mayconbordin@gmail.com>
+ */
+final class BenchmarkConfig {
+    static final long NUM_ACCOUNTS = 20;
+    
+    private BenchmarkConfig() {}
+    
+    static Map<String, Object> create() {
+        Map<String, Object> config = new HashMap<String, Object>(new CDRGen().getConfig());
+        config.put("seed", 42L);
+        config.put("threads", 1L);
+        config.put("numAccounts", NUM_ACCOUNTS);
+        return config;
+    }
+}
@@ -0,0 +1,92 @@
+package com.cdr.gen;
+
+import com.cdr.gen.util.RandomSource;
+import com.cdr.gen.util.SplittableRandomSource;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.joda.time.DateTime;
+import org.joda.time.Interval;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of the sampling of call types, days, times, durations and costs.
+ * @author Maycon Viana Bordin <mayconbordin@gmail.com>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DistributionBenchmark {
+    private CallDistribution callDist;
+    private DateTimeDistribution dateTimeDist;
+    private RandomSource random;
+    
+    private TimeTable timeTable;
+    private int local;
+    private long start;
+    private Call call;
+    
+    @Setup
+    public void setup() {
+        Map<String, Object> config = BenchmarkConfig.create();
+        
+        callDist = new CallDistribution(config);
+        dateTimeDist = new DateTimeDistribution(config);
+        random = new SplittableRandomSource(42);
+        
+        timeTable = dateTimeDist.getTimeTable();
+        local = new GeneratorConfig(config).ordinalOf("Local");
+        
+        DateTime date = dateTimeDist.getStartDate().plusDays(3).plusHours(10);
+        call = new Call();
+        call.setType("Local");
+        call.setTime(new Interval(date, date.plusMinutes(7)));
+        start = call.getStartMillis() / TimeTable.MILLIS_PER_MINUTE;
+    }
+    
+    @Benchmark
+    public String getRandomCallType() {
+        return callDist.getRandomCallType(random);
+    }
+    
+    @Benchmark
+    public int getDayOfWeek() {
+        return dateTimeDist.getDayOfWeek(random);
+    }
+    
+    @Benchmark
+    public DateTime getDateTime() {
+        return dateTimeDist.getDateTime(random, DateTimeDistribution.TYPE_WEEKDAY, 3);
+    }
+    
+    @Benchmark
+    public long getStartMinute() {
+        return dateTimeDist.getStartMinute(random, 3);
+    }
+    
+    @Benchmark
+    public int getCallDuration() {
+        return dateTimeDist.getCallDuration(random, timeTable, start, local, 10, 20);
+    }
+    
+    @Benchmark
+    public boolean isOffPeak() {
+        return timeTable.isOffPeak(start);
+    }
+    
+    @Benchmark
+    public double getCallCost() {
+        return dateTimeDist.getCallCost(call, local, timeTable);
+    }
+}
@@ -0,0 +1,106 @@
+package com.cdr.gen;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of the writing of a population, both to a file through
+ * {@link CDRGen#saveToFile(String, List)} and to a channel that discards the
+ * bytes, which measures only the formatting.
+ * @author Maycon Viana Bordin <mayconbordin@gmail.com>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OutputBenchmark {
+    private CDRGen generator;
+    private List<Person> customers;
+    private File outputFile;
+    
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Records {
+        public long calls;
+        public long bytes;
+    }
+    
+    @Setup
+    public void setup() throws IOException {
+        generator = new CDRGen();
+        
+        Population population = new Population(BenchmarkConfig.create());
+        population.create();
+        customers = population.getPopulation();
+        
+        outputFile = File.createTempFile("cdr-gen-benchmark", ".csv");
+    }
+    
+    @TearDown
+    public void tearDown() {
+        outputFile.delete();
+    }
+    
+    @Benchmark
+    public void saveToFile(Records records) {
+        generator.saveToFile(outputFile.getPath(), customers);
+        
+        for (Person p : customers) {
+            records.calls += p.getCalls().size();
+        }
+        records.bytes += outputFile.length();
+    }
+    
+    @Benchmark
+    public void writeCsv(Records records) throws IOException {
+        CountingChannel channel = new CountingChannel();
+        
+        try (CallWriter writer = new CsvCallWriter(channel)) {
+            for (Person p : customers) {
+                writer.write(p);
+                records.calls += p.getCalls().size();
+            }
+        }
+        
+        records.bytes += channel.count;
+    }
+    
+    private static class CountingChannel implements WritableByteChannel {
+        private long count;
+
+        @Override
+        public int write(ByteBuffer src) {
+            int length = src.remaining();
+            ((Buffer) src).position(src.limit());
+            count += length;
+            return length;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {}
+    }
+}
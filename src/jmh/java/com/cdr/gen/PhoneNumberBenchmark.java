@@ -0,0 +1,95 @@
+package com.cdr.gen;
+
+import com.cdr.gen.util.PhoneNumbers;
+import com.cdr.gen.util.RandomSource;
+import com.cdr.gen.util.SplittableRandomSource;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of the generation of phone numbers and phone buckets.
+ * @author Maycon Viana Bordin <mayconbordin@gmail.com>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PhoneNumberBenchmark {
+    private PhoneBucketGenerator phoneBucketGen;
+    private RandomSource random;
+    
+    private Person person;
+    private Map<String, Integer> callTypeSummary;
+    
+    private PhoneCodeTable phoneCodes;
+    private int nationalType;
+    private long phoneNumber;
+    private int[] callTypeCounts;
+    
+    @Setup
+    public void setup() {
+        phoneBucketGen = new PhoneBucketGenerator(BenchmarkConfig.create());
+        random = new SplittableRandomSource(42);
+        
+        person = new Person();
+        person.setPhoneNumber("01684444444");
+        
+        // the average summary of a customer with 200 calls
+        callTypeSummary = new HashMap<String, Integer>();
+        callTypeSummary.put("Free", 1);
+        callTypeSummary.put("Local", 124);
+        callTypeSummary.put("National", 25);
+        callTypeSummary.put("Intl", 12);
+        callTypeSummary.put("PRS", 1);
+        callTypeSummary.put("Mobile", 37);
+        
+        phoneCodes = phoneBucketGen.getPhoneCodes();
+        nationalType = phoneCodes.ordinalOf("National");
+        phoneNumber = PhoneNumbers.pack(person.getPhoneNumber());
+        
+        callTypeCounts = new int[callTypeSummary.size()];
+        for (Map.Entry<String, Integer> e : callTypeSummary.entrySet()) {
+            callTypeCounts[phoneCodes.ordinalOf(e.getKey())] = e.getValue();
+        }
+    }
+    
+    @Benchmark
+    public String getRandomNumber() {
+        return PhoneNumberGenerator.getRandomNumber(random, 7);
+    }
+    
+    @Benchmark
+    public String getRandomPhoneCode() {
+        return PhoneNumberGenerator.getRandomPhoneCode(random, "National", "0168");
+    }
+    
+    @Benchmark
+    public Map<String, List<String>> createPhoneBucket() {
+        return phoneBucketGen.createPhoneBucket(random, person, callTypeSummary);
+    }
+    
+    @Benchmark
+    public long getRandomPackedNumber() {
+        long code = phoneCodes.getRandomCode(random, nationalType, -1);
+        return PhoneCodeTable.getRandomNumber(random, code, 11);
+    }
+    
+    @Benchmark
+    public long[][] createPackedPhoneBucket() {
+        return phoneBucketGen.createPhoneBucket(random, phoneNumber, callTypeCounts);
+    }
+}
@@ -0,0 +1,118 @@
+package com.cdr.gen;
+
+import com.cdr.gen.util.RandomSource;
+import com.cdr.gen.util.SplittableRandomSource;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.joda.time.DateTime;
+import org.joda.time.Interval;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of the overlap checks and of the creation of a whole population,
+ * either with the default configuration or with customers whose calendar is
+ * almost full.
+ * The number of calls created is reported as an extra counter, giving the
+ * records per second, and dividing <code>gc.alloc.rate.norm</code> by the
+ * calls per operation gives the bytes allocated per CDR.
+ * @author Maycon Viana Bordin <mayconbordin@gmail.com>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PopulationBenchmark {
+    private static final int NUM_INTERVALS = 200;
+    
+    private Population population;
+    private CallCalendar calendar;
+    private Interval[] intervals;
+    private int next;
+    
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Records {
+        public long calls;
+    }
+    
+    @Setup
+    public void setup() {
+        population = new Population(BenchmarkConfig.create());
+        
+        // a day-long calendar with a call every few minutes
+        RandomSource random = new SplittableRandomSource(42);
+        DateTime start = new DateTime(2014, 1, 1, 0, 0);
+        intervals = new Interval[NUM_INTERVALS];
+        
+        for (int i=0; i<NUM_INTERVALS; i++) {
+            DateTime callStart = start.plusMinutes(i * 7);
+            intervals[i] = new Interval(callStart, callStart.plusMinutes(1 + random.nextInt(6)));
+        }
+    }
+    
+    @Setup(Level.Iteration)
+    public void setupIteration() {
+        calendar = new CallCalendar(new long[0], new long[0], NUM_INTERVALS);
+        
+        for (Interval i : intervals) {
+            population.callIntervalOverlap(calendar, i);
+        }
+    }
+    
+    /**
+     * Checks an interval that collides with the calendar, which is the case
+     * that is repeated when a customer is busy.
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public boolean callIntervalOverlap() {
+        next = (next + 1) % NUM_INTERVALS;
+        return population.callIntervalOverlap(calendar, intervals[next]);
+    }
+    
+    @Benchmark
+    public Population create(Records records) {
+        return create(BenchmarkConfig.create(), records);
+    }
+    
+    /**
+     * Creates customers that take most of the minutes of a single week, where
+     * most draws of a start collide with another call.
+     */
+    @Benchmark
+    public Population createBusy(Records records) {
+        Map<String, Object> callsMade = new HashMap<String, Object>();
+        callsMade.put("mean", 1500L);
+        callsMade.put("stdDev", 10L);
+        
+        Map<String, Object> config = BenchmarkConfig.create();
+        config.put("callsMade", callsMade);
+        config.put("endDate", "08/01/2014");
+        return create(config, records);
+    }
+    
+    private Population create(Map<String, Object> config, Records records) {
+        Population p = new Population(config);
+        p.create();
+        
+        for (Person person : p.getPopulation()) {
+            records.calls += person.getCalls().size();
+        }
+        
+        return p;
+    }
+}
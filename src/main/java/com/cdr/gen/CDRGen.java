@@ -4,15 +4,14 @@ import com.cdr.gen.util.IOUtils;
 import com.cdr.gen.util.JavaUtils;
 import com.google.common.io.Files;
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import org.apache.log4j.Logger;
-import org.joda.time.format.DateTimeFormat;
-import org.joda.time.format.DateTimeFormatter;
 import org.json.simple.JSONObject;
 import org.json.simple.parser.JSONParser;
 import org.json.simple.parser.ParseException;
@@ -26,6 +25,7 @@ public final class CDRGen {
     private static final Logger LOG = Logger.getLogger(CDRGen.class);
     private static final String DEFAULT_CONFIG_FILE = "/config.json";
     private Map<String, Object> config;
+    private GeneratorConfig generatorConfig;
     
     public CDRGen() {
         loadConfig(DEFAULT_CONFIG_FILE);
@@ -51,6 +51,9 @@ public final class CDRGen {
             }
             
             config = (JSONObject) parser.parse(configStr);
+            
+            // an invalid configuration fails here, before anything is written
+            generatorConfig = new GeneratorConfig(config);
         } catch (IOException ex) {
             LOG.error("Unable to read config file '" + file + "'.", ex);
         } catch (ParseException ex) {
@@ -58,57 +61,175 @@ public final class CDRGen {
         }
     }
 
+    /**
+     * @return The options as loaded, changes must be made with {@link #setOption(String, Object)}
+     *         to be seen by the generation
+     */
     public Map<String, Object> getConfig() {
         return config;
     }
     
+    /**
+     * @return The compiled configuration used by the generation
+     */
+    public GeneratorConfig getGeneratorConfig() {
+        return generatorConfig;
+    }
+    
+    /**
+     * Changes an option and compiles the configuration again.
+     * @param name The name of the option
+     * @param value The new value of the option, or null to remove it
+     * @throws IllegalArgumentException If the configuration is no longer valid
+     */
+    public void setOption(String name, Object value) {
+        if (value == null) {
+            config.remove(name);
+        } else {
+            config.put(name, value);
+        }
+        
+        generatorConfig = new GeneratorConfig(config);
+    }
+    
     public void saveToFile(String outputFile, List<Person> customers) {
-        DateTimeFormatter dateFormatter = DateTimeFormat.forPattern("dd/MM/yyyy");
-        DateTimeFormatter timeFormatter = DateTimeFormat.forPattern("HH:mm:ss");
-            
+        try (CallSink sink = SortedCallWriter.wrap(OutputFormats.open(outputFile, config), generatorConfig)) {
+            for (Person p : customers) {
+                sink.write(p);
+            }
+        } catch (IOException ex) {
+            LOG.error("Error while writing the output file.", ex);
+        }
+    }
+    
+    /**
+     * Generates the population and writes each customer to the output file as soon
+     * as its calls are created, without holding the whole population in memory.
+     * The format of the file is selected by {@link OutputFormats#forFile(String, Map)}.
+     * 
+     * If the number of <code>shards</code> is configured the output is a directory
+     * with one file per shard, written by all workers at the same time.
+     * 
+     * If <code>sortBy</code> is <code>time</code> the calls of each file are
+     * ordered by start, see {@link SortedCallWriter}.
+     * 
+     * If the <code>live</code> mode is configured the calls are emitted in start
+     * order at the configured rate, see {@link #emitLive(String)}.
+     * 
+     * If <code>checkpoint</code> is configured the progress is recorded, see
+     * {@link #generateWithCheckpoints(String)}.
+     * 
+     * @param outputFile The path of the output file
+     */
+    public void generateToFile(String outputFile) {
+        if (generatorConfig.isLive()) {
+            emitLive(outputFile);
+            return;
+        }
+        
+        if (generatorConfig.hasCheckpoint()) {
+            generateWithCheckpoints(outputFile);
+            return;
+        }
+        
+        Population population = new Population(generatorConfig);
+        
+        try (CallSink sink = openSink(outputFile)) {
+            population.create(sink);
+        } catch (IOException ex) {
+            LOG.error("Error while writing the output file.", ex);
+        }
+    }
+    
+    /**
+     * Generates the population to the output file, recording checkpoints so that
+     * the generation is resumed if the output file has a checkpoint from a run
+     * that didn't finish, see {@link Checkpointer}. The checkpoint is removed
+     * once the file is complete.
+     * @param outputFile The path of the output file
+     */
+    public void generateWithCheckpoints(String outputFile) {
         try {
-            FileWriter fw = new FileWriter(outputFile);
-            String newLine = System.getProperty("line.separator");
+            Checkpointer checkpointer = new Checkpointer(outputFile, generatorConfig);
+            GeneratorConfig runConfig = generatorConfig;
             
-            for (Person p : customers) {
-                for (Call c : p.getCalls()) {
-                    fw.append(c.getId() + ","
-                            + p.getPhoneNumber() + ","
-                            + c.getLine() + ","
-                            + c.getDestPhoneNumber() + ","
-                            + c.getTime().getStart().toString(dateFormatter) + "," 
-                            + c.getTime().getEnd().toString(dateFormatter) + "," 
-                            + c.getTime().getStart().toString(timeFormatter) + "," 
-                            + c.getTime().getEnd().toString(timeFormatter) + ","
-                            + c.getType() + ","
-                            + c.getCost()
-                            + newLine);
-                }
+            // a run without a fixed seed is resumed with the seed it started with
+            if (checkpointer.load()) {
+                Map<String, Object> options = new HashMap<String, Object>(config);
+                options.put("seed", checkpointer.getSeed());
+                runConfig = new GeneratorConfig(options);
             }
-
-            fw.close();
+            
+            Population population = new Population(runConfig);
+            population.setCheckpointer(checkpointer);
+            
+            try (CallWriter writer = checkpointer.open(runConfig.getOptions())) {
+                population.create(writer);
+            }
+            
+            checkpointer.delete();
         } catch (IOException ex) {
             LOG.error("Error while writing the output file.", ex);
-        } 
+        }
+    }
+    
+    /**
+     * Generates the population and emits its calls in start order at the rate
+     * configured by <code>live</code>, see {@link LiveEmitter}. The population
+     * is held in memory until the emission ends.
+     * @param outputFile The path of the output file, which can be a named pipe
+     */
+    public void emitLive(String outputFile) {
+        Population population = new Population(generatorConfig);
+        CallMerger calls = new CallMerger(generatorConfig.getCallTypes());
+        
+        try {
+            population.create(calls);
+            
+            try (CallWriter writer = OutputFormats.open(outputFile, config)) {
+                new LiveEmitter(generatorConfig).emit(calls, writer);
+            }
+        } catch (IOException ex) {
+            LOG.error("Error while emitting the calls.", ex);
+        }
     }
     
+    private CallSink openSink(String outputFile) throws IOException {
+        if (generatorConfig.isSharded()) {
+            return new ShardedCallSink(outputFile, generatorConfig);
+        }
+        
+        return SortedCallWriter.wrap(OutputFormats.open(outputFile, config), generatorConfig);
+    }
     
     public static void main( String[] args ) {
-        if (args.length == 0) {
+        List<String> files = new ArrayList<String>();
+        String partition = null;
+        
+        for (int i=0; i<args.length; i++) {
+            if (args[i].equals("--partition") && i+1 < args.length) {
+                partition = args[++i];
+            } else {
+                files.add(args[i]);
+            }
+        }
+        
+        if (files.isEmpty()) {
             String exec = new java.io.File(CDRGen.class.getProtectionDomain()
                     .getCodeSource().getLocation().getPath()).getName();
-            System.out.println("Usage: java -jar " + exec + " <output_file> [<config_file>]");
+            System.out.println("Usage: java -jar " + exec + " <output_file> [<config_file>] [--partition i/N]");
             System.exit(1);
         }
 
-        String configFile = (args.length > 1) ? args[1] : DEFAULT_CONFIG_FILE;
+        String configFile = (files.size() > 1) ? files.get(1) : DEFAULT_CONFIG_FILE;
         CDRGen generator = new CDRGen(configFile);
         
-        Population population = new Population(generator.getConfig());
-        population.create();
+        // generate only the accounts of the partition, see Population#setPartition
+        if (partition != null) {
+            generator.setOption("partition", partition);
+        }
         
-        List<Person> customers = population.getPopulation();
-        generator.saveToFile(args[0], customers);
+        generator.generateToFile(files.get(0));
         LOG.info("Done.");
     }
 }
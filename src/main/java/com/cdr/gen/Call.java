@@ -1,5 +1,6 @@
 package com.cdr.gen;
 
+import com.cdr.gen.util.PhoneNumbers;
 import org.joda.time.Interval;
 
 /**
@@ -10,9 +11,10 @@ public class Call {
     private long id;
     private int line;
     private String type;
-    private Interval time;
+    private long startMillis;
+    private long endMillis;
     private double cost;
-    private String destPhoneNumber;
+    private long destPhoneNumber;
 
     public long getId() {
         return id;
@@ -22,6 +24,13 @@ public class Call {
         this.id = id;
     }
 
+    /**
+     * @return True if the call was received by the customer, see {@link Population#INCOMING_CALL_FLAG}
+     */
+    public boolean isIncoming() {
+        return (getId() & Population.INCOMING_CALL_FLAG) != 0;
+    }
+
     public String getType() {
         return type;
     }
@@ -30,12 +39,39 @@ public class Call {
         this.type = type;
     }
 
+    /**
+     * @return The time of the call, created from {@link #getStartMillis()} and
+     *         {@link #getEndMillis()}
+     */
     public Interval getTime() {
-        return time;
+        return new Interval(getStartMillis(), getEndMillis());
     }
 
     public void setTime(Interval time) {
-        this.time = time;
+        setTime(time.getStartMillis(), time.getEndMillis());
+    }
+
+    /**
+     * @return The start of the call, in epoch milliseconds
+     */
+    public long getStartMillis() {
+        return startMillis;
+    }
+
+    /**
+     * @return The end of the call, in epoch milliseconds
+     */
+    public long getEndMillis() {
+        return endMillis;
+    }
+
+    /**
+     * @param startMillis The start of the call, in epoch milliseconds
+     * @param endMillis The end of the call, in epoch milliseconds
+     */
+    public void setTime(long startMillis, long endMillis) {
+        this.startMillis = startMillis;
+        this.endMillis = endMillis;
     }
 
     public double getCost() {
@@ -55,10 +91,22 @@ public class Call {
     }
 
     public String getDestPhoneNumber() {
-        return destPhoneNumber;
+        long packed = getPackedDestPhoneNumber();
+        return (packed == 0) ? null : PhoneNumbers.unpack(packed);
     }
 
     public void setDestPhoneNumber(String destPhoneNumber) {
+        setPackedDestPhoneNumber((destPhoneNumber == null) ? 0 : PhoneNumbers.pack(destPhoneNumber));
+    }
+
+    /**
+     * @return The destination phone number packed by {@link PhoneNumbers}, or zero if not set
+     */
+    public long getPackedDestPhoneNumber() {
+        return destPhoneNumber;
+    }
+
+    public void setPackedDestPhoneNumber(long destPhoneNumber) {
         this.destPhoneNumber = destPhoneNumber;
     }
     
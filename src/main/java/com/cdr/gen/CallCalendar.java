@@ -0,0 +1,98 @@
+package com.cdr.gen;
+
+import com.cdr.gen.util.FenwickTree;
+import com.cdr.gen.util.IntervalIndex;
+import com.cdr.gen.util.RandomSource;
+import java.util.Arrays;
+
+/**
+ * The time taken by the calls of a customer, in epoch minutes. Calls are placed
+ * by drawing a time and checking that it's free, which is fast while the calendar
+ * is mostly empty. For customers with so many calls that most draws collide, the
+ * calendar can instead draw directly from the starts that are still free, with
+ * the probabilities of the time distribution.
+ *
+ * The free starts are only tracked once they are first needed, so customers that
+ * never need them don't pay for it.
+ *
+ * @author Maycon Viana Bordin <mayconbordin@gmail.com>
+ */
+public class CallCalendar {
+    private final IntervalIndex usedTimes;
+    private final long[] startMinutes;
+    private final long[] startWeights;
+    private FenwickTree freeStarts;
+    
+    /**
+     * @param startMinutes Every start of a call that can be drawn, in epoch minutes, sorted
+     * @param startWeights The weight of each start
+     * @param capacity The expected number of calls
+     */
+    public CallCalendar(long[] startMinutes, long[] startWeights, int capacity) {
+        this.startMinutes = startMinutes;
+        this.startWeights = startWeights;
+        usedTimes = new IntervalIndex(capacity);
+    }
+    
+    /**
+     * Takes the time of a call, unless it overlaps another call.
+     * @param start The first minute of the call
+     * @param end The minute after the call
+     * @return True if the time was free and is now taken
+     */
+    public boolean add(long start, long end) {
+        if (!usedTimes.add(start, end))
+            return false;
+        
+        if (freeStarts != null) {
+            removeStarts(start, end);
+        }
+        return true;
+    }
+    
+    /**
+     * Draws one of the free starts, with probability proportional to its weight.
+     * @param random The random number generator
+     * @return The start, in epoch minutes, or {@link Long#MIN_VALUE} if no start is free
+     */
+    public long sampleFreeStart(RandomSource random) {
+        if (freeStarts == null) {
+            freeStarts = new FenwickTree(startWeights);
+            
+            for (int i=0; i<usedTimes.size(); i++) {
+                removeStarts(usedTimes.getStart(i), usedTimes.getEnd(i));
+            }
+        }
+        
+        int i = freeStarts.sample(random);
+        return (i < 0) ? Long.MIN_VALUE : startMinutes[i];
+    }
+    
+    /**
+     * @param start A free minute
+     * @return The number of free minutes from the start, up to the next call
+     */
+    public long getFreeMinutes(long start) {
+        long next = usedTimes.nextStart(start);
+        return (next == Long.MAX_VALUE) ? Long.MAX_VALUE : next - start;
+    }
+    
+    public IntervalIndex getUsedTimes() {
+        return usedTimes;
+    }
+    
+    private void removeStarts(long start, long end) {
+        int i = Arrays.binarySearch(startMinutes, start);
+        
+        // the first start at or after the start of the interval
+        if (i < 0) {
+            i = -i - 1;
+        } else {
+            while (i > 0 && startMinutes[i-1] == start) i--;
+        }
+        
+        for (; i<startMinutes.length && startMinutes[i] < end; i++) {
+            freeStarts.set(i, 0);
+        }
+    }
+}
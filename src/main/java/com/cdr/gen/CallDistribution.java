@@ -1,10 +1,12 @@
 package com.cdr.gen;
 
+import com.cdr.gen.util.AliasSampler;
+import com.cdr.gen.util.RandomSource;
+import com.cdr.gen.util.RandomSources;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Random;
 
 /**
  * Used mainly for obtaining a random phone call type given the probabilities
@@ -15,48 +17,72 @@ public class CallDistribution {
     private Map<String, Double> weigths;
     private List<String> weigthKeys;
     private List<Double> weigthVals;
+    private AliasSampler sampler;
+    private AliasSampler incomingSampler;
     
-    private List<String> callTypes;
-    private Map<String, Object> outgoingCallParams;
-    
-    private Random random;
+    private RandomSource random;
 
     public CallDistribution(Map<String, Object> config) {
-        callTypes = (List<String>) config.get("callTypes");
-        outgoingCallParams = (Map<String, Object>) config.get("outgoingCallParams");
+        this(new GeneratorConfig(config));
+    }
+
+    /**
+     * @param config The configuration of the generator, with the probabilities
+     *               of the call types already normalized
+     */
+    public CallDistribution(GeneratorConfig config) {
+        List<String> callTypes = config.getCallTypes();
+        double[] probs = config.getCallProbabilities();
     
         weigths    = new HashMap<String, Double>(callTypes.size());
         weigthKeys = new ArrayList<String>(callTypes.size());
         weigthVals = new ArrayList<Double>(callTypes.size());
         
-        for (String callType : callTypes) {
-            Map<String, Object> params = (Map<String, Object>) outgoingCallParams.get(callType);
-            weigths.put(callType, (Double) params.get("callProb"));
-            weigthKeys.add(callType);
-            weigthVals.add((Double) params.get("callProb"));
+        for (int i=0; i<probs.length; i++) {
+            weigths.put(callTypes.get(i), probs[i]);
+            weigthKeys.add(callTypes.get(i));
+            weigthVals.add(probs[i]);
         }
+        sampler = new AliasSampler(probs);
+        
+        if (config.hasIncomingCalls())
+            incomingSampler = new AliasSampler(config.getIncomingCallProbabilities());
         
-        random = new Random(System.currentTimeMillis());
+        random = RandomSources.fromConfig(config.getOptions());
     }
     
     /**
      * @return A randomly selected phone call type
      */
     public String getRandomCallType() {
-        double tmpRnd = 1;
-
-        while (tmpRnd > 0) {
-            tmpRnd = random.nextDouble();
-            for (int k = 0; k < size(); k++) {
-                if (tmpRnd - getVal(k) > 0) {
-                    tmpRnd = tmpRnd - getVal(k);
-                } else {
-                    return getKey(k);
-                }
-            }
-        }
-        
-        return null;
+        return getRandomCallType(random);
+    }
+    
+    /**
+     * @param random The random number generator
+     * @return A randomly selected phone call type
+     */
+    public String getRandomCallType(RandomSource random) {
+        return getKey(getRandomCallTypeOrdinal(random));
+    }
+    
+    /**
+     * @param random The random number generator
+     * @return The ordinal of a randomly selected phone call type, its index in
+     *         the <code>callTypes</code> of the configuration
+     */
+    public int getRandomCallTypeOrdinal(RandomSource random) {
+        return sampler.sample(random);
+    }
+    
+    /**
+     * @param random The random number generator
+     * @return The ordinal of a randomly selected type for a call received from
+     *         outside the population, following the <code>incomingProb</code>
+     *         of the call types
+     */
+    public int getRandomIncomingCallTypeOrdinal(RandomSource random) {
+        return incomingSampler.sample(random);
     }
     
     public int size() {
@@ -0,0 +1,145 @@
+package com.cdr.gen;
+
+import com.cdr.gen.util.LongIntHeap;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * A sink that keeps the calls of each customer sorted by start in a compact
+ * {@link CallStore}, and then merges the calls of all customers into a single
+ * stream ordered by start. Calls that start at the same second are ordered by
+ * customer, so the stream is reproducible.
+ * 
+ * The merge needs every customer before the first call can be returned, so the
+ * whole population is held in memory, in the compact layout of the store.
+ * 
+ * @author Maycon Viana Bordin <mayconbordin@gmail.com>
+ */
+public class CallMerger implements CallSink {
+    private final List<String> callTypes;
+    private final List<String> phoneNumbers = new ArrayList<String>();
+    private final List<CallStore> stores = new ArrayList<CallStore>();
+    private long numCalls;
+    
+    private LongIntHeap heap;
+    private int[] positions;
+    private CallStore.Cursor[] cursors;
+    private int customer = -1;
+    private int position;
+
+    /**
+     * @param callTypes The call types of the population
+     */
+    public CallMerger(List<String> callTypes) {
+        this.callTypes = callTypes;
+    }
+
+    @Override
+    public void write(Person customer) {
+        if (heap != null)
+            throw new IllegalStateException("The merge has already started.");
+        
+        if (customer.getCalls().isEmpty())
+            return;
+        
+        CallStore store = CallStore.of(callTypes, customer.getCalls());
+        store.sortByStart();
+        
+        phoneNumbers.add(customer.getPhoneNumber());
+        stores.add(store);
+        numCalls += store.size();
+    }
+    
+    /**
+     * @return The total number of calls to be merged
+     */
+    public long getNumCalls() {
+        return numCalls;
+    }
+    
+    /**
+     * Advances to the next call in start order. The first call starts the merge,
+     * after which no more customers can be written.
+     * @return False if there are no more calls
+     */
+    public boolean next() {
+        if (heap == null) {
+            heap = new LongIntHeap(stores.size());
+            positions = new int[stores.size()];
+            cursors = new CallStore.Cursor[stores.size()];
+            
+            for (int i=0; i<stores.size(); i++) {
+                heap.add(stores.get(i).getStart(0), i);
+                cursors[i] = stores.get(i).cursor();
+            }
+        } else if (customer >= 0) {
+            // the customer of the current call is still at the top of the heap
+            CallStore store = stores.get(customer);
+            int next = ++positions[customer];
+            
+            if (next < store.size()) {
+                heap.replaceTopKey(store.getStart(next));
+            } else {
+                heap.poll();
+            }
+        }
+        
+        if (heap.isEmpty()) {
+            customer = -1;
+            return false;
+        }
+        
+        customer = heap.peekValue();
+        position = positions[customer];
+        return true;
+    }
+    
+    /**
+     * @return The phone number of the customer that made the current call
+     */
+    public String getPhoneNumber() {
+        checkCurrent();
+        return phoneNumbers.get(customer);
+    }
+    
+    /**
+     * @return The store holding the current call, see {@link #getIndex()}
+     */
+    public CallStore getStore() {
+        checkCurrent();
+        return stores.get(customer);
+    }
+    
+    /**
+     * @return The index of the current call within its store
+     */
+    public int getIndex() {
+        checkCurrent();
+        return position;
+    }
+    
+    /**
+     * @return The start of the current call, in seconds since the epoch
+     */
+    public long getStart() {
+        return getStore().getStart(position);
+    }
+    
+    /**
+     * @return A view of the current call, reused by the next calls of the
+     *         same customer
+     */
+    public Call getCall() {
+        checkCurrent();
+        return cursors[customer].moveTo(position);
+    }
+    
+    private void checkCurrent() {
+        if (customer < 0)
+            throw new NoSuchElementException("There is no current call.");
+    }
+
+    @Override
+    public void close() {}
+}
@@ -0,0 +1,18 @@
+package com.cdr.gen;
+
+/**
+ * Gives the cost of the generated calls. The default is a {@link TariffRater}
+ * built from the configuration, others can be set with
+ * {@link Population#setCallRater(CallRater)}. Raters are shared by the threads
+ * of the generation, so they must be thread safe.
+ * @author Maycon Viana Bordin <mayconbordin@gmail.com>
+ */
+public interface CallRater {
+    /**
+     * @param call The call, with its start and end already set
+     * @param callType The ordinal of the type of the call
+     * @param timeTable The calendar of the time zone of the customer
+     * @return The cost of the call
+     */
+    double rate(Call call, int callType, TimeTable timeTable);
+}
@@ -0,0 +1,28 @@
+package com.cdr.gen;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Receives each customer as soon as its calls have been generated, allowing the
+ * calls to be written and released before the next customer is created, instead
+ * of keeping the whole population in memory.
+ * @author Maycon Viana Bordin <mayconbordin@gmail.com>
+ */
+public interface CallSink extends Closeable {
+    /**
+     * Consumes a customer and all of its calls. The sink must not keep a reference
+     * to the customer unless it really needs to hold the population.
+     * @param customer The customer, with its calls already generated
+     * @throws IOException If the calls could not be written
+     */
+    void write(Person customer) throws IOException;
+    
+    /**
+     * @return The number of bytes written so far, before compression, or 0 if the
+     *         sink doesn't write bytes
+     */
+    default long getBytesWritten() {
+        return 0;
+    }
+}
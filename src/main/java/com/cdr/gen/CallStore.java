@@ -0,0 +1,393 @@
+package com.cdr.gen;
+
+import com.cdr.gen.util.PhoneNumbers;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Stores calls in a compact, column oriented layout of primitive arrays: the start
+ * in epoch seconds, the duration in seconds, the ordinal of the call type, the
+ * line, the packed destination phone number and the cost in fixed-point. Calls
+ * are read and written through {@link Call} views backed by the arrays, so code
+ * using the {@link Call} API doesn't need to change. Each view returned by
+ * {@link #get(int)} and {@link #asList()} is a small new object, loops over many
+ * calls should move a single {@link Cursor} instead.
+ * 
+ * Times are kept with a precision of one second and costs with a precision of
+ * <code>1/COST_SCALE</code>, so a cost is rounded to the nearest 0.0001 when
+ * it's stored.
+ * 
+ * @author Maycon Viana Bordin <mayconbordin@gmail.com>
+ */
+public class CallStore {
+    /**
+     * The costs are stored as a long in units of <code>1/COST_SCALE</code>.
+     */
+    public static final long COST_SCALE = 10000;
+    
+    private final String[] callTypes;
+    private final Map<String, Byte> callTypeOrdinals;
+    
+    private long[] ids;
+    private long[] starts;
+    private int[] durations;
+    private byte[] types;
+    private int[] lines;
+    private long[] destPhoneNumbers;
+    private long[] costs;
+    private int size;
+
+    /**
+     * @param callTypes The call types, the index of a type is its ordinal in the store
+     * @param capacity The initial number of calls that can be stored
+     */
+    public CallStore(List<String> callTypes, int capacity) {
+        if (callTypes.size() > Byte.MAX_VALUE)
+            throw new IllegalArgumentException("Too many call types.");
+        
+        this.callTypes = callTypes.toArray(new String[callTypes.size()]);
+        callTypeOrdinals = new HashMap<String, Byte>(callTypes.size());
+        
+        for (int i=0; i<this.callTypes.length; i++) {
+            callTypeOrdinals.put(this.callTypes[i], (byte) i);
+        }
+        
+        capacity = Math.max(1, capacity);
+        ids = new long[capacity];
+        starts = new long[capacity];
+        durations = new int[capacity];
+        types = new byte[capacity];
+        lines = new int[capacity];
+        destPhoneNumbers = new long[capacity];
+        costs = new long[capacity];
+    }
+    
+    /**
+     * Copies the calls into a new store.
+     * @param callTypes The call types
+     * @param calls The calls to be copied
+     * @return The new store
+     */
+    public static CallStore of(List<String> callTypes, Collection<Call> calls) {
+        CallStore store = new CallStore(callTypes, calls.size());
+        
+        for (Call c : calls) {
+            store.add(c);
+        }
+        
+        return store;
+    }
+    
+    /**
+     * Appends a copy of the call to the store.
+     * @param call The call to be stored
+     * @return The index of the call in the store
+     */
+    public int add(Call call) {
+        if (size == ids.length) {
+            grow();
+        }
+        
+        set(size, call);
+        return size++;
+    }
+    
+    private void set(int i, Call call) {
+        ids[i] = call.getId();
+        lines[i] = call.getLine();
+        types[i] = ordinalOf(call.getType());
+        costs[i] = Math.round(call.getCost() * COST_SCALE);
+        destPhoneNumbers[i] = call.getPackedDestPhoneNumber();
+        setTime(i, call.getStartMillis(), call.getEndMillis());
+    }
+    
+    private void setTime(int i, long startMillis, long endMillis) {
+        starts[i] = startMillis / 1000;
+        durations[i] = (int) ((endMillis - startMillis) / 1000);
+    }
+    
+    private void grow() {
+        int capacity = ids.length * 2;
+        
+        ids = Arrays.copyOf(ids, capacity);
+        starts = Arrays.copyOf(starts, capacity);
+        durations = Arrays.copyOf(durations, capacity);
+        types = Arrays.copyOf(types, capacity);
+        lines = Arrays.copyOf(lines, capacity);
+        destPhoneNumbers = Arrays.copyOf(destPhoneNumbers, capacity);
+        costs = Arrays.copyOf(costs, capacity);
+    }
+    
+    private byte ordinalOf(String type) {
+        Byte ordinal = callTypeOrdinals.get(type);
+        
+        if (ordinal == null)
+            throw new IllegalArgumentException("Unknown call type '" + type + "'.");
+        
+        return ordinal;
+    }
+    
+    public int size() {
+        return size;
+    }
+    
+    /**
+     * Removes all calls, keeping the arrays for reuse.
+     */
+    public void clear() {
+        size = 0;
+    }
+    
+    /**
+     * Reorders the calls of the store by their start, calls that start at the
+     * same second keep their relative order.
+     * @return The previous index of each call, in the new order
+     */
+    public int[] sortByStart() {
+        int[] index = new int[size];
+        
+        if (size < 2)
+            return index;
+        
+        long min = Long.MAX_VALUE, max = Long.MIN_VALUE;
+        for (int i=0; i<size; i++) {
+            min = Math.min(min, starts[i]);
+            max = Math.max(max, starts[i]);
+        }
+        
+        if (max - min > Integer.MAX_VALUE)
+            throw new IllegalStateException("The calls span more than " + Integer.MAX_VALUE + " seconds.");
+        
+        // sort the offset of the start together with the index, so that the
+        // primitive sort gives the permutation
+        long[] order = new long[size];
+        for (int i=0; i<size; i++) {
+            order[i] = ((starts[i] - min) << 32) | i;
+        }
+        Arrays.sort(order);
+        
+        for (int i=0; i<size; i++) {
+            index[i] = (int) order[i];
+        }
+        
+        ids = permute(ids, index);
+        starts = permute(starts, index);
+        durations = permute(durations, index);
+        lines = permute(lines, index);
+        destPhoneNumbers = permute(destPhoneNumbers, index);
+        costs = permute(costs, index);
+        
+        byte[] sortedTypes = new byte[types.length];
+        for (int i=0; i<size; i++) {
+            sortedTypes[i] = types[index[i]];
+        }
+        types = sortedTypes;
+        
+        return index;
+    }
+    
+    private static long[] permute(long[] column, int[] index) {
+        long[] sorted = new long[column.length];
+        for (int i=0; i<index.length; i++) {
+            sorted[i] = column[index[i]];
+        }
+        return sorted;
+    }
+    
+    private static int[] permute(int[] column, int[] index) {
+        int[] sorted = new int[column.length];
+        for (int i=0; i<index.length; i++) {
+            sorted[i] = column[index[i]];
+        }
+        return sorted;
+    }
+    
+    /**
+     * @param i The index of the call
+     * @return A new view of the call, backed by the store
+     */
+    public Call get(int i) {
+        return new Cursor().moveTo(i);
+    }
+    
+    /**
+     * @return A view backed by the store that is moved from call to call with
+     *         {@link Cursor#moveTo(int)}, without allocating
+     */
+    public Cursor cursor() {
+        return new Cursor();
+    }
+    
+    /**
+     * @return A list of views of the calls, backed by the store, each element
+     *         read being a new view. Calls can be appended to the list or
+     *         replaced, but not removed.
+     */
+    public List<Call> asList() {
+        return new AbstractList<Call>() {
+            @Override
+            public Call get(int index) {
+                return CallStore.this.get(index);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+
+            @Override
+            public Call set(int index, Call element) {
+                Call previous = CallStore.this.get(index);
+                CallStore.this.set(index, element);
+                return previous;
+            }
+
+            @Override
+            public void add(int index, Call element) {
+                if (index != size)
+                    throw new UnsupportedOperationException("Calls can only be appended.");
+                CallStore.this.add(element);
+            }
+        };
+    }
+    
+    public long getId(int i) {
+        return ids[i];
+    }
+    
+    /**
+     * @param i The index of the call
+     * @return The start of the call, in seconds since the epoch
+     */
+    public long getStart(int i) {
+        return starts[i];
+    }
+    
+    /**
+     * @param i The index of the call
+     * @return The duration of the call, in seconds
+     */
+    public int getDuration(int i) {
+        return durations[i];
+    }
+    
+    public int getTypeOrdinal(int i) {
+        return types[i];
+    }
+    
+    public String getType(int i) {
+        return callTypes[types[i]];
+    }
+    
+    public int getLine(int i) {
+        return lines[i];
+    }
+    
+    /**
+     * @param i The index of the call
+     * @return The packed destination phone number, see {@link PhoneNumbers}
+     */
+    public long getDestPhoneNumber(int i) {
+        return destPhoneNumbers[i];
+    }
+    
+    /**
+     * @param i The index of the call
+     * @return The cost of the call in units of <code>1/COST_SCALE</code>
+     */
+    public long getFixedCost(int i) {
+        return costs[i];
+    }
+    
+    /**
+     * A call whose fields are read from and written to the arrays of the store,
+     * at an index that can be moved.
+     */
+    public class Cursor extends Call {
+        private int index;
+
+        private Cursor() {
+        }
+        
+        /**
+         * @param i The index of the call
+         * @return This view, now on the call at the index
+         */
+        public Cursor moveTo(int i) {
+            if (i < 0 || i >= size)
+                throw new IndexOutOfBoundsException("Index: " + i + ", Size: " + size);
+            
+            index = i;
+            return this;
+        }
+
+        @Override
+        public long getId() {
+            return ids[index];
+        }
+
+        @Override
+        public void setId(long id) {
+            ids[index] = id;
+        }
+
+        @Override
+        public String getType() {
+            return callTypes[types[index]];
+        }
+
+        @Override
+        public void setType(String type) {
+            types[index] = ordinalOf(type);
+        }
+
+        @Override
+        public long getStartMillis() {
+            return starts[index] * 1000;
+        }
+
+        @Override
+        public long getEndMillis() {
+            return (starts[index] + durations[index]) * 1000;
+        }
+
+        @Override
+        public void setTime(long startMillis, long endMillis) {
+            CallStore.this.setTime(index, startMillis, endMillis);
+        }
+
+        @Override
+        public double getCost() {
+            return costs[index] / (double) COST_SCALE;
+        }
+
+        @Override
+        public void setCost(double cost) {
+            costs[index] = Math.round(cost * COST_SCALE);
+        }
+
+        @Override
+        public int getLine() {
+            return lines[index];
+        }
+
+        @Override
+        public void setLine(int line) {
+            lines[index] = line;
+        }
+
+        @Override
+        public long getPackedDestPhoneNumber() {
+            return destPhoneNumbers[index];
+        }
+
+        @Override
+        public void setPackedDestPhoneNumber(long destPhoneNumber) {
+            destPhoneNumbers[index] = destPhoneNumber;
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.cdr.gen;
+
+import java.io.Flushable;
+import java.io.IOException;
+
+/**
+ * A {@link CallSink} that writes each call as an independent record, together
+ * with the phone number of the customer that made it.
+ * 
+ * Writers buffer their output, {@link #flush()} hands the records written so
+ * far to the underlying channel.
+ * @author Maycon Viana Bordin <mayconbordin@gmail.com>
+ */
+public interface CallWriter extends CallSink, Flushable {
+    /**
+     * Writes a single call record.
+     * @param phoneNumber The phone number of the customer that made the call
+     * @param call The call
+     * @throws IOException If the call could not be written
+     */
+    void write(String phoneNumber, Call call) throws IOException;
+
+    @Override
+    default void write(Person customer) throws IOException {
+        for (Call c : customer.getCalls()) {
+            write(customer.getPhoneNumber(), c);
+        }
+    }
+    
+    @Override
+    default void flush() throws IOException {}
+}
@@ -0,0 +1,222 @@
+package com.cdr.gen;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import org.apache.log4j.Logger;
+
+/**
+ * Records the progress of the generation of a file, so that a run that dies can
+ * be resumed instead of started over.
+ *
+ * Every <code>interval</code> chunks the output is flushed and the checkpoint
+ * file records the number of chunks written, the length of the output and the
+ * terminating records held for customers not written yet. The random number
+ * generators don't need to be saved, as the generator of each chunk is derived
+ * from the seed and the chunk index. A resumed run truncates the output at the
+ * recorded length and goes on from the next chunk, so the output is the same,
+ * byte for byte, as the one of a run that was never interrupted.
+ *
+ * The checkpoints are taken at fixed chunks, so that the blocks of compressed and
+ * columnar outputs, which are cut by the flushes, are also the same.
+ *
+ * @author Maycon Viana Bordin <mayconbordin@gmail.com>
+ */
+public class Checkpointer {
+    private static final Logger LOG = Logger.getLogger(Checkpointer.class);
+    
+    public static final int DEFAULT_INTERVAL = 64;
+    public static final String EXTENSION = ".checkpoint";
+    
+    private static final int MAGIC = 0x43445243;
+    private static final int VERSION = 1;
+    
+    private final String outputFile;
+    private final File file;
+    private final int interval;
+    
+    private boolean resumed = false;
+    private long seed;
+    private int chunkSize;
+    private int numAccounts;
+    private int nextChunk;
+    private long outputOffset;
+    private IncomingCallIndex pendingCalls = new IncomingCallIndex();
+    
+    private FileChannel channel;
+    private CallWriter writer;
+    
+    /**
+     * @param outputFile The path of the output file
+     * @param config The configuration of the generator, with the <code>checkpoint</code>
+     *               object with the optional <code>interval</code>, in chunks, and
+     *               <code>file</code>, which defaults to the output file with the
+     *               <code>.checkpoint</code> extension
+     */
+    public Checkpointer(String outputFile, Map<String, Object> config) {
+        this(outputFile, new GeneratorConfig(config));
+    }
+    
+    /**
+     * @param outputFile The path of the output file
+     * @param config The compiled configuration of the generator, which rejects
+     *               checkpoints for outputs they don't support
+     */
+    public Checkpointer(String outputFile, GeneratorConfig config) {
+        if (!config.hasCheckpoint())
+            throw new IllegalArgumentException("The checkpoint configuration is missing.");
+        
+        this.outputFile = outputFile;
+        file = new File((config.getCheckpointFile() != null)
+                ? config.getCheckpointFile() : outputFile + EXTENSION);
+        interval = config.getCheckpointInterval();
+    }
+    
+    /**
+     * Reads the checkpoint file, if there is one.
+     * @return True if the generation will be resumed
+     * @throws IOException If the checkpoint file could not be read
+     */
+    public boolean load() throws IOException {
+        if (!file.exists())
+            return false;
+        
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION)
+                throw new IOException("Invalid checkpoint file '" + file + "'.");
+            
+            seed = in.readLong();
+            chunkSize = in.readInt();
+            numAccounts = in.readInt();
+            nextChunk = in.readInt();
+            outputOffset = in.readLong();
+            pendingCalls = IncomingCallIndex.readFrom(in);
+        }
+        
+        resumed = true;
+        LOG.info("Resuming from chunk " + nextChunk + " of checkpoint '" + file + "'");
+        return true;
+    }
+    
+    /**
+     * Opens the output file, truncated at the checkpoint if the generation is
+     * resumed. The output is compressed as required by {@link Compression}.
+     * @param config The configuration of the generator
+     * @return The writer of the output file
+     * @throws IOException If the file could not be opened
+     */
+    public CallWriter open(Map<String, Object> config) throws IOException {
+        OutputFormat format = OutputFormats.forFile(outputFile, config);
+        channel = FileChannel.open(Paths.get(outputFile), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE);
+        
+        try {
+            if (resumed && channel.size() < outputOffset)
+                throw new IOException("The output file '" + outputFile + "' is shorter than its checkpoint.");
+            
+            channel.truncate(resumed ? outputOffset : 0);
+            channel.position(resumed ? outputOffset : 0);
+            
+            WritableByteChannel output = Compression.wrap(channel, outputFile, config);
+            writer = resumed ? format.resume(output, config) : format.open(output, config);
+            return writer;
+        } catch (IOException ex) {
+            channel.close();
+            throw ex;
+        } catch (RuntimeException ex) {
+            channel.close();
+            throw ex;
+        }
+    }
+    
+    /**
+     * Called when the generation starts.
+     * @param seed The master seed of the population
+     * @param chunkSize The number of accounts of each chunk
+     * @param numAccounts The number of accounts
+     * @return The first chunk to be generated
+     */
+    int start(long seed, int chunkSize, int numAccounts) {
+        if (resumed && (seed != this.seed || chunkSize != this.chunkSize || numAccounts != this.numAccounts))
+            throw new IllegalStateException("The checkpoint '" + file + "' doesn't match the configuration.");
+        
+        this.seed = seed;
+        this.chunkSize = chunkSize;
+        this.numAccounts = numAccounts;
+        return resumed ? nextChunk : 0;
+    }
+    
+    /**
+     * Called after each chunk is written, records a checkpoint every <code>interval</code> chunks.
+     * @param nextChunk The number of chunks written
+     * @param pending The terminating records held for the customers not written yet
+     * @throws IOException If the output could not be flushed or the checkpoint written
+     */
+    void chunkWritten(int nextChunk, IncomingCallIndex pending) throws IOException {
+        if (writer == null || nextChunk % interval != 0)
+            return;
+        
+        writer.flush();
+        channel.force(false);
+        long offset = channel.position();
+        
+        // the previous checkpoint is replaced only once the new one is complete
+        File tmp = new File(file.getPath() + ".tmp");
+        
+        try (FileOutputStream fos = new FileOutputStream(tmp)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fos));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(seed);
+            out.writeInt(chunkSize);
+            out.writeInt(numAccounts);
+            out.writeInt(nextChunk);
+            out.writeLong(offset);
+            pending.writeTo(out);
+            out.flush();
+            fos.getFD().sync();
+        }
+        
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        LOG.info("Checkpoint at chunk " + nextChunk + ", " + offset + " bytes written");
+    }
+    
+    /**
+     * Removes the checkpoint file, once the generation is complete.
+     */
+    public void delete() {
+        if (file.exists() && !file.delete())
+            LOG.warn("Unable to delete the checkpoint file '" + file + "'.");
+    }
+    
+    public boolean isResumed() {
+        return resumed;
+    }
+    
+    /**
+     * @return The master seed of the checkpointed run
+     */
+    public long getSeed() {
+        return seed;
+    }
+    
+    /**
+     * @return The terminating records held at the checkpoint
+     */
+    public IncomingCallIndex getPendingCalls() {
+        return pendingCalls;
+    }
+}
@@ -0,0 +1,277 @@
+package com.cdr.gen;
+
+import com.cdr.gen.util.ByteReader;
+import com.cdr.gen.util.PhoneNumbers;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Reads the calls written by {@link ColumnarCallWriter}. Each block is decoded
+ * at once into primitive arrays and the calls are then visited with {@link #next()}:
+ * 
+ * <pre>
+ * while (reader.next()) {
+ *     long start = reader.getStart();
+ *     ...
+ * }
+ * </pre>
+ * 
+ * @author Maycon Viana Bordin <mayconbordin@gmail.com>
+ */
+public class ColumnarCallReader implements Closeable {
+    private final ReadableByteChannel channel;
+    private final ByteBuffer header = ByteBuffer.allocate(ColumnarCallWriter.BLOCK_HEADER_SIZE);
+    private byte[] block = new byte[1 << 16];
+    
+    private final ByteReader reader = new ByteReader();
+    private final ByteReader column = new ByteReader();
+    
+    private String[] typeNames = new String[0];
+    private long[] ids = new long[0];
+    private long[] callers = new long[0];
+    private int[] lines = new int[0];
+    private long[] destPhoneNumbers = new long[0];
+    private long[] starts = new long[0];
+    private int[] durations = new int[0];
+    private int[] types = new int[0];
+    private long[] costs = new long[0];
+    
+    private int rows;
+    private int row = -1;
+    private boolean finished = false;
+
+    public ColumnarCallReader(String inputFile) throws IOException {
+        this(FileChannel.open(Paths.get(inputFile), StandardOpenOption.READ));
+    }
+
+    /**
+     * @param channel The source of the calls, closed with the reader
+     * @throws IOException If the data is not in the columnar format
+     */
+    public ColumnarCallReader(ReadableByteChannel channel) throws IOException {
+        this.channel = channel;
+        
+        byte[] magic = ColumnarCallWriter.MAGIC;
+        ByteBuffer start = ByteBuffer.allocate(magic.length + 1);
+        readFully(start);
+        
+        for (int i=0; i<magic.length; i++) {
+            if (start.get(i) != magic[i])
+                throw new IOException("Not a columnar CDR file.");
+        }
+        
+        if (start.get(magic.length) != ColumnarCallWriter.VERSION)
+            throw new IOException("Unsupported version " + start.get(magic.length) + ".");
+    }
+    
+    /**
+     * Moves to the next call.
+     * @return False if there are no more calls
+     * @throws IOException If the calls could not be read
+     */
+    public boolean next() throws IOException {
+        while (++row >= rows) {
+            if (finished || !readBlock()) {
+                finished = true;
+                row = rows;
+                return false;
+            }
+        }
+        
+        return true;
+    }
+    
+    private boolean readBlock() throws IOException {
+        ((Buffer) header).clear();
+        readFully(header);
+        
+        rows = header.getInt(0);
+        int length = header.getInt(4);
+        row = -1;
+        
+        if (rows == 0)
+            return false;
+        
+        if (block.length < length) {
+            block = new byte[Math.max(length, block.length * 2)];
+        }
+        readFully(ByteBuffer.wrap(block, 0, length));
+        reader.reset(block, 0, length);
+        ensureCapacity(rows);
+        
+        // dictionary of call types
+        reader.readSection(column);
+        typeNames = new String[(int) column.readVarLong()];
+        for (int i=0; i<typeNames.length; i++) {
+            int nameLength = (int) column.readVarLong();
+            typeNames[i] = new String(block, column.position(), nameLength, StandardCharsets.UTF_8);
+            column.skip(nameLength);
+        }
+        
+        // call ids
+        reader.readSection(column);
+        long previous = 0;
+        for (int i=0; i<rows; i++) {
+            previous += column.readZigZag();
+            ids[i] = previous;
+        }
+        
+        // callers
+        reader.readSection(column);
+        for (int i=0; i<rows; ) {
+            long caller = ColumnarCallWriter.decodePhoneNumber(column.readVarLong());
+            int run = (int) column.readVarLong();
+            
+            Arrays.fill(callers, i, i + run, caller);
+            i += run;
+        }
+        
+        // lines
+        reader.readSection(column);
+        for (int i=0; i<rows; i++) {
+            lines[i] = (int) column.readVarLong();
+        }
+        
+        // destination phone numbers
+        reader.readSection(column);
+        for (int i=0; i<rows; i++) {
+            destPhoneNumbers[i] = ColumnarCallWriter.decodePhoneNumber(column.readVarLong());
+        }
+        
+        // start of the calls
+        reader.readSection(column);
+        previous = 0;
+        for (int i=0; i<rows; i++) {
+            previous += column.readZigZag();
+            starts[i] = previous;
+        }
+        
+        // durations
+        reader.readSection(column);
+        for (int i=0; i<rows; i++) {
+            durations[i] = (int) column.readVarLong();
+        }
+        
+        // call types
+        reader.readSection(column);
+        for (int i=0; i<rows; i++) {
+            types[i] = column.readByte();
+        }
+        
+        // costs
+        reader.readSection(column);
+        for (int i=0; i<rows; i++) {
+            costs[i] = column.readZigZag();
+        }
+        
+        return true;
+    }
+    
+    private void ensureCapacity(int capacity) {
+        if (ids.length >= capacity)
+            return;
+        
+        ids = new long[capacity];
+        callers = new long[capacity];
+        lines = new int[capacity];
+        destPhoneNumbers = new long[capacity];
+        starts = new long[capacity];
+        durations = new int[capacity];
+        types = new int[capacity];
+        costs = new long[capacity];
+    }
+    
+    private void readFully(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0)
+                throw new EOFException("Unexpected end of the columnar CDR file.");
+        }
+    }
+    
+    public long getId() {
+        return ids[row];
+    }
+    
+    /**
+     * @return The packed phone number of the caller, see {@link PhoneNumbers}
+     */
+    public long getPackedPhoneNumber() {
+        return callers[row];
+    }
+    
+    public String getPhoneNumber() {
+        return PhoneNumbers.unpack(callers[row]);
+    }
+    
+    public int getLine() {
+        return lines[row];
+    }
+    
+    /**
+     * @return The packed destination phone number, see {@link PhoneNumbers}
+     */
+    public long getPackedDestPhoneNumber() {
+        return destPhoneNumbers[row];
+    }
+    
+    public String getDestPhoneNumber() {
+        return PhoneNumbers.unpack(destPhoneNumbers[row]);
+    }
+    
+    /**
+     * @return The start of the call, in seconds since the epoch
+     */
+    public long getStart() {
+        return starts[row];
+    }
+    
+    /**
+     * @return The duration of the call, in seconds
+     */
+    public int getDuration() {
+        return durations[row];
+    }
+    
+    public String getType() {
+        return typeNames[types[row]];
+    }
+    
+    /**
+     * @return The cost of the call in units of <code>1/{@link CallStore#COST_SCALE}</code>
+     */
+    public long getFixedCost() {
+        return costs[row];
+    }
+    
+    public double getCost() {
+        return costs[row] / (double) CallStore.COST_SCALE;
+    }
+    
+    /**
+     * @return A copy of the current call
+     */
+    public Call toCall() {
+        Call call = new Call();
+        call.setId(getId());
+        call.setLine(getLine());
+        call.setType(getType());
+        call.setPackedDestPhoneNumber(getPackedDestPhoneNumber());
+        call.setTime(starts[row] * 1000, (starts[row] + durations[row]) * 1000);
+        call.setCost(getCost());
+        return call;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,336 @@
+package com.cdr.gen;
+
+import com.cdr.gen.util.ByteBuilder;
+import com.cdr.gen.util.PhoneNumbers;
+import java.io.Flushable;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes calls in a compact binary columnar format. The calls are grouped in
+ * blocks, and each block stores its columns one after the other:
+ * 
+ * <ul>
+ * <li>call ids, delta-encoded;</li>
+ * <li>caller phone numbers, run-length encoded, as the calls of a customer are
+ * written together;</li>
+ * <li>lines;</li>
+ * <li>destination phone numbers, packed into a variable-length integer;</li>
+ * <li>start of the calls in epoch seconds, delta-encoded;</li>
+ * <li>duration of the calls in seconds;</li>
+ * <li>call types, as an index in the dictionary of the block;</li>
+ * <li>costs, in units of <code>1/{@link CallStore#COST_SCALE}</code>.</li>
+ * </ul>
+ * 
+ * The file starts with a magic number and a version, each block with its number
+ * of rows and its length in bytes, and a block with no rows marks the end of the file.
+ * 
+ * @author Maycon Viana Bordin <mayconbordin@gmail.com>
+ */
+public class ColumnarCallWriter implements CallWriter {
+    public static final int DEFAULT_BLOCK_ROWS = 65536;
+    
+    static final byte[] MAGIC = new byte[]{'C', 'D', 'R', 'C'};
+    static final int VERSION = 1;
+    static final int BLOCK_HEADER_SIZE = 8;
+    
+    private final WritableByteChannel channel;
+    private final int blockRows;
+    
+    private final long[] ids;
+    private final long[] callers;
+    private final int[] lines;
+    private final long[] destPhoneNumbers;
+    private final long[] starts;
+    private final int[] durations;
+    private final int[] types;
+    private final long[] costs;
+    private int rows;
+    
+    private final Map<String, Integer> typeOrdinals = new HashMap<String, Integer>();
+    private final List<byte[]> typeNames = new ArrayList<byte[]>();
+    
+    private String lastPhoneNumber;
+    private long lastCaller;
+    
+    private final ByteBuilder block = new ByteBuilder(1 << 20);
+    private final ByteBuilder column = new ByteBuilder(1 << 18);
+    private final ByteBuffer header = ByteBuffer.allocate(BLOCK_HEADER_SIZE);
+    private volatile long bytesWritten;
+
+    public ColumnarCallWriter(WritableByteChannel channel) {
+        this(channel, DEFAULT_BLOCK_ROWS);
+    }
+
+    /**
+     * @param channel The destination of the calls, closed with the writer
+     * @param blockRows The maximum number of calls of a block
+     */
+    public ColumnarCallWriter(WritableByteChannel channel, int blockRows) {
+        this(channel, blockRows, true);
+    }
+
+    /**
+     * @param channel The destination of the calls, closed with the writer
+     * @param blockRows The maximum number of calls of a block
+     * @param header False if the calls are appended to a file that already has
+     *               the magic number and the version
+     */
+    public ColumnarCallWriter(WritableByteChannel channel, int blockRows, boolean header) {
+        this.channel = channel;
+        this.blockRows = Math.max(1, blockRows);
+        
+        ids = new long[this.blockRows];
+        callers = new long[this.blockRows];
+        lines = new int[this.blockRows];
+        destPhoneNumbers = new long[this.blockRows];
+        starts = new long[this.blockRows];
+        durations = new int[this.blockRows];
+        types = new int[this.blockRows];
+        costs = new long[this.blockRows];
+        
+        if (header) {
+            block.writeBytes(MAGIC, 0, MAGIC.length);
+            block.writeByte(VERSION);
+        }
+    }
+
+    @Override
+    public void write(String phoneNumber, Call call) throws IOException {
+        if (!phoneNumber.equals(lastPhoneNumber)) {
+            lastCaller = PhoneNumbers.pack(phoneNumber);
+            lastPhoneNumber = phoneNumber;
+        }
+        
+        long start = Math.floorDiv(call.getStartMillis(), 1000L);
+        
+        ids[rows] = call.getId();
+        callers[rows] = lastCaller;
+        lines[rows] = call.getLine();
+        destPhoneNumbers[rows] = call.getPackedDestPhoneNumber();
+        starts[rows] = start;
+        durations[rows] = (int) (Math.floorDiv(call.getEndMillis(), 1000L) - start);
+        types[rows] = typeOrdinal(call.getType());
+        costs[rows] = Math.round(call.getCost() * CallStore.COST_SCALE);
+        
+        if (++rows == blockRows) {
+            writeBlock();
+        }
+    }
+    
+    /**
+     * Writes a call given by its fields, as read by {@link ColumnarCallReader}.
+     * @param id The id of the call
+     * @param caller The packed phone number of the customer, see {@link PhoneNumbers}
+     * @param line The line of the customer
+     * @param destPhoneNumber The packed destination phone number
+     * @param start The start of the call, in seconds since the epoch
+     * @param duration The duration of the call, in seconds
+     * @param type The type of the call
+     * @param fixedCost The cost in units of <code>1/{@link CallStore#COST_SCALE}</code>
+     * @throws IOException If the call could not be written
+     */
+    void write(long id, long caller, int line, long destPhoneNumber, long start, 
+            int duration, String type, long fixedCost) throws IOException {
+        ids[rows] = id;
+        callers[rows] = caller;
+        lines[rows] = line;
+        destPhoneNumbers[rows] = destPhoneNumber;
+        starts[rows] = start;
+        durations[rows] = duration;
+        types[rows] = typeOrdinal(type);
+        costs[rows] = fixedCost;
+        
+        if (++rows == blockRows) {
+            writeBlock();
+        }
+    }
+    
+    private int typeOrdinal(String type) {
+        Integer ordinal = typeOrdinals.get(type);
+        
+        if (ordinal == null) {
+            if (typeNames.size() > 0xFF)
+                throw new IllegalArgumentException("Too many call types.");
+            
+            ordinal = typeNames.size();
+            typeOrdinals.put(type, ordinal);
+            typeNames.add(type.getBytes(StandardCharsets.UTF_8));
+        }
+        
+        return ordinal;
+    }
+    
+    /**
+     * Encodes the buffered calls as a block and writes it to the channel.
+     */
+    private void writeBlock() throws IOException {
+        int headerOffset = block.size();
+        
+        // the header is filled once the length of the block is known
+        for (int i=0; i<BLOCK_HEADER_SIZE; i++) {
+            block.writeByte(0);
+        }
+        
+        // dictionary of call types
+        column.clear();
+        column.writeVarLong(typeNames.size());
+        for (byte[] name : typeNames) {
+            column.writeVarLong(name.length);
+            column.writeBytes(name, 0, name.length);
+        }
+        block.writeSection(column);
+        
+        // call ids
+        column.clear();
+        long previous = 0;
+        for (int i=0; i<rows; i++) {
+            column.writeZigZag(ids[i] - previous);
+            previous = ids[i];
+        }
+        block.writeSection(column);
+        
+        // callers, as runs of the same phone number
+        column.clear();
+        for (int i=0; i<rows; ) {
+            int run = 1;
+            while (i + run < rows && callers[i + run] == callers[i]) {
+                run++;
+            }
+            
+            column.writeVarLong(encodePhoneNumber(callers[i]));
+            column.writeVarLong(run);
+            i += run;
+        }
+        block.writeSection(column);
+        
+        // lines
+        column.clear();
+        for (int i=0; i<rows; i++) {
+            column.writeVarLong(lines[i]);
+        }
+        block.writeSection(column);
+        
+        // destination phone numbers
+        column.clear();
+        for (int i=0; i<rows; i++) {
+            column.writeVarLong(encodePhoneNumber(destPhoneNumbers[i]));
+        }
+        block.writeSection(column);
+        
+        // start of the calls
+        column.clear();
+        previous = 0;
+        for (int i=0; i<rows; i++) {
+            column.writeZigZag(starts[i] - previous);
+            previous = starts[i];
+        }
+        block.writeSection(column);
+        
+        // durations
+        column.clear();
+        for (int i=0; i<rows; i++) {
+            column.writeVarLong(durations[i]);
+        }
+        block.writeSection(column);
+        
+        // call types
+        column.clear();
+        for (int i=0; i<rows; i++) {
+            column.writeByte(types[i]);
+        }
+        block.writeSection(column);
+        
+        // costs
+        column.clear();
+        for (int i=0; i<rows; i++) {
+            column.writeZigZag(costs[i]);
+        }
+        block.writeSection(column);
+        
+        ((Buffer) header).clear();
+        header.putInt(rows).putInt(block.size() - headerOffset - BLOCK_HEADER_SIZE);
+        System.arraycopy(header.array(), 0, block.array(), headerOffset, BLOCK_HEADER_SIZE);
+        
+        rows = 0;
+        writeOut();
+    }
+    
+    /**
+     * The digits of the number are shifted to make room for the number of digits.
+     * @param packed The packed phone number
+     * @return The phone number encoded as a positive long
+     */
+    static long encodePhoneNumber(long packed) {
+        return (PhoneNumbers.value(packed) << 4) | PhoneNumbers.length(packed);
+    }
+    
+    static long decodePhoneNumber(long encoded) {
+        return PhoneNumbers.pack((int) (encoded & 0xF), encoded >>> 4);
+    }
+    
+    /**
+     * Writes the pending calls as a block, so flushing often produces small
+     * blocks that don't compress as well. The channel is flushed if it buffers
+     * data itself, like a compressed channel.
+     * 
+     * The dictionary of call types starts over, so the blocks written after a
+     * flush are the same as the ones of a writer appending to the file.
+     * @throws IOException If the block could not be written
+     */
+    @Override
+    public void flush() throws IOException {
+        if (rows > 0) {
+            writeBlock();
+        } else if (block.size() > 0) {
+            writeOut();
+        }
+        
+        typeOrdinals.clear();
+        typeNames.clear();
+        
+        if (channel instanceof Flushable) {
+            ((Flushable) channel).flush();
+        }
+    }
+    
+    private void writeOut() throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(block.array(), 0, block.size());
+        
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        
+        bytesWritten += block.size();
+        block.clear();
+    }
+    
+    @Override
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if (rows > 0) {
+                writeBlock();
+            }
+            
+            // the end of the file is marked by an empty block
+            for (int i=0; i<BLOCK_HEADER_SIZE; i++) {
+                block.writeByte(0);
+            }
+            writeOut();
+        } finally {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.cdr.gen;
+
+import java.nio.channels.WritableByteChannel;
+import java.util.Map;
+
+/**
+ * A compact binary columnar format, written by {@link ColumnarCallWriter} and
+ * read by {@link ColumnarCallReader}.
+ * @author Maycon Viana Bordin <mayconbordin@gmail.com>
+ */
+public class ColumnarOutputFormat implements OutputFormat {
+    public static final String NAME = "columnar";
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public String getExtension() {
+        return ".cdrc";
+    }
+
+    @Override
+    public CallWriter open(WritableByteChannel channel, Map<String, Object> config) {
+        return new ColumnarCallWriter(channel, blockRows(config));
+    }
+    
+    @Override
+    public CallWriter resume(WritableByteChannel channel, Map<String, Object> config) {
+        return new ColumnarCallWriter(channel, blockRows(config), false);
+    }
+    
+    private int blockRows(Map<String, Object> config) {
+        return config.containsKey("columnarBlockRows")
+                ? ((Number) config.get("columnarBlockRows")).intValue()
+                : ColumnarCallWriter.DEFAULT_BLOCK_ROWS;
+    }
+}
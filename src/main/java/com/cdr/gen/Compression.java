@@ -0,0 +1,155 @@
+package com.cdr.gen;
+
+import com.cdr.gen.util.ParallelGzipChannel;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * The compression stage of the output files. The codec is selected by the
+ * <code>compression</code> configuration or by the extension of the output file,
+ * and the blocks of the output are compressed in parallel. Only gzip is built in,
+ * as it is available in the JDK.
+ * 
+ * The configuration is an object with the keys <code>codec</code> (<code>gzip</code>
+ * or <code>none</code>), <code>level</code> (0-9, default 6), <code>blockSize</code>
+ * (bytes, default 1MiB) and <code>threads</code> (default: all processors).
+ * 
+ * @author Maycon Viana Bordin <mayconbordin@gmail.com>
+ */
+public final class Compression {
+    public static final String NONE = "none";
+    public static final String GZIP = "gzip";
+    public static final String GZIP_EXTENSION = ".gz";
+    
+    static final int DEFAULT_LEVEL = 6;
+    static final int DEFAULT_BLOCK_SIZE = 1 << 20;
+    
+    private static final Map<Integer, ExecutorService> EXECUTORS = new HashMap<Integer, ExecutorService>();
+
+    private Compression() {}
+    
+    /**
+     * @param outputFile The path of the output file
+     * @param config The configuration of the generator
+     * @return The name of the codec of the output file
+     */
+    public static String codecOf(String outputFile, Map<String, Object> config) {
+        Map<String, Object> params = params(config);
+        
+        if (params != null && params.containsKey("codec")) {
+            String codec = (String) params.get("codec");
+            
+            if (!GZIP.equals(codec) && !NONE.equals(codec))
+                throw new IllegalArgumentException("Unknown compression codec '" + codec + "'.");
+            
+            return codec;
+        }
+        
+        return (outputFile != null && outputFile.endsWith(GZIP_EXTENSION)) ? GZIP : NONE;
+    }
+    
+    /**
+     * @param config The configuration of the generator
+     * @return The extension to be appended to the files, empty if they are not compressed
+     */
+    public static String extensionOf(Map<String, Object> config) {
+        return GZIP.equals(codecOf(null, config)) ? GZIP_EXTENSION : "";
+    }
+    
+    /**
+     * @param outputFile The path of the output file
+     * @return The path without the extension of the compression codec
+     */
+    public static String stripExtension(String outputFile) {
+        return outputFile.endsWith(GZIP_EXTENSION) 
+                ? outputFile.substring(0, outputFile.length() - GZIP_EXTENSION.length())
+                : outputFile;
+    }
+    
+    /**
+     * Adds the compression stage to the channel of an output file, if the file
+     * should be compressed.
+     * @param channel The channel of the output file
+     * @param outputFile The path of the output file
+     * @param config The configuration of the generator
+     * @return The channel to which the uncompressed data should be written
+     */
+    public static WritableByteChannel wrap(WritableByteChannel channel, String outputFile, Map<String, Object> config) {
+        if (!GZIP.equals(codecOf(outputFile, config)))
+            return channel;
+        
+        Map<String, Object> params = params(config);
+        int level = getInt(params, "level", DEFAULT_LEVEL);
+        int blockSize = getInt(params, "blockSize", DEFAULT_BLOCK_SIZE);
+        int threads = getInt(params, "threads", Runtime.getRuntime().availableProcessors());
+        
+        return new ParallelGzipChannel(channel, level, blockSize, executor(threads), threads * 2);
+    }
+    
+    /**
+     * Opens a file written by the generator, decompressing it if its extension
+     * is the one of gzip.
+     * @param inputFile The path of the file
+     * @return The channel of the uncompressed data
+     * @throws IOException If the file could not be opened
+     */
+    public static ReadableByteChannel openInput(String inputFile) throws IOException {
+        InputStream in = new FileInputStream(inputFile);
+        
+        if (inputFile.endsWith(GZIP_EXTENSION)) {
+            try {
+                in = new GZIPInputStream(in, 1 << 16);
+            } catch (IOException ex) {
+                in.close();
+                throw ex;
+            }
+        }
+        
+        return Channels.newChannel(in);
+    }
+    
+    /**
+     * The executors are shared by all compressed files, so that sharded outputs
+     * don't create a pool per file. Their threads are daemons.
+     * @param threads The number of threads of the pool
+     * @return The shared executor
+     */
+    private static synchronized ExecutorService executor(int threads) {
+        threads = Math.max(1, threads);
+        ExecutorService executor = EXECUTORS.get(threads);
+        
+        if (executor == null) {
+            executor = new ForkJoinPool(threads, ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, true);
+            EXECUTORS.put(threads, executor);
+        }
+        
+        return executor;
+    }
+    
+    private static Map<String, Object> params(Map<String, Object> config) {
+        Object params = config.get("compression");
+        
+        if (params instanceof String) {
+            // a shorthand for the codec alone
+            Map<String, Object> codec = new HashMap<String, Object>();
+            codec.put("codec", params);
+            return codec;
+        }
+        
+        return (Map<String, Object>) params;
+    }
+    
+    private static int getInt(Map<String, Object> params, String key, int defaultValue) {
+        return (params != null && params.containsKey(key)) 
+                ? ((Number) params.get(key)).intValue() : defaultValue;
+    }
+}
@@ -0,0 +1,10 @@
+package com.cdr.gen;
+
+/**
+ * A {@link CallSink} that can be written by several threads at once. The workers
+ * of a {@link Population} write their customers directly to such a sink, instead
+ * of handing them to the calling thread, so the customers arrive in no particular order.
+ * @author Maycon Viana Bordin <mayconbordin@gmail.com>
+ */
+public interface ConcurrentCallSink extends CallSink {
+}
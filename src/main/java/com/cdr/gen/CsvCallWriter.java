@@ -0,0 +1,320 @@
+package com.cdr.gen;
+
+import com.cdr.gen.util.PhoneNumbers;
+import java.io.Flushable;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import org.joda.time.DateTimeZone;
+
+/**
+ * Writes calls as comma-separated lines in UTF-8, one call per line. Numbers,
+ * dates and times are formatted directly into a reusable byte buffer, which is
+ * written to the channel only when full, and the formatted dates are cached by day.
+ * 
+ * The columns are: call id, phone number, line, destination phone number, start
+ * date, end date, start time, end time, call type and cost.
+ * 
+ * @author Maycon Viana Bordin <mayconbordin@gmail.com>
+ */
+public class CsvCallWriter implements CallWriter {
+    public static final int DEFAULT_BUFFER_SIZE = 1 << 20;
+    
+    private static final byte[] NEW_LINE = System.getProperty("line.separator")
+            .getBytes(StandardCharsets.UTF_8);
+    
+    // the longest line possible, excluding the call type and phone numbers
+    private static final int MAX_FIXED_LINE_LENGTH = 128;
+    
+    private static final long MILLIS_PER_DAY = 24 * 60 * 60 * 1000L;
+    private static final int DATE_CACHE_SIZE = 1024;
+    
+    private final WritableByteChannel channel;
+    private final byte[] buffer;
+    private final ByteBuffer byteBuffer;
+    private int position;
+    private volatile long bytesWritten;
+    
+    private final DateTimeZone zone;
+    private long offsetFrom = Long.MAX_VALUE;
+    private long offsetUntil = Long.MIN_VALUE;
+    private int offset;
+    
+    // direct-mapped cache of the formatted dates, indexed by local day number
+    private final long[] cachedDays = new long[DATE_CACHE_SIZE];
+    private final byte[][] cachedDates = new byte[DATE_CACHE_SIZE][];
+    
+    private final Map<String, byte[]> encodedTypes = new HashMap<String, byte[]>();
+
+    public CsvCallWriter(String outputFile) throws IOException {
+        this(FileChannel.open(Paths.get(outputFile), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE));
+    }
+    
+    /**
+     * @param channel The destination of the lines, closed with the writer, the
+     *                dates and times are printed in UTC
+     */
+    public CsvCallWriter(WritableByteChannel channel) {
+        this(channel, DEFAULT_BUFFER_SIZE, DateTimeZone.UTC);
+    }
+
+    /**
+     * @param channel The destination of the lines, closed with the writer
+     * @param bufferSize The size of the buffer, in bytes
+     * @param zone The time zone of the printed dates and times
+     */
+    public CsvCallWriter(WritableByteChannel channel, int bufferSize, DateTimeZone zone) {
+        this.channel = channel;
+        this.zone = zone;
+        
+        buffer = new byte[Math.max(bufferSize, 4 * MAX_FIXED_LINE_LENGTH)];
+        byteBuffer = ByteBuffer.wrap(buffer);
+    }
+
+    @Override
+    public void write(String phoneNumber, Call call) throws IOException {
+        String type = call.getType();
+        byte[] typeBytes = encodedTypes.get(type);
+        
+        if (typeBytes == null) {
+            typeBytes = type.getBytes(StandardCharsets.UTF_8);
+            encodedTypes.put(type, typeBytes);
+        }
+        
+        long destPhoneNumber = call.getPackedDestPhoneNumber();
+        int maxLength = MAX_FIXED_LINE_LENGTH + typeBytes.length 
+                + phoneNumber.length() + PhoneNumbers.length(destPhoneNumber);
+        
+        if (buffer.length - position < maxLength) {
+            writeBuffer();
+            
+            if (buffer.length < maxLength)
+                throw new IOException("Call record too long for the output buffer.");
+        }
+        
+        long start = toLocalMillis(call.getStartMillis());
+        long end   = toLocalMillis(call.getEndMillis());
+        
+        writeLong(call.getId());
+        buffer[position++] = ',';
+        writeAscii(phoneNumber);
+        buffer[position++] = ',';
+        writeLong(call.getLine());
+        buffer[position++] = ',';
+        writePhoneNumber(destPhoneNumber);
+        buffer[position++] = ',';
+        writeDate(start);
+        buffer[position++] = ',';
+        writeDate(end);
+        buffer[position++] = ',';
+        writeTime(start);
+        buffer[position++] = ',';
+        writeTime(end);
+        buffer[position++] = ',';
+        System.arraycopy(typeBytes, 0, buffer, position, typeBytes.length);
+        position += typeBytes.length;
+        buffer[position++] = ',';
+        writeCost(call.getCost());
+        System.arraycopy(NEW_LINE, 0, buffer, position, NEW_LINE.length);
+        position += NEW_LINE.length;
+    }
+    
+    /**
+     * Writes the buffered lines to the channel, and flushes the channel if it
+     * buffers data itself, like a compressed channel.
+     * @throws IOException If the lines could not be written
+     */
+    @Override
+    public void flush() throws IOException {
+        writeBuffer();
+        
+        if (channel instanceof Flushable) {
+            ((Flushable) channel).flush();
+        }
+    }
+    
+    private void writeBuffer() throws IOException {
+        ((Buffer) byteBuffer).clear().limit(position);
+        
+        while (byteBuffer.hasRemaining()) {
+            channel.write(byteBuffer);
+        }
+        
+        bytesWritten += position;
+        position = 0;
+    }
+
+    @Override
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+    
+    @Override
+    public void close() throws IOException {
+        try {
+            writeBuffer();
+        } finally {
+            channel.close();
+        }
+    }
+    
+    /**
+     * Converts an instant to the local time of the zone, caching the offset while
+     * it doesn't change.
+     * @param millis The instant, in milliseconds since the epoch
+     * @return The local time, in milliseconds since the local epoch
+     */
+    private long toLocalMillis(long millis) {
+        if (millis < offsetFrom || millis >= offsetUntil) {
+            offset = zone.getOffset(millis);
+            
+            // the transition methods return the given instant if there is none
+            long previous = zone.previousTransition(millis + 1);
+            long next = zone.nextTransition(millis);
+            
+            offsetFrom  = (previous > millis) ? Long.MIN_VALUE : previous;
+            offsetUntil = (next <= millis) ? Long.MAX_VALUE : next;
+        }
+        
+        return millis + offset;
+    }
+    
+    private void writeAscii(String str) {
+        for (int i=0, len=str.length(); i<len; i++) {
+            buffer[position++] = (byte) str.charAt(i);
+        }
+    }
+    
+    /**
+     * Writes the digits of a packed phone number, with its leading zeros.
+     * @param packed The packed phone number
+     */
+    private void writePhoneNumber(long packed) {
+        int length = PhoneNumbers.length(packed);
+        long value = PhoneNumbers.value(packed);
+        
+        for (int i=position+length-1; i>=position; i--) {
+            buffer[i] = (byte) ('0' + (value % 10));
+            value /= 10;
+        }
+        
+        position += length;
+    }
+    
+    private void writeLong(long value) {
+        if (value < 0) {
+            if (value == Long.MIN_VALUE) {
+                writeAscii(Long.toString(value));
+                return;
+            }
+            
+            buffer[position++] = '-';
+            value = -value;
+        }
+        
+        int digits = 1;
+        for (long v = value / 10; v != 0; v /= 10) {
+            digits++;
+        }
+        
+        int p = position + digits;
+        do {
+            buffer[--p] = (byte) ('0' + (value % 10));
+            value /= 10;
+        } while (value != 0);
+        
+        position += digits;
+    }
+    
+    private void writeTwoDigits(int value) {
+        buffer[position++] = (byte) ('0' + value / 10);
+        buffer[position++] = (byte) ('0' + value % 10);
+    }
+    
+    /**
+     * Writes the time as HH:mm:ss.
+     * @param localMillis The local time
+     */
+    private void writeTime(long localMillis) {
+        int secondOfDay = (int) (Math.floorMod(localMillis, MILLIS_PER_DAY) / 1000);
+        
+        writeTwoDigits(secondOfDay / 3600);
+        buffer[position++] = ':';
+        writeTwoDigits((secondOfDay / 60) % 60);
+        buffer[position++] = ':';
+        writeTwoDigits(secondOfDay % 60);
+    }
+    
+    /**
+     * Writes the date as dd/MM/yyyy.
+     * @param localMillis The local time
+     */
+    private void writeDate(long localMillis) {
+        long day = Math.floorDiv(localMillis, MILLIS_PER_DAY);
+        int slot = (int) (day & (DATE_CACHE_SIZE - 1));
+        byte[] date = cachedDates[slot];
+        
+        if (date == null || cachedDays[slot] != day) {
+            date = formatDate(day);
+            cachedDates[slot] = date;
+            cachedDays[slot] = day;
+        }
+        
+        System.arraycopy(date, 0, buffer, position, date.length);
+        position += date.length;
+    }
+    
+    /**
+     * Converts a day number to a civil date, using the algorithm by Howard Hinnant.
+     * @param epochDay The number of days since 1970-01-01
+     * @return The date formatted as dd/MM/yyyy
+     */
+    private static byte[] formatDate(long epochDay) {
+        long z = epochDay + 719468;
+        long era = Math.floorDiv(z, 146097L);
+        long doe = z - era * 146097;
+        long yoe = (doe - doe / 1460 + doe / 36524 - doe / 146096) / 365;
+        long doy = doe - (365 * yoe + yoe / 4 - yoe / 100);
+        long mp = (5 * doy + 2) / 153;
+        int day = (int) (doy - (153 * mp + 2) / 5 + 1);
+        int month = (int) (mp < 10 ? mp + 3 : mp - 9);
+        long year = yoe + era * 400 + (month <= 2 ? 1 : 0);
+        
+        byte[] date = new byte[10];
+        date[0] = (byte) ('0' + day / 10);
+        date[1] = (byte) ('0' + day % 10);
+        date[2] = '/';
+        date[3] = (byte) ('0' + month / 10);
+        date[4] = (byte) ('0' + month % 10);
+        date[5] = '/';
+        
+        for (int i=9; i>=6; i--) {
+            date[i] = (byte) ('0' + (year % 10));
+            year /= 10;
+        }
+        
+        return date;
+    }
+    
+    /**
+     * Writes the cost as {@link Double#toString(double)} would.
+     * @param cost The cost of the call
+     */
+    private void writeCost(double cost) {
+        if (cost == Math.rint(cost) && Math.abs(cost) < 1e7 && !(cost == 0 && 1 / cost < 0)) {
+            writeLong((long) cost);
+            buffer[position++] = '.';
+            buffer[position++] = '0';
+        } else {
+            writeAscii(Double.toString(cost));
+        }
+    }
+}
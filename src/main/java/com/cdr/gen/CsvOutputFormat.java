@@ -0,0 +1,27 @@
+package com.cdr.gen;
+
+import java.nio.channels.WritableByteChannel;
+import java.util.Map;
+
+/**
+ * Comma-separated text lines, written by {@link CsvCallWriter}.
+ * @author Maycon Viana Bordin <mayconbordin@gmail.com>
+ */
+public class CsvOutputFormat implements OutputFormat {
+    public static final String NAME = "csv";
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public String getExtension() {
+        return ".csv";
+    }
+
+    @Override
+    public CallWriter open(WritableByteChannel channel, Map<String, Object> config) {
+        return new CsvCallWriter(channel, CsvCallWriter.DEFAULT_BUFFER_SIZE, GeneratorConfig.getTimeZone(config));
+    }
+}
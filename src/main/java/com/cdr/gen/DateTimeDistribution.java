@@ -1,20 +1,27 @@
 package com.cdr.gen;
 
-import com.cdr.gen.util.RandomGaussian;
+import com.cdr.gen.util.AliasSampler;
 import com.cdr.gen.util.IOUtils;
 import com.cdr.gen.util.JavaUtils;
+import com.cdr.gen.util.MinuteBitmap;
+import com.cdr.gen.util.RandomGaussian;
+import com.cdr.gen.util.RandomSource;
+import com.cdr.gen.util.RandomSources;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.StringReader;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Random;
 import org.apache.log4j.Logger;
 import org.joda.time.DateTime;
+import org.joda.time.DateTimeConstants;
+import org.joda.time.DateTimeZone;
 import org.joda.time.Duration;
 import org.joda.time.Interval;
 import org.joda.time.LocalTime;
@@ -35,18 +42,46 @@ public class DateTimeDistribution {
     public static final String TYPE_WEEKDAY = "Weekday";
     public static final String TYPE_WEEKEND = "Weekend";
     
+    // indexed by the day of the week of Joda-Time modulo 7, see dayIndex(int)
     public static final String[] DAYS = new String[]{"sun", "mon", "tue", "wed", "thu", "fri", "sat"};
     
-    private Map<String, Object> outgoingCallParams;
-    private LocalTime offPeakStart;
-    private LocalTime offPeakEnd;
+    // the weights of the call starts are scaled to integers that add up to about 2^40
+    private static final double START_WEIGHT_SCALE = 1L << 40;
+    private static final long MILLIS_PER_MINUTE = 60 * 1000L;
+    
+    private GeneratorConfig config;
+    private MinuteBitmap offPeakMinutes;
     
     private Map<String, Double> dayDistribution;
     private List<Double> dayDistributionVals;
+    private AliasSampler daySampler;
     
     private Map<String, Map<String, Double>> timeDistribution;
     private Map<String, List<Double>> timeDistributionVals;
     
+    // the minute of the day of each time slot and its sampler, by type of day
+    private Map<String, int[]> timeSlots;
+    private Map<String, AliasSampler> timeSamplers;
+    
+    // the same, by day of the week, so that drawing a start doesn't look them up
+    private int[][] daySlots;
+    private AliasSampler[] daySamplers;
+    
+    // the calendar of each time zone, the first one is the zone of the configuration
+    private List<DateTimeZone> zones;
+    private TimeTable[] timeTables;
+    
+    // the prefixes of the phone numbers of the areas with their own time zone,
+    // longest first, and the index of their zone
+    private String[] areaPrefixes;
+    private int[] areaZones;
+    
+    // every start that can be drawn, in epoch minutes, and its weight, by zone
+    private long[][] startMinutes;
+    private long[][] startWeights;
+    
+    private CallRater rater;
+    
     private DateTimeFormatter dateFormatter;
     private DateTimeFormatter dateTimeFormatter;
     
@@ -54,47 +89,107 @@ public class DateTimeDistribution {
     private DateTime endDate;
     private int dateRange;
     
-    private Random random;
+    private RandomSource random;
 
     public DateTimeDistribution(Map<String, Object> config) {
-        outgoingCallParams = (Map<String, Object>) config.get("outgoingCallParams");
+        this(new GeneratorConfig(config));
+    }
+
+    public DateTimeDistribution(GeneratorConfig config) {
+        this.config = config;
+        offPeakMinutes = config.getOffPeakMinutes();
 
-        loadOffPeakTimePeriod((Map<String, String>) config.get("offPeakTimePeriod"));
-        loadDayDist((Map<String, Double>) config.get("dayDistribution"));
+        loadDayDist(config.getDayProbabilities());
         
-        dateFormatter = DateTimeFormat.forPattern("dd/MM/yyyy");
+        dateFormatter = DateTimeFormat.forPattern("dd/MM/yyyy").withZone(config.getTimeZone());
         dateTimeFormatter = DateTimeFormat.forPattern("dd/MM/yyyy HH:mm");
         
-        startDate = dateFormatter.parseDateTime((String)config.get("startDate"));
-        endDate = dateFormatter.parseDateTime((String)config.get("endDate"));
+        startDate = dateFormatter.parseDateTime(config.getStartDate());
+        endDate = dateFormatter.parseDateTime(config.getEndDate());
         
         Interval interval = new Interval(startDate, endDate);
         Duration duration = interval.toDuration();
         
         dateRange = duration.toStandardDays().getDays();
+        loadZones(config);
         
-        random = new Random(System.currentTimeMillis());
+        random = RandomSources.fromConfig(config.getOptions());
         
-        String timeDistFile = config.containsKey("timeDistCsv") 
-                ? (String)config.get("timeDistCsv") : TIME_DIST_CSV;
+        String timeDistFile = config.getOptions().containsKey("timeDistCsv") 
+                ? (String)config.getOptions().get("timeDistCsv") : TIME_DIST_CSV;
         
         loadTimeDist(timeDistFile);
     }
     
+    /**
+     * Loads the time zone of the configuration and the ones of the areas, whose
+     * customers make their calls following their local time.
+     * @param config The configuration of the generator
+     */
+    private void loadZones(GeneratorConfig config) {
+        zones = new ArrayList<DateTimeZone>();
+        zones.add(config.getTimeZone());
+        
+        List<String> prefixes = new ArrayList<String>(config.getAreaTimeZones().keySet());
+        Collections.sort(prefixes, (a, b) -> b.length() - a.length());
+        
+        areaPrefixes = prefixes.toArray(new String[prefixes.size()]);
+        areaZones = new int[areaPrefixes.length];
+        
+        for (int i=0; i<areaPrefixes.length; i++) {
+            DateTimeZone zone = config.getAreaTimeZones().get(areaPrefixes[i]);
+            
+            if (!zones.contains(zone)) {
+                zones.add(zone);
+            }
+            areaZones[i] = zones.indexOf(zone);
+        }
+        
+        buildTimeTables();
+    }
+    
+    private void buildTimeTables() {
+        timeTables = new TimeTable[zones.size()];
+        
+        for (int i=0; i<timeTables.length; i++) {
+            DateTime zoneStart = startDate.toLocalDate().toDateTimeAtStartOfDay(zones.get(i));
+            timeTables[i] = new TimeTable(zoneStart, dateRange, offPeakMinutes, config.getHolidays());
+        }
+        
+        rater = new TariffRater(config, offPeakMinutes);
+    }
+    
     public void loadDayDist(Map<String, Double> params) {
+        double[] probs = new double[DAYS.length];
+        
+        for (int i=0; i<DAYS.length; i++) {
+            probs[i] = params.get(DAYS[i]);
+        }
+        
+        loadDayDist(probs);
+    }
+    
+    /**
+     * @param probs The probability of each day of {@link #DAYS}
+     */
+    private void loadDayDist(double[] probs) {
         dayDistribution = new HashMap<String, Double>(DAYS.length);
         dayDistributionVals = new ArrayList<Double>(DAYS.length);
         
-        for (String day : DAYS) {
-            dayDistribution.put(day, params.get(day));
-            dayDistributionVals.add(params.get(day));
+        for (int i=0; i<DAYS.length; i++) {
+            dayDistribution.put(DAYS[i], probs[i]);
+            dayDistributionVals.add(probs[i]);
         }
+        
+        daySampler = new AliasSampler(probs);
     }
     
     public void loadTimeDist(String filename) {
         timeDistribution = new HashMap<String, Map<String, Double>>();
         timeDistributionVals = new HashMap<String, List<Double>>();
         
+        Map<String, List<Integer>> minutes = new HashMap<String, List<Integer>>();
+        
         try {
             ICsvListReader listReader;
             
@@ -127,13 +222,19 @@ public class DateTimeDistribution {
                 
                 if (!timeDistributionVals.containsKey(type)) {
                     timeDistributionVals.put(type, new ArrayList<Double>());
+                    minutes.put(type, new ArrayList<Integer>());
                 }
 
                 timeDistribution.get(type).put(time, prob);
                 timeDistributionVals.get(type).add(prob);
+                
+                String[] timeStr = time.split(":");
+                minutes.get(type).add(Integer.parseInt(timeStr[0]) * 60 + Integer.parseInt(timeStr[1]));
             }
 
             listReader.close();
+            
+            buildTimeSamplers(minutes);
         }  catch (FileNotFoundException ex) {
             LOG.error("Unable to find time distribution file.", ex);
         } catch (IOException ex) {
@@ -141,20 +242,214 @@ public class DateTimeDistribution {
         }
     }
     
+    /**
+     * Builds the samplers of the time slots of each type of day, so that a time
+     * can be drawn in constant time.
+     * @param minutes The minute of the day of each time slot, by type of day
+     */
+    private void buildTimeSamplers(Map<String, List<Integer>> minutes) {
+        timeSlots = new HashMap<String, int[]>();
+        timeSamplers = new HashMap<String, AliasSampler>();
+        
+        for (Map.Entry<String, List<Double>> e : timeDistributionVals.entrySet()) {
+            List<Integer> slotMinutes = minutes.get(e.getKey());
+            int[] slots = new int[slotMinutes.size()];
+            double[] probs = new double[slots.length];
+            
+            for (int i=0; i<slots.length; i++) {
+                slots[i] = slotMinutes.get(i);
+                probs[i] = e.getValue().get(i);
+            }
+            
+            timeSlots.put(e.getKey(), slots);
+            timeSamplers.put(e.getKey(), new AliasSampler(probs));
+        }
+        
+        daySlots = new int[8][];
+        daySamplers = new AliasSampler[8];
+        
+        for (int dayOfWeek=1; dayOfWeek<=7; dayOfWeek++) {
+            daySlots[dayOfWeek] = timeSlots.get(getDayType(dayOfWeek));
+            daySamplers[dayOfWeek] = timeSamplers.get(getDayType(dayOfWeek));
+        }
+        
+        if (startDate != null) {
+            startMinutes = new long[timeTables.length][];
+            startWeights = new long[timeTables.length][];
+            
+            for (int i=0; i<timeTables.length; i++) {
+                buildStartTable(i);
+            }
+        }
+    }
+    
+    /**
+     * Builds the table of every start that {@link #getDayOfWeek(RandomSource)}
+     * and {@link #getStartMinute(RandomSource, TimeTable, int)} can draw in a
+     * time zone, with the probability of the day of the week times the probability
+     * of the time slot.
+     * @param zone The index of the time zone
+     */
+    private void buildStartTable(int zone) {
+        TimeTable table = timeTables[zone];
+        int numWeeks = Math.max(1, dateRange / 7);
+        int firstDay = 1 - startDate.getDayOfWeek();
+        
+        int numStarts = 0;
+        for (int k=0; k<DAYS.length; k++) {
+            numStarts += numWeeks * daySlots[table.getDayName(firstDay + k)].length;
+        }
+        
+        long[] minutes = new long[numStarts];
+        double[] probs = new double[numStarts];
+        double dayTotal = 0, sum = 0;
+        int n = 0;
+        
+        for (double p : dayDistributionVals) {
+            dayTotal += p;
+        }
+        
+        for (int day=firstDay; day<firstDay + numWeeks * 7; day++) {
+            String type = getDayType(table.getDayName(day));
+            int[] slots = timeSlots.get(type);
+            List<Double> slotProbs = timeDistributionVals.get(type);
+            
+            double slotTotal = 0;
+            for (double p : slotProbs) {
+                slotTotal += p;
+            }
+            
+            double dayProb = dayDistributionVals.get(dayIndex(table.getDayName(day))) / dayTotal;
+            
+            for (int i=0; i<slots.length; i++) {
+                minutes[n] = table.getStart(day, slots[i]);
+                probs[n] = dayProb * slotProbs.get(i) / slotTotal;
+                sum += probs[n++];
+            }
+        }
+        
+        // sorted by minute, the slots of a day may not be sorted
+        Integer[] order = new Integer[numStarts];
+        for (int i=0; i<numStarts; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Long.compare(minutes[a], minutes[b]));
+        
+        startMinutes[zone] = new long[numStarts];
+        startWeights[zone] = new long[numStarts];
+        
+        for (int i=0; i<numStarts; i++) {
+            startMinutes[zone][i] = minutes[order[i]];
+            startWeights[zone][i] = Math.round(probs[order[i]] / sum * START_WEIGHT_SCALE);
+        }
+    }
+    
     public void loadOffPeakTimePeriod(Map<String, String> params) {
         String offPeak = params.get("start");
         String[] offPeakTime = offPeak.split(":");
-        offPeakStart = new LocalTime(Integer.parseInt(offPeakTime[0]), Integer.parseInt(offPeakTime[1]));
+        int offPeakStart = Integer.parseInt(offPeakTime[0]) * 60 + Integer.parseInt(offPeakTime[1]);
         
         offPeak = params.get("end");
         offPeakTime = offPeak.split(":");
-        offPeakEnd = new LocalTime(Integer.parseInt(offPeakTime[0]), Integer.parseInt(offPeakTime[1]));
+        int offPeakEnd = Integer.parseInt(offPeakTime[0]) * 60 + Integer.parseInt(offPeakTime[1]);
+        
+        offPeakMinutes = new MinuteBitmap(offPeakStart, offPeakEnd);
+        
+        if (startDate != null) {
+            buildTimeTables();
+        }
     }
     
     public int size() {
         return dayDistribution.size();
     }
     
+    /**
+     * @param dayName The day of the week, as given by {@link DateTime#getDayOfWeek()}
+     * @return The type of time distribution of the day: {@link #TYPE_WEEKDAY} or {@link #TYPE_WEEKEND}
+     */
+    public static String getDayType(int dayName) {
+        return isWeekend(dayName) ? TYPE_WEEKEND : TYPE_WEEKDAY;
+    }
+    
+    /**
+     * @param dayName The day of the week, as given by {@link DateTime#getDayOfWeek()}
+     * @return True if the day follows the weekend time distribution and is
+     *         charged at the off peak rate
+     */
+    public static boolean isWeekend(int dayName) {
+        return dayName == DateTimeConstants.SATURDAY || dayName == DateTimeConstants.SUNDAY;
+    }
+    
+    /**
+     * @param dayName The day of the week, as given by {@link DateTime#getDayOfWeek()}
+     * @return The index of the day in {@link #DAYS}, Sunday is 0
+     */
+    public static int dayIndex(int dayName) {
+        return dayName % 7;
+    }
+    
+    /**
+     * @return The calendar of the period of the calls in the time zone of the
+     *         configuration
+     */
+    public TimeTable getTimeTable() {
+        return timeTables[0];
+    }
+    
+    /**
+     * @param zone The index of the time zone, see {@link #getZoneOf(String)}
+     * @return The calendar of the period of the calls in the time zone
+     */
+    public TimeTable getTimeTable(int zone) {
+        return timeTables[zone];
+    }
+    
+    /**
+     * @param phoneNumber The phone number of a customer
+     * @return The index of the time zone of the customer, 0 for the time zone
+     *         of the configuration
+     */
+    public int getZoneOf(String phoneNumber) {
+        for (int i=0; i<areaPrefixes.length; i++) {
+            if (phoneNumber.startsWith(areaPrefixes[i]))
+                return areaZones[i];
+        }
+        return 0;
+    }
+    
+    /**
+     * @return Every start of a call that can be drawn, in epoch minutes, sorted
+     */
+    public long[] getStartMinutes() {
+        return startMinutes[0];
+    }
+    
+    /**
+     * @param zone The index of the time zone
+     * @return Every start of a call that can be drawn in the time zone, in epoch
+     *         minutes, sorted
+     */
+    public long[] getStartMinutes(int zone) {
+        return startMinutes[zone];
+    }
+    
+    /**
+     * @return The weight of each start of {@link #getStartMinutes()}, proportional
+     *         to its probability
+     */
+    public long[] getStartWeights() {
+        return startWeights[0];
+    }
+    
+    /**
+     * @param zone The index of the time zone
+     * @return The weight of each start of {@link #getStartMinutes(int)}
+     */
+    public long[] getStartWeights(int zone) {
+        return startWeights[zone];
+    }
+    
     public Double getVal(int i) {
         return dayDistributionVals.get(i);
     }
@@ -166,55 +461,66 @@ public class DateTimeDistribution {
      * @return The date of the phone call
      */
     public DateTime getDateTime(String type,  int currDay) {
-        double tmpRnd = 1;
-        
-        while (tmpRnd > 0) {
-            tmpRnd = random.nextDouble();
-            
-            for (Map.Entry<String, Double> e : timeDistribution.get(type).entrySet()) {
-                if (tmpRnd - e.getValue() > 0) {
-                    tmpRnd -= e.getValue();
-                } else {
-                    DateTime date = startDate.plusDays(currDay);
-                    String[] timeStr = e.getKey().split(":");
-                    date = date.plusHours(Integer.parseInt(timeStr[0]))
-                               .plusMinutes(Integer.parseInt(timeStr[1]));
-                    return date;
-                }
-            }
-        }
+        return getDateTime(random, type, currDay);
+    }
+    
+    /**
+     * Generates a random {@link DateTime} for a phone call.
+     * @param random The random number generator
+     * @param type The type of time distribution: {@link #TYPE_WEEKDAY} or {@link #TYPE_WEEKEND}
+     * @param currDay The day of the call, generated by {@link #getDayOfWeek()}
+     * @return The date of the phone call
+     */
+    public DateTime getDateTime(RandomSource random, String type,  int currDay) {
+        int minute = timeSlots.get(type)[timeSamplers.get(type).sample(random)];
         
-        return null;
+        return startDate.plusDays(currDay)
+                        .plusHours(minute / 60)
+                        .plusMinutes(minute % 60);
+    }
+    
+    /**
+     * Draws the start of a phone call, with the time distribution of its day.
+     * @param random The random number generator
+     * @param currDay The day of the call, generated by {@link #getDayOfWeek()}
+     * @return The start of the call, in epoch minutes
+     */
+    public long getStartMinute(RandomSource random, int currDay) {
+        return getStartMinute(random, timeTables[0], currDay);
+    }
+    
+    /**
+     * Draws the start of a phone call, with the time distribution of its day
+     * in the local time of the customer.
+     * @param random The random number generator
+     * @param table The calendar of the time zone of the customer
+     * @param currDay The day of the call, generated by {@link #getDayOfWeek()}
+     * @return The start of the call, in epoch minutes
+     */
+    public long getStartMinute(RandomSource random, TimeTable table, int currDay) {
+        int dayOfWeek = table.getDayName(currDay);
+        return table.getStart(currDay, daySlots[dayOfWeek][daySamplers[dayOfWeek].sample(random)]);
     }
     
     /**
      * Generates a random duration for a phone call based on the given average.
-     * @param dayName A number between 1 and 7, corresponding to the day of the week,
-     *                starting with Sunday.
-     * @param callType The type of the call, as defined in the configuration file
-     * @param callTime The time portion of the phone call
+     * @param random The random number generator
+     * @param table The calendar of the time zone of the customer
+     * @param startMinute The start of the call, in epoch minutes
+     * @param callType The ordinal of the type of the call
      * @param avgCallDuration The average duration of a call of this callType
      * @param avgOPCallDuration The average duration of a call of this callType in off peak
      * @return The duration of the call in minutes
      */
-    public int getCallDuration(int dayName, String callType, LocalTime callTime, long avgCallDuration, long avgOPCallDuration) {
-        String stdDevParam;
-        long average = avgCallDuration;
-        Map<String, Object> params = (Map<String, Object>) outgoingCallParams.get(callType);
-        
-        // Weekend
-        // or within offPeak time period
-        if ((dayName == 1 || dayName == 7) || 
-                (callTime.compareTo(offPeakStart) >= 0 
-                && callTime.compareTo(offPeakEnd) <= 0)) {
-            stdDevParam = "callOPStdDev2";
-            average = avgOPCallDuration;
-        } else {
-            stdDevParam = "callStdDev2";
-        }
+    public int getCallDuration(RandomSource random, TimeTable table, long startMinute, int callType, long avgCallDuration, long avgOPCallDuration) {
+        return getCallDuration(random, table.isOffPeak(startMinute), callType, avgCallDuration, avgOPCallDuration);
+    }
+    
+    private int getCallDuration(RandomSource random, boolean offPeak, int callType, long avgCallDuration, long avgOPCallDuration) {
+        long average = offPeak ? avgOPCallDuration : avgCallDuration;
         
-        return Math.abs(RandomGaussian.generate(
-                (Long)params.get(stdDevParam), average)
+        return Math.abs(RandomGaussian.generate(random,
+                config.getCallStdDev2(callType, offPeak), average)
                 .getValueOne().intValue());
     }
     
@@ -223,49 +529,33 @@ public class DateTimeDistribution {
      * @return The day of the phone call
      */
     public int getDayOfWeek() {
-        double tmpRnd = 1;
-        int currWeek;
-        
-        while (tmpRnd > 0) {
-            tmpRnd = random.nextDouble();
-            
-            for (int k=0; k<size(); k++) {
-                if (tmpRnd - getVal(k) > 0) {
-                    tmpRnd -= getVal(k);
-                } else {
-                    currWeek = (int) (random.nextDouble() * (dateRange / 7));
-                    return (currWeek * 7 - startDate.getDayOfWeek()) + (k+1);
-                }
-            }
-        }
+        return getDayOfWeek(random);
+    }
+    
+    /**
+     * Generate a random day for the phone call
+     * @param random The random number generator
+     * @return The day of the phone call
+     */
+    public int getDayOfWeek(RandomSource random) {
+        int k = daySampler.sample(random);
+        int currWeek = (int) (random.nextDouble() * (dateRange / 7));
+        int dayName = (k == 0) ? DateTimeConstants.SUNDAY : k;
         
-        return 1;
+        // the weeks start on the monday of the week of the start date
+        return (currWeek * 7 - startDate.getDayOfWeek()) + dayName;
     }
     
     /**
      * Get the cost for the call based on the type, duration and time period of
-     * the call.
+     * the call, in the local time of the customer.
      * @param call The call to have its cost calculated, it remains unchanged.
+     * @param callType The ordinal of the type of the call
+     * @param table The calendar of the time zone of the customer
      * @return The cost of the call
      */
-    public double getCallCost(Call call) {
-        int dayOfWeek = call.getTime().getStart().getDayOfWeek();
-        int duration = call.getTime().toDuration().toStandardMinutes().getMinutes();
-        LocalTime startTime = call.getTime().getStart().toLocalTime();
-        
-        Map<String, Object> params = (Map<String, Object>) outgoingCallParams.get(call.getType());
-        String callCostParam;
-        
-        if ((dayOfWeek == 1 || dayOfWeek == 7) || 
-                (startTime.compareTo(offPeakStart) >= 0 
-                && startTime.compareTo(offPeakEnd) <= 0)) {
-            callCostParam = "callOPCost";
-        } else {
-            callCostParam = "callCost";
-        }
-        
-        long cost = (Long) params.get(callCostParam);
-        return duration * cost;
+    public double getCallCost(Call call, int callType, TimeTable table) {
+        return rater.rate(call, callType, table);
     }
 
     public DateTime getStartDate() {
@@ -275,4 +565,116 @@ public class DateTimeDistribution {
     public DateTime getEndDate() {
         return endDate;
     }
+    
+    // the older forms of the durations and costs, which use the time zone of the
+    // configuration or don't know the date of the call
+    
+    /**
+     * Generates a random duration for a phone call based on the given average.
+     * @param dayName The day of the week, as given by {@link DateTime#getDayOfWeek()}
+     * @param callType The type of the call, as defined in the configuration file
+     * @param callTime The time portion of the phone call
+     * @param avgCallDuration The average duration of a call of this callType
+     * @param avgOPCallDuration The average duration of a call of this callType in off peak
+     * @return The duration of the call in minutes, off peak only on weekends or
+     *         within the off peak time period, the holidays are not known
+     * @deprecated The day of the week doesn't tell the holidays apart, use
+     *             {@link #getCallDuration(RandomSource, TimeTable, long, int, long, long)}
+     */
+    @Deprecated
+    public int getCallDuration(int dayName, String callType, LocalTime callTime, long avgCallDuration, long avgOPCallDuration) {
+        return getCallDuration(random, dayName, config.ordinalOf(callType), callTime, avgCallDuration, avgOPCallDuration);
+    }
+    
+    /**
+     * Generates a random duration for a phone call based on the given average.
+     * @param random The random number generator
+     * @param dayName The day of the week, as given by {@link DateTime#getDayOfWeek()}
+     * @param callType The type of the call, as defined in the configuration file
+     * @param callTime The time portion of the phone call
+     * @param avgCallDuration The average duration of a call of this callType
+     * @param avgOPCallDuration The average duration of a call of this callType in off peak
+     * @return The duration of the call in minutes, off peak only on weekends or
+     *         within the off peak time period, the holidays are not known
+     * @deprecated The day of the week doesn't tell the holidays apart, use
+     *             {@link #getCallDuration(RandomSource, TimeTable, long, int, long, long)}
+     */
+    @Deprecated
+    public int getCallDuration(RandomSource random, int dayName, String callType, LocalTime callTime, long avgCallDuration, long avgOPCallDuration) {
+        return getCallDuration(random, dayName, config.ordinalOf(callType), callTime, avgCallDuration, avgOPCallDuration);
+    }
+    
+    /**
+     * Generates a random duration for a phone call based on the given average.
+     * @param random The random number generator
+     * @param dayName The day of the week, as given by {@link DateTime#getDayOfWeek()}
+     * @param callType The ordinal of the type of the call, see {@link GeneratorConfig#ordinalOf(String)}
+     * @param callTime The time portion of the phone call
+     * @param avgCallDuration The average duration of a call of this callType
+     * @param avgOPCallDuration The average duration of a call of this callType in off peak
+     * @return The duration of the call in minutes, off peak only on weekends or
+     *         within the off peak time period, the holidays are not known
+     * @deprecated The day of the week doesn't tell the holidays apart, use
+     *             {@link #getCallDuration(RandomSource, TimeTable, long, int, long, long)}
+     */
+    @Deprecated
+    public int getCallDuration(RandomSource random, int dayName, int callType, LocalTime callTime, long avgCallDuration, long avgOPCallDuration) {
+        boolean offPeak = isOffPeak(dayName, callTime.getMillisOfDay() / MILLIS_PER_MINUTE);
+        return getCallDuration(random, offPeak, callType, avgCallDuration, avgOPCallDuration);
+    }
+    
+    /**
+     * Generates a random duration for a phone call based on the given average,
+     * in the time zone of the configuration.
+     * @param random The random number generator
+     * @param startMinute The start of the call, in epoch minutes
+     * @param callType The ordinal of the type of the call
+     * @param avgCallDuration The average duration of a call of this callType
+     * @param avgOPCallDuration The average duration of a call of this callType in off peak
+     * @return The duration of the call in minutes
+     * @deprecated Use {@link #getCallDuration(RandomSource, TimeTable, long, int, long, long)}
+     *             with the calendar of the customer
+     */
+    @Deprecated
+    public int getCallDuration(RandomSource random, long startMinute, int callType, long avgCallDuration, long avgOPCallDuration) {
+        return getCallDuration(random, timeTables[0], startMinute, callType, avgCallDuration, avgOPCallDuration);
+    }
+    
+    /**
+     * Get the cost for the call based on the type, duration and time period of
+     * the call, in the time zone of the configuration.
+     * @param call The call to have its cost calculated, it remains unchanged.
+     * @return The cost of the call
+     * @deprecated Use {@link #getCallCost(Call, int, TimeTable)} with the calendar of the customer
+     */
+    @Deprecated
+    public double getCallCost(Call call) {
+        return getCallCost(call, config.ordinalOf(call.getType()), timeTables[0]);
+    }
+    
+    /**
+     * Get the cost for the call based on the type, duration and time period of
+     * the call, in the time zone of the configuration.
+     * @param call The call to have its cost calculated, it remains unchanged.
+     * @param callType The ordinal of the type of the call
+     * @return The cost of the call
+     * @deprecated Use {@link #getCallCost(Call, int, TimeTable)} with the calendar of the customer
+     */
+    @Deprecated
+    public double getCallCost(Call call, int callType) {
+        return getCallCost(call, callType, timeTables[0]);
+    }
+    
+    /**
+     * @param dayName The day of the week, as given by {@link DateTime#getDayOfWeek()}
+     * @param minuteOfDay The minute of the day
+     * @return True if the minute is charged at the off peak rate: on weekends
+     *         or within the off peak time period, the holidays are not known
+     * @deprecated The day of the week doesn't tell the holidays apart, use
+     *             {@link TimeTable#isOffPeak(long)}
+     */
+    @Deprecated
+    public boolean isOffPeak(int dayName, long minuteOfDay) {
+        return timeTables[0].isOffPeak(dayName, (int) minuteOfDay);
+    }
 }
@@ -0,0 +1,272 @@
+package com.cdr.gen;
+
+import com.cdr.gen.util.LongHistogram;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import org.apache.log4j.Logger;
+
+/**
+ * The progress of the creation of a population: how many customers and calls
+ * were created and how fast, how many times the time of a call had to be drawn
+ * again because it overlapped another call, how many gaussian values were
+ * rejected and how many bytes the sink wrote.
+ *
+ * The counters are updated by the workers once per call or customer, with
+ * {@link LongAdder}s so that they don't contend, and can be read from any thread.
+ *
+ * @author Maycon Viana Bordin <mayconbordin@gmail.com>
+ */
+public class GenerationMetrics implements GenerationMetricsMXBean {
+    private static final Logger LOG = Logger.getLogger(GenerationMetrics.class);
+    private static final AtomicInteger RUNS = new AtomicInteger();
+    
+    private final LongAdder customers = new LongAdder();
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder overlapRetries = new LongAdder();
+    private final LongAdder freeStartPlacements = new LongAdder();
+    private final LongAdder droppedCalls = new LongAdder();
+    private final LongAdder gaussianDraws = new LongAdder();
+    private final LongAdder gaussianRejections = new LongAdder();
+    private final LongHistogram callsPerCustomer = new LongHistogram();
+    private final LongHistogram retriesPerCall = new LongHistogram();
+    
+    private volatile long totalCustomers;
+    private volatile long startNanos = System.nanoTime();
+    private volatile long stopNanos;
+    private volatile LongSupplier bytesWritten = () -> 0;
+    private ObjectName name;
+    
+    /**
+     * Called when the creation starts, registers the metrics in the platform MBean server.
+     * @param totalCustomers The number of customers to be created
+     * @param sink The sink of the customers, for the number of bytes written
+     */
+    void start(long totalCustomers, CallSink sink) {
+        this.totalCustomers = totalCustomers;
+        this.bytesWritten = sink::getBytesWritten;
+        startNanos = System.nanoTime();
+        stopNanos = 0;
+        
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            name = new ObjectName("com.cdr.gen:type=GenerationMetrics,run=" + RUNS.incrementAndGet());
+            server.registerMBean(this, name);
+        } catch (JMException ex) {
+            LOG.warn("Unable to register the generation metrics.", ex);
+            name = null;
+        }
+    }
+    
+    /**
+     * Called when the creation ends, unregisters the metrics.
+     */
+    void stop() {
+        stopNanos = System.nanoTime();
+        
+        if (name == null)
+            return;
+        
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+        } catch (JMException ex) {
+            LOG.warn("Unable to unregister the generation metrics.", ex);
+        }
+        name = null;
+    }
+    
+    /**
+     * @param created The customers of a chunk, with their calls
+     * @param terminatingRecords The number of terminating records created for other customers
+     */
+    void chunkCreated(List<Person> created, long terminatingRecords) {
+        long numCalls = terminatingRecords;
+        
+        for (Person p : created) {
+            callsPerCustomer.record(p.getCalls().size());
+            numCalls += p.getCalls().size();
+        }
+        
+        customers.add(created.size());
+        calls.add(numCalls);
+    }
+    
+    /**
+     * @param retries The number of times the time of a call was drawn again
+     */
+    void callTimed(int retries) {
+        retriesPerCall.record(retries);
+        
+        if (retries > 0)
+            overlapRetries.add(retries);
+    }
+    
+    /**
+     * Called when a call is placed at one of the free starts of the calendar,
+     * after too many draws collided with other calls.
+     */
+    void callPlacedInFreeStart() {
+        freeStartPlacements.increment();
+    }
+    
+    /**
+     * Called when a call is dropped because the calendar of the customer is full.
+     */
+    void callDropped() {
+        droppedCalls.increment();
+    }
+    
+    /**
+     * @param draws The number of pairs of gaussian values drawn
+     */
+    void gaussianDrawn(int draws) {
+        gaussianDraws.add(draws);
+        
+        if (draws > 1)
+            gaussianRejections.add(draws - 1);
+    }
+    
+    @Override
+    public long getCustomers() {
+        return customers.sum();
+    }
+    
+    @Override
+    public long getTotalCustomers() {
+        return totalCustomers;
+    }
+    
+    @Override
+    public long getCalls() {
+        return calls.sum();
+    }
+    
+    /**
+     * @return The bytes written by the sink, before compression
+     */
+    @Override
+    public long getBytesWritten() {
+        return bytesWritten.getAsLong();
+    }
+    
+    @Override
+    public long getOverlapRetries() {
+        return overlapRetries.sum();
+    }
+    
+    @Override
+    public long getFreeStartPlacements() {
+        return freeStartPlacements.sum();
+    }
+    
+    @Override
+    public long getDroppedCalls() {
+        return droppedCalls.sum();
+    }
+    
+    @Override
+    public long getGaussianRejections() {
+        return gaussianRejections.sum();
+    }
+    
+    @Override
+    public double getElapsedSeconds() {
+        long end = (stopNanos != 0) ? stopNanos : System.nanoTime();
+        return (end - startNanos) / (double) TimeUnit.SECONDS.toNanos(1);
+    }
+    
+    @Override
+    public double getCustomersPerSecond() {
+        return rate(getCustomers());
+    }
+    
+    @Override
+    public double getCallsPerSecond() {
+        return rate(getCalls());
+    }
+    
+    @Override
+    public double getBytesPerSecond() {
+        return rate(getBytesWritten());
+    }
+    
+    @Override
+    public double getRetriesPerCall() {
+        long timed = retriesPerCall.getCount();
+        return timed > 0 ? getOverlapRetries() / (double) timed : 0;
+    }
+    
+    /**
+     * @return The fraction of the pairs of gaussian values rejected for being below one
+     */
+    @Override
+    public double getGaussianRejectionRate() {
+        long draws = gaussianDraws.sum();
+        return draws > 0 ? getGaussianRejections() / (double) draws : 0;
+    }
+    
+    /**
+     * @return The estimated time left, from the average rate of customers so far,
+     *         or -1 if it is not known yet
+     */
+    @Override
+    public double getEtaSeconds() {
+        double rate = getCustomersPerSecond();
+        return rate > 0 ? Math.max(0, totalCustomers - getCustomers()) / rate : -1;
+    }
+    
+    /**
+     * @return The counts of customers by number of calls, see {@link LongHistogram}
+     */
+    @Override
+    public long[] getCallsPerCustomerHistogram() {
+        return callsPerCustomer.getCounts();
+    }
+    
+    /**
+     * @return The counts of calls by number of retries, see {@link LongHistogram}
+     */
+    @Override
+    public long[] getRetriesPerCallHistogram() {
+        return retriesPerCall.getCounts();
+    }
+    
+    /**
+     * @return The histogram of the number of calls of each customer
+     */
+    public LongHistogram getCallCounts() {
+        return callsPerCustomer;
+    }
+    
+    /**
+     * @return The histogram of the number of retries of each call
+     */
+    public LongHistogram getRetryCounts() {
+        return retriesPerCall;
+    }
+    
+    private double rate(long count) {
+        double seconds = getElapsedSeconds();
+        return seconds > 0 ? count / seconds : 0;
+    }
+    
+    @Override
+    public String toString() {
+        long done = getCustomers();
+        double eta = getEtaSeconds();
+        
+        return String.format("%d/%d customers (%.1f%%), %.0f customers/s, %.0f calls/s, %.2f MB/s, "
+                + "%.3f retries/call (p99 %d), %d placed in free starts, %d dropped, "
+                + "%.1f%% gaussian rejections, ETA %s", done, totalCustomers,
+                totalCustomers > 0 ? 100.0 * done / totalCustomers : 100.0, getCustomersPerSecond(),
+                getCallsPerSecond(), getBytesPerSecond() / (1 << 20), getRetriesPerCall(),
+                retriesPerCall.getQuantile(0.99), getFreeStartPlacements(), getDroppedCalls(),
+                100 * getGaussianRejectionRate(), eta < 0 ? "unknown" : String.format("%.0fs", eta));
+    }
+}
@@ -0,0 +1,43 @@
+package com.cdr.gen;
+
+/**
+ * The management interface of {@link GenerationMetrics}, registered under
+ * <code>com.cdr.gen:type=GenerationMetrics</code> while a population is created.
+ *
+ * @author Maycon Viana Bordin <mayconbordin@gmail.com>
+ */
+public interface GenerationMetricsMXBean {
+    long getCustomers();
+    
+    long getTotalCustomers();
+    
+    long getCalls();
+    
+    long getBytesWritten();
+    
+    long getOverlapRetries();
+    
+    long getFreeStartPlacements();
+    
+    long getDroppedCalls();
+    
+    long getGaussianRejections();
+    
+    double getElapsedSeconds();
+    
+    double getCustomersPerSecond();
+    
+    double getCallsPerSecond();
+    
+    double getBytesPerSecond();
+    
+    double getRetriesPerCall();
+    
+    double getGaussianRejectionRate();
+    
+    double getEtaSeconds();
+    
+    long[] getCallsPerCustomerHistogram();
+    
+    long[] getRetriesPerCallHistogram();
+}
@@ -0,0 +1,904 @@
+package com.cdr.gen;
+
+import com.cdr.gen.util.MinuteBitmap;
+import com.cdr.gen.util.RandomSources;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.joda.time.LocalDate;
+import org.joda.time.format.DateTimeFormat;
+import org.joda.time.format.DateTimeFormatter;
+
+/**
+ * The configuration of the generator compiled from the JSON configuration, so
+ * that the generation reads the parameters of the call types from primitive
+ * arrays indexed by the ordinal of the call type, its index in <code>callTypes</code>,
+ * instead of looking up strings in maps on every call.
+ *
+ * The configuration is validated when it is compiled: missing options, values
+ * of the wrong type, probabilities that don't add up to 1 and gaussian parameters
+ * that would never draw a value of at least 1 are rejected with an
+ * {@link IllegalArgumentException} that names the option. Probabilities that add
+ * up to 1 within {@link #PROBABILITY_TOLERANCE} are normalized.
+ *
+ * The options of the run, like the <code>threads</code>, the sorting, sharding,
+ * <code>live</code> and <code>checkpoint</code> options, are compiled and validated
+ * in the same way, with their defaults. The options of the output format, its
+ * compression and the random number generator are still read from {@link #getOptions()}.
+ *
+ * @author Maycon Viana Bordin <mayconbordin@gmail.com>
+ */
+public class GeneratorConfig {
+    public static final double PROBABILITY_TOLERANCE = 0.01;
+    
+    /**
+     * The call types that are only received, so by default calls from outside
+     * the population are never of these types.
+     */
+    public static final List<String> NON_ORIGINATING_TYPES = Collections.unmodifiableList(Arrays.asList("Free", "PRS"));
+    
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormat.forPattern("dd/MM/yyyy").withZoneUTC();
+    
+    private final Map<String, Object> options;
+    private final List<String> callTypes;
+    private final Map<String, Integer> ordinals = new HashMap<String, Integer>();
+    private final int numAccounts;
+    
+    private final long callsMadeMean;
+    private final long callsMadeStdDev;
+    private final boolean hasIncomingCalls;
+    private final long incomingCallsMean;
+    private final long incomingCallsStdDev;
+    private final long phoneLinesMean;
+    private final long phoneLinesStdDev;
+    
+    // the parameters of the call types, by ordinal
+    private final long[] callCost;
+    private final long[] callDur;
+    private final long[] callStdDev;
+    private final long[] callStdDev2;
+    private final long[] callOPCost;
+    private final long[] callOPDur;
+    private final long[] callOPStdDev;
+    private final long[] callOPStdDev2;
+    private final double[] callProb;
+    private final double[] incomingProb;
+    private final long[] numberMeans;
+    private final long[] numberStdDevs;
+    
+    private final double[] dayProbs;
+    private final MinuteBitmap offPeakMinutes = new MinuteBitmap();
+    private final String startDate;
+    private final String endDate;
+    private final DateTimeZone timeZone;
+    private final Map<String, DateTimeZone> areaTimeZones = new LinkedHashMap<String, DateTimeZone>();
+    
+    private final String billing;
+    private final int blockSeconds;
+    private final boolean splitBands;
+    private final List<LocalDate> holidays = new ArrayList<LocalDate>();
+    
+    private final int threads;
+    private final int chunkSize;
+    private final int maxPlacementRetries;
+    private final long progressInterval;
+    private final String partition;
+    
+    private final boolean hasSubscriberDirectory;
+    private final double locality;
+    private final int neighbourAreas;
+    private final double attachment;
+    
+    private final String sortBy;
+    private final int sortBufferCalls;
+    private final int sortMergeFactor;
+    private final String sortTempDir;
+    
+    private final boolean sharded;
+    private final int shards;
+    private final String partitionBy;
+    private final int maxOpenShards;
+    
+    private final boolean live;
+    private final double liveRate;
+    private final double liveSpeedup;
+    private final long liveMaxLag;
+    private final long liveMetricsInterval;
+    
+    private final boolean hasCheckpoint;
+    private final String checkpointFile;
+    private final int checkpointInterval;
+    
+    /**
+     * @param config The configuration, as parsed from the JSON file
+     * @throws IllegalArgumentException If the configuration is not valid
+     */
+    public GeneratorConfig(Map<String, Object> config) {
+        options = config;
+        
+        List<?> types = (List<?>) get(config, "callTypes", List.class, "callTypes");
+        if (types.isEmpty())
+            throw new IllegalArgumentException("The option 'callTypes' must have at least one call type.");
+        
+        String[] names = new String[types.size()];
+        for (int i=0; i<names.length; i++) {
+            if (!(types.get(i) instanceof String))
+                throw new IllegalArgumentException("The option 'callTypes' must be a list of names.");
+            
+            names[i] = (String) types.get(i);
+            if (ordinals.put(names[i], i) != null)
+                throw new IllegalArgumentException("The call type '" + names[i] + "' is repeated in 'callTypes'.");
+        }
+        callTypes = Collections.unmodifiableList(Arrays.asList(names));
+        
+        numAccounts = (int) getLong(config, "numAccounts", "numAccounts");
+        if (numAccounts < 0)
+            throw new IllegalArgumentException("The option 'numAccounts' can't be negative.");
+        
+        Map<String, Object> callsMade = getMap(config, "callsMade", "callsMade");
+        callsMadeMean = getLong(callsMade, "mean", "callsMade.mean");
+        callsMadeStdDev = getLong(callsMade, "stdDev", "callsMade.stdDev");
+        checkGaussian(callsMadeMean, callsMadeStdDev, "callsMade");
+        
+        hasIncomingCalls = config.containsKey("incomingCalls");
+        if (hasIncomingCalls) {
+            Map<String, Object> incomingCalls = getMap(config, "incomingCalls", "incomingCalls");
+            incomingCallsMean = getLong(incomingCalls, "mean", "incomingCalls.mean");
+            incomingCallsStdDev = getLong(incomingCalls, "stdDev", "incomingCalls.stdDev");
+            checkGaussian(incomingCallsMean, incomingCallsStdDev, "incomingCalls");
+        } else {
+            incomingCallsMean = 0;
+            incomingCallsStdDev = 0;
+        }
+        
+        Map<String, Object> phoneLines = getMap(config, "phoneLines", "phoneLines");
+        phoneLinesMean = getLong(phoneLines, "mean", "phoneLines.mean");
+        phoneLinesStdDev = getLong(phoneLines, "stdDev", "phoneLines.stdDev");
+        if (phoneLinesStdDev < 0)
+            throw new IllegalArgumentException("The option 'phoneLines.stdDev' can't be negative.");
+        
+        int n = names.length;
+        callCost = new long[n];
+        callDur = new long[n];
+        callStdDev = new long[n];
+        callStdDev2 = new long[n];
+        callOPCost = new long[n];
+        callOPDur = new long[n];
+        callOPStdDev = new long[n];
+        callOPStdDev2 = new long[n];
+        callProb = new double[n];
+        incomingProb = new double[n];
+        numberMeans = new long[n];
+        numberStdDevs = new long[n];
+        
+        Map<String, Object> callParams = getMap(config, "outgoingCallParams", "outgoingCallParams");
+        Map<String, Object> numberDist = config.containsKey("outgoingNumberDistribution")
+                ? getMap(config, "outgoingNumberDistribution", "outgoingNumberDistribution")
+                : Collections.<String, Object>emptyMap();
+        
+        for (int type=0; type<n; type++) {
+            String path = "outgoingCallParams." + names[type];
+            Map<String, Object> params = getMap(callParams, names[type], path);
+            
+            callCost[type] = getLong(params, "callCost", path + ".callCost");
+            callDur[type] = getLong(params, "callDur", path + ".callDur");
+            callStdDev[type] = getLong(params, "callStdDev", path + ".callStdDev");
+            callStdDev2[type] = getLong(params, "callStdDev2", path + ".callStdDev2");
+            callOPCost[type] = getLong(params, "callOPCost", path + ".callOPCost");
+            callOPDur[type] = getLong(params, "callOPDur", path + ".callOPDur");
+            callOPStdDev[type] = getLong(params, "callOPStdDev", path + ".callOPStdDev");
+            callOPStdDev2[type] = getLong(params, "callOPStdDev2", path + ".callOPStdDev2");
+            callProb[type] = getDouble(params, "callProb", path + ".callProb");
+            
+            if (params.containsKey("incomingProb"))
+                incomingProb[type] = getDouble(params, "incomingProb", path + ".incomingProb");
+            else if (!NON_ORIGINATING_TYPES.contains(names[type]))
+                incomingProb[type] = callProb[type];
+            
+            checkGaussian(callDur[type], callStdDev[type], path + ".callDur");
+            checkGaussian(callOPDur[type], callOPStdDev[type], path + ".callOPDur");
+            
+            if (callCost[type] < 0 || callOPCost[type] < 0 || callStdDev2[type] < 0 || callOPStdDev2[type] < 0)
+                throw new IllegalArgumentException("The costs and deviations of '" + path + "' can't be negative.");
+            
+            if (numberDist.containsKey(names[type])) {
+                String numberPath = "outgoingNumberDistribution." + names[type];
+                Map<String, Object> number = getMap(numberDist, names[type], numberPath);
+                numberMeans[type] = getLong(number, "mean", numberPath + ".mean");
+                numberStdDevs[type] = getLong(number, "stdDev", numberPath + ".stdDev");
+            }
+        }
+        
+        normalize(callProb, "outgoingCallParams.*.callProb");
+        
+        // relative weights, scaled to add up to 1
+        double incomingSum = 0;
+        for (double p : incomingProb) {
+            incomingSum += p;
+        }
+        
+        if (incomingSum > 0) {
+            for (int type=0; type<n; type++) {
+                incomingProb[type] /= incomingSum;
+            }
+        } else if (hasIncomingCalls) {
+            throw new IllegalArgumentException("The options 'outgoingCallParams.*.incomingProb' leave no call type for the incoming calls.");
+        }
+        
+        Map<String, Object> days = getMap(config, "dayDistribution", "dayDistribution");
+        dayProbs = new double[DateTimeDistribution.DAYS.length];
+        for (int i=0; i<dayProbs.length; i++) {
+            dayProbs[i] = getDouble(days, DateTimeDistribution.DAYS[i], "dayDistribution." + DateTimeDistribution.DAYS[i]);
+        }
+        normalize(dayProbs, "dayDistribution");
+        
+        // a single window or a list of them
+        Object offPeak = config.get("offPeakTimePeriod");
+        List<?> windows = (offPeak instanceof List) ? (List<?>) offPeak
+                : Collections.singletonList(getMap(config, "offPeakTimePeriod", "offPeakTimePeriod"));
+        
+        for (int i=0; i<windows.size(); i++) {
+            String path = (offPeak instanceof List) ? "offPeakTimePeriod[" + i + "]" : "offPeakTimePeriod";
+            if (!(windows.get(i) instanceof Map))
+                throw new IllegalArgumentException("The option '" + path + "' must have a start and an end.");
+            
+            Map<String, Object> window = (Map<String, Object>) windows.get(i);
+            offPeakMinutes.add(parseTime(get(window, "start", String.class, path + ".start"), path + ".start"),
+                    parseTime(get(window, "end", String.class, path + ".end"), path + ".end"));
+        }
+        
+        startDate = get(config, "startDate", String.class, "startDate");
+        endDate = get(config, "endDate", String.class, "endDate");
+        timeZone = getTimeZone(config);
+        
+        if (config.containsKey("areaTimeZones")) {
+            Map<String, Object> areas = getMap(config, "areaTimeZones", "areaTimeZones");
+            
+            for (String prefix : areas.keySet()) {
+                String path = "areaTimeZones." + prefix;
+                
+                if (!prefix.matches("[0-9]+"))
+                    throw new IllegalArgumentException("The prefixes of 'areaTimeZones' must be digits, not '" + prefix + "'.");
+                
+                areaTimeZones.put(prefix, parseTimeZone(get(areas, prefix, String.class, path), path));
+            }
+        }
+        
+        Map<String, Object> tariff = config.containsKey("tariff")
+                ? getMap(config, "tariff", "tariff") : Collections.<String, Object>emptyMap();
+        
+        billing = tariff.containsKey("billing")
+                ? get(tariff, "billing", String.class, "tariff.billing") : TariffRater.BILLING_MINUTE;
+        blockSeconds = tariff.containsKey("blockSeconds")
+                ? (int) getLong(tariff, "blockSeconds", "tariff.blockSeconds") : 60;
+        splitBands = tariff.containsKey("splitBands")
+                && get(tariff, "splitBands", Boolean.class, "tariff.splitBands");
+        
+        if (!Arrays.asList(TariffRater.BILLING_MINUTE, TariffRater.BILLING_SECOND, TariffRater.BILLING_BLOCK).contains(billing))
+            throw new IllegalArgumentException("The option 'tariff.billing' must be minute, second or block, not '" + billing + "'.");
+        if (blockSeconds < 1)
+            throw new IllegalArgumentException("The option 'tariff.blockSeconds' must be positive.");
+        
+        if (tariff.containsKey("holidays")) {
+            for (Object holiday : get(tariff, "holidays", List.class, "tariff.holidays")) {
+                if (!(holiday instanceof String))
+                    throw new IllegalArgumentException("The option 'tariff.holidays' must be a list of dates.");
+                
+                holidays.add(parseDate((String) holiday, "tariff.holidays").toLocalDate());
+            }
+        }
+        
+        if (!parseDate(endDate, "endDate").isAfter(parseDate(startDate, "startDate").getMillis()))
+            throw new IllegalArgumentException("The option 'endDate' must be after 'startDate'.");
+        
+        threads = (int) getLong(config, "threads", Runtime.getRuntime().availableProcessors(), "threads");
+        chunkSize = (int) getLong(config, "chunkSize", Population.DEFAULT_CHUNK_SIZE, "chunkSize");
+        maxPlacementRetries = (int) getLong(config, "maxPlacementRetries", 
+                Population.DEFAULT_MAX_PLACEMENT_RETRIES, "maxPlacementRetries");
+        progressInterval = getLong(config, "progressInterval", Population.DEFAULT_PROGRESS_INTERVAL, "progressInterval");
+        partition = config.containsKey("partition") ? get(config, "partition", String.class, "partition") : null;
+        
+        if (threads < 1)
+            throw new IllegalArgumentException("The option 'threads' must be positive.");
+        if (chunkSize < 1)
+            throw new IllegalArgumentException("The option 'chunkSize' must be positive.");
+        if (maxPlacementRetries < 0)
+            throw new IllegalArgumentException("The option 'maxPlacementRetries' can't be negative.");
+        if (progressInterval < 0)
+            throw new IllegalArgumentException("The option 'progressInterval' can't be negative.");
+        if (partition != null && !config.containsKey("seed"))
+            throw new IllegalArgumentException("The option 'partition' needs a fixed 'seed'.");
+        
+        // the seed and the algorithm are read by RandomSources
+        getLong(config, "seed", 0, "seed");
+        String rng = config.containsKey("rng") ? get(config, "rng", String.class, "rng") : RandomSources.SPLITTABLE;
+        
+        if (!Arrays.asList(RandomSources.SPLITTABLE, RandomSources.XOSHIRO256).contains(rng))
+            throw new IllegalArgumentException("The option 'rng' must be splittable or xoshiro256, not '" + rng + "'.");
+        
+        hasSubscriberDirectory = config.containsKey("subscriberDirectory");
+        Map<String, Object> directory = hasSubscriberDirectory
+                ? getMap(config, "subscriberDirectory", "subscriberDirectory") : Collections.<String, Object>emptyMap();
+        
+        locality = getDouble(directory, "locality", SubscriberDirectory.DEFAULT_LOCALITY, "subscriberDirectory.locality");
+        neighbourAreas = (int) getLong(directory, "neighbourAreas", 
+                SubscriberDirectory.DEFAULT_NEIGHBOUR_AREAS, "subscriberDirectory.neighbourAreas");
+        attachment = getDouble(directory, "attachment", SubscriberDirectory.DEFAULT_ATTACHMENT, "subscriberDirectory.attachment");
+        
+        if (locality > 1)
+            throw new IllegalArgumentException("The option 'subscriberDirectory.locality' can't be greater than 1.");
+        if (neighbourAreas < 1)
+            throw new IllegalArgumentException("The option 'subscriberDirectory.neighbourAreas' must be positive.");
+        if (attachment < 1)
+            throw new IllegalArgumentException("The option 'subscriberDirectory.attachment' must be at least 1.");
+        
+        sortBy = config.containsKey("sortBy")
+                ? get(config, "sortBy", String.class, "sortBy") : SortedCallWriter.SORT_BY_CUSTOMER;
+        sortBufferCalls = (int) getLong(config, "sortBufferCalls", SortedCallWriter.DEFAULT_BUFFER_CALLS, "sortBufferCalls");
+        sortMergeFactor = (int) getLong(config, "sortMergeFactor", SortedCallWriter.DEFAULT_MERGE_FACTOR, "sortMergeFactor");
+        sortTempDir = config.containsKey("sortTempDir") ? get(config, "sortTempDir", String.class, "sortTempDir") : null;
+        
+        if (!Arrays.asList(SortedCallWriter.SORT_BY_CUSTOMER, SortedCallWriter.SORT_BY_TIME).contains(sortBy))
+            throw new IllegalArgumentException("The option 'sortBy' must be customer or time, not '" + sortBy + "'.");
+        if (sortBufferCalls < 1)
+            throw new IllegalArgumentException("The option 'sortBufferCalls' must be positive.");
+        if (sortMergeFactor < 2)
+            throw new IllegalArgumentException("The option 'sortMergeFactor' must be at least 2.");
+        
+        sharded = config.containsKey("shards");
+        shards = (int) getLong(config, "shards", 1, "shards");
+        partitionBy = config.containsKey("partitionBy")
+                ? get(config, "partitionBy", String.class, "partitionBy") : ShardedCallSink.PARTITION_BY_CUSTOMER;
+        maxOpenShards = (int) getLong(config, "maxOpenShards", ShardedCallSink.DEFAULT_MAX_OPEN_SHARDS, "maxOpenShards");
+        
+        if (shards < 1)
+            throw new IllegalArgumentException("The option 'shards' must be positive.");
+        if (maxOpenShards < 1)
+            throw new IllegalArgumentException("The option 'maxOpenShards' must be positive.");
+        if (!Arrays.asList(ShardedCallSink.PARTITION_BY_CUSTOMER, ShardedCallSink.PARTITION_BY_DATE).contains(partitionBy))
+            throw new IllegalArgumentException("The option 'partitionBy' must be customer or date, not '" + partitionBy + "'.");
+        
+        checkOutput(config);
+        
+        live = config.containsKey("live");
+        Map<String, Object> liveParams = live ? getMap(config, "live", "live") : Collections.<String, Object>emptyMap();
+        
+        liveRate = getDouble(liveParams, "rate", 0, "live.rate");
+        liveSpeedup = getDouble(liveParams, "speedup", 0, "live.speedup");
+        liveMaxLag = getLong(liveParams, "maxLag", LiveEmitter.DEFAULT_MAX_LAG, "live.maxLag");
+        liveMetricsInterval = getLong(liveParams, "metricsInterval", LiveEmitter.DEFAULT_METRICS_INTERVAL, "live.metricsInterval");
+        
+        if (live && (liveRate > 0) == (liveSpeedup > 0))
+            throw new IllegalArgumentException("The option 'live' needs either a rate or a speedup greater than zero.");
+        if (liveMaxLag < 0 || liveMetricsInterval < 0)
+            throw new IllegalArgumentException("The options 'live.maxLag' and 'live.metricsInterval' can't be negative.");
+        
+        hasCheckpoint = config.containsKey("checkpoint");
+        Map<String, Object> checkpoint = hasCheckpoint
+                ? getMap(config, "checkpoint", "checkpoint") : Collections.<String, Object>emptyMap();
+        
+        checkpointFile = checkpoint.containsKey("file") ? get(checkpoint, "file", String.class, "checkpoint.file") : null;
+        checkpointInterval = (int) getLong(checkpoint, "interval", Checkpointer.DEFAULT_INTERVAL, "checkpoint.interval");
+        
+        if (checkpointInterval < 1)
+            throw new IllegalArgumentException("The option 'checkpoint.interval' must be positive.");
+        if (hasCheckpoint && (sharded || live || SortedCallWriter.SORT_BY_TIME.equals(sortBy)))
+            throw new IllegalArgumentException("The option 'checkpoint' is only supported for a single "
+                    + "output file sorted by customer.");
+    }
+    
+    /**
+     * Checks the options of the output files, which are read from the map by
+     * the formats and the compression when the files are opened.
+     */
+    private static void checkOutput(Map<String, Object> config) {
+        if (config.containsKey("outputFormat")) {
+            String outputFormat = get(config, "outputFormat", String.class, "outputFormat");
+            
+            if (!OutputFormats.getNames().contains(outputFormat))
+                throw new IllegalArgumentException("The option 'outputFormat' must be one of "
+                        + OutputFormats.getNames() + ", not '" + outputFormat + "'.");
+        }
+        
+        if (getLong(config, "columnarBlockRows", ColumnarCallWriter.DEFAULT_BLOCK_ROWS, "columnarBlockRows") < 1)
+            throw new IllegalArgumentException("The option 'columnarBlockRows' must be positive.");
+        
+        if (!config.containsKey("compression"))
+            return;
+        
+        String codec;
+        
+        if (config.get("compression") instanceof String) {
+            codec = (String) config.get("compression");
+        } else {
+            Map<String, Object> compression = getMap(config, "compression", "compression");
+            codec = compression.containsKey("codec")
+                    ? get(compression, "codec", String.class, "compression.codec") : null;
+            long level = getLong(compression, "level", Compression.DEFAULT_LEVEL, "compression.level");
+            
+            if (level < 0 || level > 9)
+                throw new IllegalArgumentException("The option 'compression.level' must be between 0 and 9.");
+            if (getLong(compression, "blockSize", Compression.DEFAULT_BLOCK_SIZE, "compression.blockSize") < 1)
+                throw new IllegalArgumentException("The option 'compression.blockSize' must be positive.");
+            if (getLong(compression, "threads", 1, "compression.threads") < 1)
+                throw new IllegalArgumentException("The option 'compression.threads' must be positive.");
+        }
+        
+        if (codec != null && !Compression.GZIP.equals(codec) && !Compression.NONE.equals(codec))
+            throw new IllegalArgumentException("The option 'compression' must be gzip or none, not '" + codec + "'.");
+    }
+    
+    private static <T> T get(Map<String, Object> map, String key, Class<T> type, String path) {
+        Object value = map.get(key);
+        
+        if (value == null)
+            throw new IllegalArgumentException("Missing configuration option '" + path + "'.");
+        if (!type.isInstance(value))
+            throw new IllegalArgumentException("The option '" + path + "' must be a "
+                    + type.getSimpleName().toLowerCase() + ", not '" + value + "'.");
+        
+        return type.cast(value);
+    }
+    
+    private static Map<String, Object> getMap(Map<String, Object> map, String key, String path) {
+        return (Map<String, Object>) get(map, key, Map.class, path);
+    }
+    
+    private static long getLong(Map<String, Object> map, String key, String path) {
+        Number value = get(map, key, Number.class, path);
+        
+        if (value.doubleValue() != value.longValue())
+            throw new IllegalArgumentException("The option '" + path + "' must be an integer, not '" + value + "'.");
+        
+        return value.longValue();
+    }
+    
+    private static long getLong(Map<String, Object> map, String key, long defaultValue, String path) {
+        return map.containsKey(key) ? getLong(map, key, path) : defaultValue;
+    }
+    
+    private static double getDouble(Map<String, Object> map, String key, double defaultValue, String path) {
+        return map.containsKey(key) ? getDouble(map, key, path) : defaultValue;
+    }
+    
+    private static double getDouble(Map<String, Object> map, String key, String path) {
+        double value = get(map, key, Number.class, path).doubleValue();
+        
+        if (value < 0 || Double.isNaN(value))
+            throw new IllegalArgumentException("The option '" + path + "' can't be negative.");
+        
+        return value;
+    }
+    
+    /**
+     * Values below 1 are drawn again, so a mean below 1 without deviation would
+     * be drawn forever.
+     */
+    private static void checkGaussian(long mean, long stdDev, String path) {
+        if (stdDev < 0)
+            throw new IllegalArgumentException("The deviation of '" + path + "' can't be negative.");
+        if (mean < 1 && stdDev == 0)
+            throw new IllegalArgumentException("The mean of '" + path + "' must be at least 1 without a deviation.");
+    }
+    
+    private static void normalize(double[] probs, String path) {
+        double sum = 0;
+        for (double p : probs) {
+            sum += p;
+        }
+        
+        if (Math.abs(sum - 1) > PROBABILITY_TOLERANCE)
+            throw new IllegalArgumentException("The probabilities of '" + path + "' add up to " + sum + ", not 1.");
+        
+        for (int i=0; i<probs.length; i++) {
+            probs[i] /= sum;
+        }
+    }
+    
+    private static int parseTime(String time, String path) {
+        String[] parts = time.split(":");
+        
+        try {
+            int hours = Integer.parseInt(parts[0].trim());
+            int minutes = (parts.length == 2) ? Integer.parseInt(parts[1].trim()) : -1;
+            
+            if (hours >= 0 && hours < 24 && minutes >= 0 && minutes < 60)
+                return hours * 60 + minutes;
+        } catch (NumberFormatException ex) {
+            // reported below
+        }
+        
+        throw new IllegalArgumentException("The option '" + path + "' must be a time as HH:mm, not '" + time + "'.");
+    }
+    
+    /**
+     * @param config The configuration, as parsed from the JSON file
+     * @return The time zone of the <code>timeZone</code> option, UTC if not set
+     * @throws IllegalArgumentException If the time zone is not known
+     */
+    public static DateTimeZone getTimeZone(Map<String, Object> config) {
+        if (!config.containsKey("timeZone"))
+            return DateTimeZone.UTC;
+        
+        return parseTimeZone(get(config, "timeZone", String.class, "timeZone"), "timeZone");
+    }
+    
+    private static DateTimeZone parseTimeZone(String id, String path) {
+        try {
+            return DateTimeZone.forID(id);
+        } catch (IllegalArgumentException ex) {
+            throw new IllegalArgumentException("The option '" + path + "' must be a time zone id, not '" + id + "'.");
+        }
+    }
+    
+    private static DateTime parseDate(String date, String path) {
+        try {
+            return DATE_FORMATTER.parseDateTime(date);
+        } catch (IllegalArgumentException ex) {
+            throw new IllegalArgumentException("The option '" + path + "' must be a date as dd/MM/yyyy, not '" + date + "'.");
+        }
+    }
+    
+    /**
+     * @return The configuration the model was compiled from, with all the options
+     */
+    public Map<String, Object> getOptions() {
+        return options;
+    }
+    
+    public List<String> getCallTypes() {
+        return callTypes;
+    }
+    
+    public int getNumCallTypes() {
+        return callTypes.size();
+    }
+    
+    /**
+     * @param callType The name of the call type
+     * @return The ordinal of the call type
+     */
+    public int ordinalOf(String callType) {
+        Integer ordinal = ordinals.get(callType);
+        
+        if (ordinal == null)
+            throw new IllegalArgumentException("Unknown call type '" + callType + "'.");
+        
+        return ordinal;
+    }
+    
+    public int getNumAccounts() {
+        return numAccounts;
+    }
+    
+    public long getCallsMadeMean() {
+        return callsMadeMean;
+    }
+    
+    public long getCallsMadeStdDev() {
+        return callsMadeStdDev;
+    }
+    
+    /**
+     * @return True if the calls received from outside the population are configured
+     */
+    public boolean hasIncomingCalls() {
+        return hasIncomingCalls;
+    }
+    
+    public long getIncomingCallsMean() {
+        return incomingCallsMean;
+    }
+    
+    public long getIncomingCallsStdDev() {
+        return incomingCallsStdDev;
+    }
+    
+    public long getPhoneLinesMean() {
+        return phoneLinesMean;
+    }
+    
+    public long getPhoneLinesStdDev() {
+        return phoneLinesStdDev;
+    }
+    
+    /**
+     * @param type The ordinal of the call type
+     * @param offPeak True for the off peak cost
+     * @return The cost of a minute of the call type
+     */
+    public long getCallCost(int type, boolean offPeak) {
+        return offPeak ? callOPCost[type] : callCost[type];
+    }
+    
+    /**
+     * @param type The ordinal of the call type
+     * @param offPeak True for the off peak duration
+     * @return The mean of the average call duration of the customers
+     */
+    public long getCallDuration(int type, boolean offPeak) {
+        return offPeak ? callOPDur[type] : callDur[type];
+    }
+    
+    /**
+     * @param type The ordinal of the call type
+     * @param offPeak True for the off peak deviation
+     * @return The deviation of the average call duration of the customers
+     */
+    public long getCallStdDev(int type, boolean offPeak) {
+        return offPeak ? callOPStdDev[type] : callStdDev[type];
+    }
+    
+    /**
+     * @param type The ordinal of the call type
+     * @param offPeak True for the off peak deviation
+     * @return The deviation of the duration of each call around the average of the customer
+     */
+    public long getCallStdDev2(int type, boolean offPeak) {
+        return offPeak ? callOPStdDev2[type] : callStdDev2[type];
+    }
+    
+    /**
+     * @return The normalized probability of each call type, by ordinal
+     */
+    public double[] getCallProbabilities() {
+        return callProb.clone();
+    }
+    
+    /**
+     * @return The normalized probability of each call type for the calls received
+     *         from outside the population, by ordinal
+     */
+    public double[] getIncomingCallProbabilities() {
+        return incomingProb.clone();
+    }
+    
+    /**
+     * @param type The ordinal of the call type
+     * @return The mean of the number of destinations of the call type, 0 if not configured
+     */
+    public long getNumberMean(int type) {
+        return numberMeans[type];
+    }
+    
+    /**
+     * @param type The ordinal of the call type
+     * @return The deviation of the number of destinations of the call type
+     */
+    public long getNumberStdDev(int type) {
+        return numberStdDevs[type];
+    }
+    
+    /**
+     * @return The normalized probability of each day of {@link DateTimeDistribution#DAYS}
+     */
+    public double[] getDayProbabilities() {
+        return dayProbs.clone();
+    }
+    
+    /**
+     * @return The minutes of the day within the off peak time period, not to be changed
+     */
+    public MinuteBitmap getOffPeakMinutes() {
+        return offPeakMinutes;
+    }
+
+    public String getStartDate() {
+        return startDate;
+    }
+
+    public String getEndDate() {
+        return endDate;
+    }
+    
+    /**
+     * @return The time zone of the dates of the configuration and of the output
+     */
+    public DateTimeZone getTimeZone() {
+        return timeZone;
+    }
+    
+    /**
+     * @return How the duration of the calls is billed, see {@link TariffRater}
+     */
+    public String getBilling() {
+        return billing;
+    }
+    
+    /**
+     * @return The length of the blocks of the block billing, in seconds
+     */
+    public int getBlockSeconds() {
+        return blockSeconds;
+    }
+    
+    /**
+     * @return True if the calls that cross the start or the end of the off peak
+     *         period are billed at the rate of each part
+     */
+    public boolean isSplitBands() {
+        return splitBands;
+    }
+    
+    /**
+     * @return The days billed at the off peak rate all day long
+     */
+    public List<LocalDate> getHolidays() {
+        return holidays;
+    }
+    
+    /**
+     * @return The time zones of the customers whose phone numbers start with
+     *         each prefix, the others are in {@link #getTimeZone()}
+     */
+    public Map<String, DateTimeZone> getAreaTimeZones() {
+        return areaTimeZones;
+    }
+    
+    /**
+     * @return The number of workers, by default the number of processors
+     */
+    public int getThreads() {
+        return threads;
+    }
+    
+    /**
+     * @return The number of customers of each chunk
+     */
+    public int getChunkSize() {
+        return chunkSize;
+    }
+    
+    public int getMaxPlacementRetries() {
+        return maxPlacementRetries;
+    }
+    
+    /**
+     * @return The seconds between the progress logs, 0 to disable them
+     */
+    public long getProgressInterval() {
+        return progressInterval;
+    }
+    
+    /**
+     * @return The partition of the accounts to be generated, as <code>i/N</code>,
+     *         or null to generate all of them
+     */
+    public String getPartition() {
+        return partition;
+    }
+    
+    /**
+     * @return True if the customers call each other through a {@link SubscriberDirectory}
+     */
+    public boolean hasSubscriberDirectory() {
+        return hasSubscriberDirectory;
+    }
+    
+    /**
+     * @return The probability of a national call going to a neighbour area
+     */
+    public double getLocality() {
+        return locality;
+    }
+    
+    public int getNeighbourAreas() {
+        return neighbourAreas;
+    }
+    
+    /**
+     * @return The skew of the popularity of the subscribers, 1 for none
+     */
+    public double getAttachment() {
+        return attachment;
+    }
+    
+    /**
+     * @return The order of the calls of each file, customer or time
+     */
+    public String getSortBy() {
+        return sortBy;
+    }
+    
+    public int getSortBufferCalls() {
+        return sortBufferCalls;
+    }
+    
+    public int getSortMergeFactor() {
+        return sortMergeFactor;
+    }
+    
+    /**
+     * @return The directory of the sorted runs, or null for the default one
+     */
+    public String getSortTempDir() {
+        return sortTempDir;
+    }
+    
+    /**
+     * @return True if the output is a directory of shards
+     */
+    public boolean isSharded() {
+        return sharded;
+    }
+    
+    public int getShards() {
+        return shards;
+    }
+    
+    /**
+     * @return How the calls are split in shards, by customer or by date
+     */
+    public String getPartitionBy() {
+        return partitionBy;
+    }
+    
+    /**
+     * @return The number of files partitioned by date that are kept open at once
+     */
+    public int getMaxOpenShards() {
+        return maxOpenShards;
+    }
+    
+    /**
+     * @return True if the calls are emitted at the <code>live</code> rate
+     */
+    public boolean isLive() {
+        return live;
+    }
+    
+    /**
+     * @return The calls emitted per second, 0 if a speedup is used
+     */
+    public double getLiveRate() {
+        return liveRate;
+    }
+    
+    /**
+     * @return The speedup of the time of the calls, 0 if a rate is used
+     */
+    public double getLiveSpeedup() {
+        return liveSpeedup;
+    }
+    
+    /**
+     * @return The milliseconds the emission may fall behind before its schedule restarts
+     */
+    public long getLiveMaxLag() {
+        return liveMaxLag;
+    }
+    
+    /**
+     * @return The seconds between the logs of the emission metrics
+     */
+    public long getLiveMetricsInterval() {
+        return liveMetricsInterval;
+    }
+    
+    /**
+     * @return True if the progress of the generation is recorded, see {@link Checkpointer}
+     */
+    public boolean hasCheckpoint() {
+        return hasCheckpoint;
+    }
+    
+    /**
+     * @return The path of the checkpoint file, or null for the default one
+     */
+    public String getCheckpointFile() {
+        return checkpointFile;
+    }
+    
+    /**
+     * @return The number of chunks between checkpoints
+     */
+    public int getCheckpointInterval() {
+        return checkpointInterval;
+    }
+}
@@ -0,0 +1,164 @@
+package com.cdr.gen;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The terminating records of the calls made to other customers, indexed by the
+ * account of the callee. The records are held until the callee is written, so
+ * that they are written together with its own calls without a second pass over
+ * the population.
+ *
+ * @author Maycon Viana Bordin <mayconbordin@gmail.com>
+ */
+public class IncomingCallIndex {
+    private final TreeMap<Long, Person> callees = new TreeMap<Long, Person>();
+    private long size;
+    
+    /**
+     * @param account The account of the callee
+     * @param phoneNumber The phone number of the callee
+     * @param call The terminating record
+     */
+    public void add(long account, String phoneNumber, Call call) {
+        Person callee = callees.get(account);
+        
+        if (callee == null) {
+            callee = new Person();
+            callee.setId(account);
+            callee.setPhoneNumber(phoneNumber);
+            callee.setCalls(new ArrayList<Call>());
+            callees.put(account, callee);
+        }
+        
+        callee.getCalls().add(call);
+        size++;
+    }
+    
+    /**
+     * Moves all the records of the other index into this one, the records of
+     * each callee keep their order.
+     * @param other The index to be emptied
+     */
+    public void addAll(IncomingCallIndex other) {
+        for (Person callee : other.callees.values()) {
+            for (Call call : callee.getCalls()) {
+                add(callee.getId(), callee.getPhoneNumber(), call);
+            }
+        }
+        
+        other.callees.clear();
+        other.size = 0;
+    }
+    
+    /**
+     * @param account The account of the callee
+     * @return The records of the callee, or null if there are none
+     */
+    public List<Call> remove(long account) {
+        Person callee = callees.remove(account);
+        
+        if (callee == null)
+            return null;
+        
+        size -= callee.getCalls().size();
+        return callee.getCalls();
+    }
+    
+    /**
+     * @param account The first account that is kept
+     * @return The callees with a lower account and their records, in account order
+     */
+    public List<Person> removeBefore(long account) {
+        List<Person> removed = new ArrayList<Person>();
+        Iterator<Map.Entry<Long, Person>> it = callees.headMap(account).entrySet().iterator();
+        
+        while (it.hasNext()) {
+            Person callee = it.next().getValue();
+            size -= callee.getCalls().size();
+            removed.add(callee);
+            it.remove();
+        }
+        
+        return removed;
+    }
+    
+    /**
+     * @return All the callees and their records, in account order
+     */
+    public List<Person> removeAll() {
+        return removeBefore(Long.MAX_VALUE);
+    }
+    
+    /**
+     * @return The number of records held
+     */
+    public long size() {
+        return size;
+    }
+    
+    public boolean isEmpty() {
+        return callees.isEmpty();
+    }
+    
+    /**
+     * Writes the records held, to be read by {@link #readFrom(DataInput)}.
+     * @param out The destination of the records
+     * @throws IOException If the records could not be written
+     */
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeInt(callees.size());
+        
+        for (Person callee : callees.values()) {
+            out.writeLong(callee.getId());
+            out.writeUTF(callee.getPhoneNumber());
+            out.writeInt(callee.getCalls().size());
+            
+            for (Call call : callee.getCalls()) {
+                out.writeLong(call.getId());
+                out.writeUTF(call.getType());
+                out.writeInt(call.getLine());
+                out.writeLong(call.getPackedDestPhoneNumber());
+                out.writeLong(call.getStartMillis());
+                out.writeLong(call.getEndMillis());
+                out.writeDouble(call.getCost());
+            }
+        }
+    }
+    
+    /**
+     * @param in The source of the records
+     * @return The index of the records written by {@link #writeTo(DataOutput)}
+     * @throws IOException If the records could not be read
+     */
+    public static IncomingCallIndex readFrom(DataInput in) throws IOException {
+        IncomingCallIndex index = new IncomingCallIndex();
+        int numCallees = in.readInt();
+        
+        for (int i=0; i<numCallees; i++) {
+            long account = in.readLong();
+            String phoneNumber = in.readUTF();
+            int numCalls = in.readInt();
+            
+            for (int j=0; j<numCalls; j++) {
+                Call call = new Call();
+                call.setId(in.readLong());
+                call.setType(in.readUTF());
+                call.setLine(in.readInt());
+                call.setPackedDestPhoneNumber(in.readLong());
+                call.setTime(in.readLong(), in.readLong());
+                call.setCost(in.readDouble());
+                
+                index.add(account, phoneNumber, call);
+            }
+        }
+        
+        return index;
+    }
+}
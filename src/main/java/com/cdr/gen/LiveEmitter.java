@@ -0,0 +1,146 @@
+package com.cdr.gen;
+
+import com.cdr.gen.util.Pacer;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.apache.log4j.Logger;
+
+/**
+ * Emits calls in start order at a controlled rate, to feed systems that consume
+ * calls as they happen, such as mediation and billing pipelines.
+ * 
+ * The rate is set by the <code>live</code> configuration, either a fixed number
+ * of calls per second (<code>rate</code>) or a <code>speedup</code> of the time
+ * of the calls, e.g. 100 emits the calls of 100 seconds in one second.
+ * 
+ * Every call has a deadline computed from the start of the emission, so the
+ * pacing doesn't drift. When the output blocks, the emitter falls behind and
+ * catches up by writing without waiting, but never more than <code>maxLag</code>
+ * milliseconds: past that the schedule restarts from the current time, so a slow
+ * consumer holds back the emission instead of receiving a burst of calls. The
+ * writer is flushed whenever the emitter is ahead of the schedule.
+ * 
+ * @author Maycon Viana Bordin <mayconbordin@gmail.com>
+ */
+public class LiveEmitter {
+    private static final Logger LOG = Logger.getLogger(LiveEmitter.class);
+    
+    public static final long DEFAULT_MAX_LAG = 1000;
+    public static final long DEFAULT_METRICS_INTERVAL = 10;
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+    
+    private final double rate;
+    private final double speedup;
+    private final long maxLagNanos;
+    private final long metricsIntervalNanos;
+    
+    private final Pacer pacer = new Pacer();
+    private final LiveMetrics metrics = new LiveMetrics();
+
+    /**
+     * @param config The configuration of the generator, with the <code>live</code> object
+     */
+    public LiveEmitter(Map<String, Object> config) {
+        this(new GeneratorConfig(config));
+    }
+    
+    /**
+     * @param config The compiled configuration of the generator, with the <code>live</code> object
+     */
+    public LiveEmitter(GeneratorConfig config) {
+        if (!config.isLive())
+            throw new IllegalArgumentException("The live configuration is missing.");
+        
+        rate = config.getLiveRate();
+        speedup = config.getLiveSpeedup();
+        maxLagNanos = TimeUnit.MILLISECONDS.toNanos(config.getLiveMaxLag());
+        metricsIntervalNanos = TimeUnit.SECONDS.toNanos(config.getLiveMetricsInterval());
+    }
+    
+    /**
+     * Writes the merged calls, waiting for the deadline of each call.
+     * @param calls The calls to be emitted, in start order
+     * @param writer The destination of the calls, it is not closed
+     * @throws IOException If the writer fails or the thread is interrupted
+     */
+    public void emit(CallMerger calls, CallWriter writer) throws IOException {
+        LOG.info("Emitting " + calls.getNumCalls() + " calls at " 
+                + (rate > 0 ? rate + " calls/s" : speedup + "x the call time"));
+        
+        long begin = System.nanoTime();
+        long base = begin;            // the instant the current schedule started
+        long baseCount = 0;           // the calls emitted before the current schedule
+        long baseStart = 0;           // the start of the first call of the current schedule
+        long scheduled = 0;           // the length of the previous schedules
+        long count = 0;
+        long lastDeadline = begin;
+        long nextReport = begin + metricsIntervalNanos;
+        boolean pending = false;
+        
+        try {
+            while (calls.next()) {
+                long start = calls.getStart();
+                
+                if (count == 0)
+                    baseStart = start;
+                
+                long deadline = base + offset(count - baseCount, start - baseStart);
+                long now = System.nanoTime();
+                
+                if (now - deadline > maxLagNanos) {
+                    // the output can't keep up, start over instead of bursting
+                    scheduled += lastDeadline - base;
+                    base = deadline = now;
+                    baseCount = count;
+                    baseStart = start;
+                    metrics.rebased();
+                } else if (deadline - now > 0) {
+                    // ahead of the schedule, deliver what has been written so far
+                    if (pending) {
+                        writer.flush();
+                        pending = false;
+                    }
+                    
+                    now = pacer.awaitUntil(deadline);
+                }
+                
+                writer.write(calls.getPhoneNumber(), calls.getCall());
+                pending = true;
+                lastDeadline = deadline;
+                count++;
+                
+                metrics.update(count, now - begin, scheduled + deadline - base, now - deadline);
+                
+                if (now - nextReport >= 0) {
+                    LOG.info(metrics);
+                    nextReport = now + metricsIntervalNanos;
+                }
+            }
+            
+            writer.flush();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while emitting the calls.");
+        }
+        
+        LOG.info(metrics);
+    }
+    
+    /**
+     * @param calls The number of calls since the start of the schedule
+     * @param seconds The time between the current call and the first call of the schedule
+     * @return The time the call is due, relative to the start of the schedule
+     */
+    private long offset(long calls, long seconds) {
+        if (rate > 0)
+            return (long) (calls * (double) NANOS_PER_SECOND / rate);
+        
+        return (long) (seconds * (double) NANOS_PER_SECOND / speedup);
+    }
+
+    public LiveMetrics getMetrics() {
+        return metrics;
+    }
+}
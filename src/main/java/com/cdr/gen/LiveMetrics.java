@@ -0,0 +1,93 @@
+package com.cdr.gen;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The throughput of a live emission: how many calls were emitted, the rate
+ * required by the schedule versus the rate achieved, and how late the emitter
+ * is running behind the schedule.
+ * 
+ * The metrics are updated by the emitter thread and can be read from any thread.
+ * 
+ * @author Maycon Viana Bordin <mayconbordin@gmail.com>
+ */
+public class LiveMetrics {
+    private volatile long emitted;
+    private volatile long elapsedNanos;
+    private volatile long scheduledNanos;
+    private volatile long lagNanos;
+    private volatile long maxLagNanos;
+    private volatile long rebases;
+    
+    void update(long emitted, long elapsedNanos, long scheduledNanos, long lagNanos) {
+        this.emitted = emitted;
+        this.elapsedNanos = elapsedNanos;
+        this.scheduledNanos = scheduledNanos;
+        this.lagNanos = lagNanos;
+        
+        if (lagNanos > maxLagNanos)
+            maxLagNanos = lagNanos;
+    }
+    
+    void rebased() {
+        rebases++;
+    }
+
+    /**
+     * @return The number of calls emitted so far
+     */
+    public long getEmitted() {
+        return emitted;
+    }
+
+    /**
+     * @return The time since the emission started, in nanoseconds
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+    
+    /**
+     * @return The calls per second required by the schedule
+     */
+    public double getTargetRate() {
+        return rate(emitted, scheduledNanos);
+    }
+    
+    /**
+     * @return The calls per second actually emitted
+     */
+    public double getAchievedRate() {
+        return rate(emitted, elapsedNanos);
+    }
+
+    /**
+     * @return How late the last call was emitted, in nanoseconds
+     */
+    public long getLagNanos() {
+        return lagNanos;
+    }
+
+    public long getMaxLagNanos() {
+        return maxLagNanos;
+    }
+
+    /**
+     * @return How many times the emitter fell too far behind, because the output
+     *         couldn't keep up, and restarted the schedule from the current time
+     */
+    public long getRebases() {
+        return rebases;
+    }
+    
+    private static double rate(long count, long nanos) {
+        return nanos > 0 ? count * (double) TimeUnit.SECONDS.toNanos(1) / nanos : 0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d calls emitted in %.1fs, %.1f calls/s (target %.1f calls/s), "
+                + "lag %.3fms (max %.3fms), %d rebases", emitted, elapsedNanos / 1e9,
+                getAchievedRate(), getTargetRate(), lagNanos / 1e6, maxLagNanos / 1e6, rebases);
+    }
+}
@@ -0,0 +1,45 @@
+package com.cdr.gen;
+
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+import java.util.Map;
+
+/**
+ * A format in which the generated calls can be saved. Besides the built-in
+ * formats, implementations can be registered through {@link OutputFormats#register(OutputFormat)}
+ * or as a {@link java.util.ServiceLoader} provider of this interface.
+ * @author Maycon Viana Bordin <mayconbordin@gmail.com>
+ */
+public interface OutputFormat {
+    /**
+     * @return The name of the format, used by the <code>outputFormat</code> configuration
+     */
+    String getName();
+    
+    /**
+     * @return The file extension of the format, including the dot
+     */
+    String getExtension();
+    
+    /**
+     * Creates a writer of calls in this format.
+     * @param channel The destination of the calls, closed with the writer
+     * @param config The configuration of the generator
+     * @return The writer
+     * @throws IOException If the writer could not be created
+     */
+    CallWriter open(WritableByteChannel channel, Map<String, Object> config) throws IOException;
+    
+    /**
+     * Creates a writer that appends calls to a file written in this format and
+     * truncated after a call, as when a generation is resumed from a checkpoint.
+     * Formats with a header must not write it again.
+     * @param channel The destination of the calls, closed with the writer
+     * @param config The configuration of the generator
+     * @return The writer
+     * @throws IOException If the writer could not be created
+     */
+    default CallWriter resume(WritableByteChannel channel, Map<String, Object> config) throws IOException {
+        return open(channel, config);
+    }
+}
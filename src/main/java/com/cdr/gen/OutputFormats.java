@@ -0,0 +1,138 @@
+package com.cdr.gen;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceLoader;
+
+/**
+ * The registry of the available {@link OutputFormat}s.
+ * @author Maycon Viana Bordin <mayconbordin@gmail.com>
+ */
+public final class OutputFormats {
+    public static final String DEFAULT_FORMAT = CsvOutputFormat.NAME;
+    
+    private static final Map<String, OutputFormat> FORMATS = new LinkedHashMap<String, OutputFormat>();
+    
+    static {
+        register(new CsvOutputFormat());
+        register(new ColumnarOutputFormat());
+        
+        for (OutputFormat format : ServiceLoader.load(OutputFormat.class)) {
+            register(format);
+        }
+    }
+
+    private OutputFormats() {}
+    
+    public static synchronized void register(OutputFormat format) {
+        FORMATS.put(format.getName(), format);
+    }
+    
+    /**
+     * @return The names of the registered formats
+     */
+    public static synchronized List<String> getNames() {
+        return new ArrayList<String>(FORMATS.keySet());
+    }
+    
+    /**
+     * @param name The name of the format
+     * @return The format with the given name
+     */
+    public static synchronized OutputFormat forName(String name) {
+        OutputFormat format = FORMATS.get(name);
+        
+        if (format == null)
+            throw new IllegalArgumentException("Unknown output format '" + name + "'.");
+        
+        return format;
+    }
+    
+    /**
+     * Selects the format of an output file, either from the <code>outputFormat</code>
+     * configuration or from the extension of the file, ignoring the extension of
+     * the compression codec, falling back to {@link #DEFAULT_FORMAT}.
+     * @param outputFile The path of the output file
+     * @param config The configuration of the generator
+     * @return The format of the output file
+     */
+    public static synchronized OutputFormat forFile(String outputFile, Map<String, Object> config) {
+        if (config.containsKey("outputFormat")) {
+            return forName((String) config.get("outputFormat"));
+        }
+        
+        String path = Compression.stripExtension(outputFile);
+        
+        for (OutputFormat format : FORMATS.values()) {
+            if (path.endsWith(format.getExtension()))
+                return format;
+        }
+        
+        return FORMATS.get(DEFAULT_FORMAT);
+    }
+    
+    /**
+     * Creates the output file and a writer in its format.
+     * @param outputFile The path of the output file
+     * @param config The configuration of the generator
+     * @return The writer of the output file
+     * @throws IOException If the file could not be created
+     */
+    public static CallWriter open(String outputFile, Map<String, Object> config) throws IOException {
+        return open(forFile(outputFile, config), outputFile, config);
+    }
+    
+    /**
+     * Creates the output file and a writer in the given format. The output is
+     * compressed if required by {@link Compression}.
+     * @param format The format of the file
+     * @param outputFile The path of the output file
+     * @param config The configuration of the generator
+     * @return The writer of the output file
+     * @throws IOException If the file could not be created
+     */
+    public static CallWriter open(OutputFormat format, String outputFile, Map<String, Object> config) throws IOException {
+        FileChannel channel = FileChannel.open(Paths.get(outputFile), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        
+        try {
+            return format.open(Compression.wrap(channel, outputFile, config), config);
+        } catch (IOException ex) {
+            channel.close();
+            throw ex;
+        } catch (RuntimeException ex) {
+            channel.close();
+            throw ex;
+        }
+    }
+    
+    /**
+     * Opens an output file written by {@link #open(OutputFormat, String, Map)}
+     * to append more calls to it, without writing the header of the format again.
+     * @param format The format of the file
+     * @param outputFile The path of the output file
+     * @param config The configuration of the generator
+     * @return The writer of the output file
+     * @throws IOException If the file could not be opened
+     */
+    public static CallWriter append(OutputFormat format, String outputFile, Map<String, Object> config) throws IOException {
+        FileChannel channel = FileChannel.open(Paths.get(outputFile), StandardOpenOption.CREATE,
+                StandardOpenOption.APPEND, StandardOpenOption.WRITE);
+        
+        try {
+            return format.resume(Compression.wrap(channel, outputFile, config), config);
+        } catch (IOException ex) {
+            channel.close();
+            throw ex;
+        } catch (RuntimeException ex) {
+            channel.close();
+            throw ex;
+        }
+    }
+}
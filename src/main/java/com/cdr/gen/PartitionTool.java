@@ -0,0 +1,227 @@
+package com.cdr.gen;
+
+import com.cdr.gen.util.RandomSources;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.log4j.Logger;
+
+/**
+ * Merges and verifies the files of a generation split across nodes with the
+ * <code>partition</code> option (see {@link Population#setPartition(String)}).
+ *
+ * <pre>
+ * merge &lt;output_file&gt; &lt;part_file&gt;...
+ * verify [--reference &lt;file&gt;] &lt;part_file&gt;...
+ * </pre>
+ *
+ * The verification checks that no call id is repeated across the partitions and,
+ * given the output of a single node with the same configuration, that the union
+ * of the partitions has exactly the same records. The records are compared as a
+ * multiset, as the terminating records of customers of other partitions are
+ * written by the partition of the caller.
+ *
+ * @author Maycon Viana Bordin <mayconbordin@gmail.com>
+ */
+public final class PartitionTool {
+    private static final Logger LOG = Logger.getLogger(PartitionTool.class);
+    
+    private static final int BUFFER_SIZE = 1 << 16;
+    
+    private PartitionTool() {}
+    
+    public static void main(String[] args) throws IOException {
+        if (args.length > 2 && args[0].equals("merge")) {
+            merge(args[1], Arrays.asList(args).subList(2, args.length));
+        } else if (args.length > 1 && args[0].equals("verify")) {
+            boolean hasReference = args[1].equals("--reference") && args.length > 3;
+            String reference = hasReference ? args[2] : null;
+            
+            if (!verify(Arrays.asList(args).subList(hasReference ? 3 : 1, args.length), reference))
+                System.exit(1);
+        } else {
+            System.out.println("Usage: java -cp <jar> " + PartitionTool.class.getName()
+                    + " merge <output_file> <part_file>... | verify [--reference <file>] <part_file>...");
+            System.exit(1);
+        }
+    }
+    
+    /**
+     * Concatenates the partitions, in the given order, into a single file. The
+     * format and compression of each file are taken from its extension.
+     * @param outputFile The path of the merged file
+     * @param parts The paths of the partitions
+     * @throws IOException If the files could not be read or written
+     */
+    public static void merge(String outputFile, List<String> parts) throws IOException {
+        Map<String, Object> config = new HashMap<String, Object>();
+        OutputFormat format = OutputFormats.forFile(outputFile, config);
+        
+        for (String part : parts) {
+            if (OutputFormats.forFile(part, config) != format)
+                throw new IllegalArgumentException("The partition '" + part + "' is not in the "
+                        + format.getName() + " format.");
+        }
+        
+        if (format.getName().equals(ColumnarOutputFormat.NAME)) {
+            // the blocks are self-contained, but each file has its own header
+            try (CallWriter writer = OutputFormats.open(format, outputFile, config)) {
+                for (String part : parts) {
+                    try (ColumnarCallReader reader = new ColumnarCallReader(Compression.openInput(part))) {
+                        while (reader.next()) {
+                            writer.write(reader.getPhoneNumber(), reader.toCall());
+                        }
+                    }
+                }
+            }
+        } else {
+            FileChannel file = FileChannel.open(Paths.get(outputFile), StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+            
+            try (WritableByteChannel output = Compression.wrap(file, outputFile, config)) {
+                ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+                
+                for (String part : parts) {
+                    try (ReadableByteChannel input = Compression.openInput(part)) {
+                        while (input.read(buffer) >= 0) {
+                            ((Buffer) buffer).flip();
+                            while (buffer.hasRemaining()) {
+                                output.write(buffer);
+                            }
+                            ((Buffer) buffer).clear();
+                        }
+                    }
+                }
+            }
+        }
+        
+        LOG.info("Merged " + parts.size() + " partitions into '" + outputFile + "'");
+    }
+    
+    /**
+     * @param parts The paths of the partitions
+     * @param reference The path of the output of a single node, or null
+     * @return True if the call ids are unique and the records match the reference
+     * @throws IOException If the files could not be read
+     */
+    public static boolean verify(List<String> parts, String reference) throws IOException {
+        Records records = new Records();
+        
+        for (String part : parts) {
+            read(part, records);
+        }
+        
+        long[] ids = records.sortedIds();
+        for (int i=1; i<ids.length; i++) {
+            if (ids[i] == ids[i-1]) {
+                LOG.error("The call id " + ids[i] + " is repeated in the partitions.");
+                return false;
+            }
+        }
+        
+        if (reference != null) {
+            Records expected = new Records();
+            read(reference, expected);
+            
+            if (!Arrays.equals(records.sortedHashes(), expected.sortedHashes())) {
+                LOG.error("The partitions have " + records.size + " records that don't match the "
+                        + expected.size + " records of '" + reference + "'.");
+                return false;
+            }
+        }
+        
+        LOG.info("Verified " + records.size + " records in " + parts.size() + " partitions");
+        return true;
+    }
+    
+    /**
+     * Reads the call id and the hash of each record of the file.
+     * @param file The path of the file
+     * @param records The destination of the records
+     * @throws IOException If the file could not be read
+     */
+    private static void read(String file, Records records) throws IOException {
+        OutputFormat format = OutputFormats.forFile(file, new HashMap<String, Object>());
+        
+        if (format.getName().equals(ColumnarOutputFormat.NAME)) {
+            try (ColumnarCallReader reader = new ColumnarCallReader(Compression.openInput(file))) {
+                while (reader.next()) {
+                    long hash = RandomSources.mix(reader.getId());
+                    hash = RandomSources.mix(hash ^ reader.getPackedPhoneNumber());
+                    hash = RandomSources.mix(hash ^ reader.getLine());
+                    hash = RandomSources.mix(hash ^ reader.getPackedDestPhoneNumber());
+                    hash = RandomSources.mix(hash ^ reader.getStart());
+                    hash = RandomSources.mix(hash ^ reader.getDuration());
+                    hash = RandomSources.mix(hash ^ reader.getType().hashCode());
+                    hash = RandomSources.mix(hash ^ reader.getFixedCost());
+                    
+                    records.add(reader.getId(), hash);
+                }
+            }
+        } else {
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                    Channels.newInputStream(Compression.openInput(file)), StandardCharsets.UTF_8), BUFFER_SIZE)) {
+                String line;
+                
+                while ((line = reader.readLine()) != null) {
+                    int comma = line.indexOf(',');
+                    
+                    if (comma < 0)
+                        throw new IOException("Invalid record '" + line + "' in '" + file + "'.");
+                    
+                    long hash = 0;
+                    for (int i=0; i<line.length(); i++) {
+                        hash = 31 * hash + line.charAt(i);
+                    }
+                    
+                    records.add(Long.parseLong(line.substring(0, comma)), RandomSources.mix(hash));
+                }
+            }
+        }
+    }
+    
+    /**
+     * The call ids and hashes of the records, in growable primitive arrays.
+     */
+    private static class Records {
+        private long[] ids = new long[1024];
+        private long[] hashes = new long[1024];
+        private int size;
+        
+        void add(long id, long hash) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                hashes = Arrays.copyOf(hashes, size * 2);
+            }
+            
+            ids[size] = id;
+            hashes[size++] = hash;
+        }
+        
+        long[] sortedIds() {
+            long[] sorted = Arrays.copyOf(ids, size);
+            Arrays.sort(sorted);
+            return sorted;
+        }
+        
+        long[] sortedHashes() {
+            long[] sorted = Arrays.copyOf(hashes, size);
+            Arrays.sort(sorted);
+            return sorted;
+        }
+    }
+}
@@ -1,7 +1,8 @@
 package com.cdr.gen;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -10,18 +11,32 @@ import java.util.Map;
  * @author Maycon Viana Bordin <mayconbordin@gmail.com>
  */
 public class Person {
+    private long id;
     private String phoneNumber;
     private int phoneLines;
     
     // summary info
     private long numCalls;
+    private long numIncomingCalls;
     
-    // model information about the call spread
-    private Map<String, Long> avgCallDuration = new HashMap<String, Long>();
-    private Map<String, Long> avgOffPeakCallDuration = new HashMap<String, Long>();
+    // model information about the call spread, by call type ordinal
+    private List<String> callTypes = Collections.emptyList();
+    private long[] avgCallDuration = new long[0];
+    private long[] avgOffPeakCallDuration = new long[0];
     
     private List<Call> calls;
 
+    /**
+     * @return The index of the account, unique within the population
+     */
+    public long getId() {
+        return id;
+    }
+
+    public void setId(long id) {
+        this.id = id;
+    }
+
     public String getPhoneNumber() {
         return phoneNumber;
     }
@@ -47,20 +62,96 @@ public class Person {
         this.calls = new ArrayList<Call>(((Long)numCalls).intValue());
     }
 
+    /**
+     * @return The number of calls received from outside the population
+     */
+    public long getNumIncomingCalls() {
+        return numIncomingCalls;
+    }
+
+    public void setNumIncomingCalls(long numIncomingCalls) {
+        this.numIncomingCalls = numIncomingCalls;
+    }
+
+    public List<String> getCallTypes() {
+        return callTypes;
+    }
+
+    /**
+     * @param callTypes The call types of the configuration, whose ordinals index
+     *                  the average durations, which are reset
+     */
+    public void setCallTypes(List<String> callTypes) {
+        this.callTypes = callTypes;
+        avgCallDuration = new long[callTypes.size()];
+        avgOffPeakCallDuration = new long[callTypes.size()];
+    }
+
+    /**
+     * @param callType The ordinal of the call type
+     * @return The average duration of the calls of the type
+     */
+    public long getAvgCallDuration(int callType) {
+        return avgCallDuration[callType];
+    }
+
+    public void setAvgCallDuration(int callType, long duration) {
+        avgCallDuration[callType] = duration;
+    }
+
+    /**
+     * @param callType The ordinal of the call type
+     * @return The average duration of the calls of the type in off peak
+     */
+    public long getAvgOffPeakCallDuration(int callType) {
+        return avgOffPeakCallDuration[callType];
+    }
+
+    public void setAvgOffPeakCallDuration(int callType, long duration) {
+        avgOffPeakCallDuration[callType] = duration;
+    }
+
+    /**
+     * @return A copy of the average durations, by call type
+     */
     public Map<String, Long> getAvgCallDuration() {
-        return avgCallDuration;
+        return toMap(avgCallDuration);
     }
 
     public void setAvgCallDuration(Map<String, Long> avgCallDuration) {
-        this.avgCallDuration = avgCallDuration;
+        this.avgCallDuration = fromMap(avgCallDuration);
     }
 
+    /**
+     * @return A copy of the average durations in off peak, by call type
+     */
     public Map<String, Long> getAvgOffPeakCallDuration() {
-        return avgOffPeakCallDuration;
+        return toMap(avgOffPeakCallDuration);
     }
 
     public void setAvgOffPeakCallDuration(Map<String, Long> avgOffPeakCallDuration) {
-        this.avgOffPeakCallDuration = avgOffPeakCallDuration;
+        this.avgOffPeakCallDuration = fromMap(avgOffPeakCallDuration);
+    }
+
+    private Map<String, Long> toMap(long[] durations) {
+        Map<String, Long> map = new LinkedHashMap<String, Long>(durations.length);
+        for (int i=0; i<durations.length; i++) {
+            map.put(callTypes.get(i), durations[i]);
+        }
+        return map;
+    }
+
+    private long[] fromMap(Map<String, Long> map) {
+        if (callTypes.isEmpty()) {
+            setCallTypes(new ArrayList<String>(map.keySet()));
+        }
+        
+        long[] durations = new long[callTypes.size()];
+        for (int i=0; i<durations.length; i++) {
+            Long duration = map.get(callTypes.get(i));
+            durations[i] = (duration == null) ? 0 : duration;
+        }
+        return durations;
     }
 
     public List<Call> getCalls() {
@@ -1,6 +1,9 @@
 package com.cdr.gen;
 
+import com.cdr.gen.util.PhoneNumbers;
 import com.cdr.gen.util.RandomGaussian;
+import com.cdr.gen.util.RandomSource;
+import com.cdr.gen.util.RandomSources;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -11,11 +14,46 @@ import java.util.Map;
  * @author Maycon Viana Bordin <mayconbordin@gmail.com>
  */
 public class PhoneBucketGenerator {
-    private Map<String, Object> outgoingNumberDist;
+    static final int PHONE_NUMBER_DIGITS = 11;
+    private static final int LOCAL_CODE_DIGITS = 4;
+    
+    private RandomSource random;
+    
+    private GeneratorConfig config;
+    private List<String> callTypes;
+    private PhoneCodeTable phoneCodes;
+    private int localType;
+    private int nationalType;
+    private SubscriberDirectory directory;
 
     public PhoneBucketGenerator(Map<String, Object> config) {
-        outgoingNumberDist = (Map<String, Object>) config.get("outgoingNumberDistribution");
+        this(new GeneratorConfig(config));
+    }
+
+    public PhoneBucketGenerator(GeneratorConfig config) {
+        this(config, new PhoneCodeTable(config.getCallTypes()));
+    }
+
+    /**
+     * @param config The configuration of the generator
+     * @param phoneCodes The phone codes of the call types of the configuration
+     */
+    public PhoneBucketGenerator(Map<String, Object> config, PhoneCodeTable phoneCodes) {
+        this(new GeneratorConfig(config), phoneCodes);
+    }
+
+    /**
+     * @param config The configuration of the generator
+     * @param phoneCodes The phone codes of the call types of the configuration
+     */
+    public PhoneBucketGenerator(GeneratorConfig config, PhoneCodeTable phoneCodes) {
+        this.config = config;
+        random = RandomSources.fromConfig(config.getOptions());
         
+        this.phoneCodes = phoneCodes;
+        callTypes = config.getCallTypes();
+        localType = callTypes.indexOf("Local");
+        nationalType = callTypes.indexOf("National");
     }
     
     /**
@@ -25,14 +63,24 @@ public class PhoneBucketGenerator {
      * @return The generated numbers, separated by type of call
      */
     public Map<String, List<String>> createPhoneBucket(Person p, Map<String, Integer> callTypeSummary) {
-        Map<String, Long> params;
+        return createPhoneBucket(random, p, callTypeSummary);
+    }
+    
+    /**
+     * Create the set of random phone number based on the frequency of each call type.
+     * @param random The random number generator
+     * @param p The person for which the phone numbers will be generated.
+     * @param callTypeSummary The frequency of each call type
+     * @return The generated numbers, separated by type of call
+     */
+    public Map<String, List<String>> createPhoneBucket(RandomSource random, Person p, Map<String, Integer> callTypeSummary) {
         Map<String, List<String>> destPhoneNumbers = new HashMap<String, List<String>>(callTypeSummary.size());
         
         for (Map.Entry<String, Integer> e : callTypeSummary.entrySet()) {
-            params = (Map<String, Long>) outgoingNumberDist.get(e.getKey());
+            int type = config.ordinalOf(e.getKey());
             
-            RandomGaussian gauss = RandomGaussian.generate(
-                    params.get("stdDev"), params.get("mean"));
+            RandomGaussian gauss = RandomGaussian.generate(random,
+                    config.getNumberStdDev(type), config.getNumberMean(type));
             
             Double count = Math.ceil((e.getValue() / 100.0) * Math.abs(gauss.getValueOne()));
             int phoneCount = (count > 0) ? count.intValue() : 1;
@@ -46,10 +94,10 @@ public class PhoneBucketGenerator {
             
             for (int i=0; i<phoneCount; i++) {
                 if (e.getKey().equals("Local")) {
-                    phoneNumber = code + PhoneNumberGenerator.getRandomNumber(7);
+                    phoneNumber = code + PhoneNumberGenerator.getRandomNumber(random, 7);
                 } else {
-                    String destCode = PhoneNumberGenerator.getRandomPhoneCode(e.getKey(), code);
-                    phoneNumber = destCode + PhoneNumberGenerator.getRandomNumber(11 - destCode.length());
+                    String destCode = PhoneNumberGenerator.getRandomPhoneCode(random, e.getKey(), code);
+                    phoneNumber = destCode + PhoneNumberGenerator.getRandomNumber(random, 11 - destCode.length());
                 }
 
                 destPhoneNumbers.get(e.getKey()).add(phoneNumber);
@@ -58,4 +106,76 @@ public class PhoneBucketGenerator {
         
         return destPhoneNumbers;
     }
+    
+    /**
+     * Create the set of random phone numbers based on the frequency of each call
+     * type, with the numbers packed by {@link PhoneNumbers}.
+     * 
+     * Local numbers share the first digits of the number of the customer, the
+     * numbers of the other types start with a random code of the type other than
+     * the one of the customer. If there is a {@link SubscriberDirectory}, local
+     * and national numbers are drawn from the other customers instead.
+     * 
+     * @param random The random number generator
+     * @param phoneNumber The packed phone number of the customer
+     * @param callTypeCounts The number of calls of each call type, by ordinal
+     * @return The generated numbers, by call type ordinal, empty for the types
+     *         without calls
+     */
+    public long[][] createPhoneBucket(RandomSource random, long phoneNumber, int[] callTypeCounts) {
+        long[][] destPhoneNumbers = new long[callTypeCounts.length][];
+        long localCode = PhoneCodeTable.getPrefix(phoneNumber, LOCAL_CODE_DIGITS);
+        
+        for (int type=0; type<callTypeCounts.length; type++) {
+            if (callTypeCounts[type] == 0) {
+                destPhoneNumbers[type] = new long[0];
+                continue;
+            }
+            
+            RandomGaussian gauss = RandomGaussian.generate(random,
+                    config.getNumberStdDev(type), config.getNumberMean(type));
+            
+            double count = Math.ceil((callTypeCounts[type] / 100.0) * Math.abs(gauss.getValueOne()));
+            long[] numbers = new long[(count > 0) ? (int) count : 1];
+            
+            int excluded = (type == localType) ? -1 : phoneCodes.indexOfPrefix(type, phoneNumber);
+            
+            for (int i=0; i<numbers.length; i++) {
+                long number = 0;
+                
+                if (directory != null && type == localType) {
+                    number = directory.getLocalNumber(random, phoneNumber);
+                } else if (directory != null && type == nationalType) {
+                    number = directory.getNationalNumber(random, phoneNumber);
+                }
+                
+                if (number == 0) {
+                    long code = (type == localType) ? localCode 
+                            : phoneCodes.getRandomCode(random, type, excluded);
+                    number = PhoneCodeTable.getRandomNumber(random, code, PHONE_NUMBER_DIGITS);
+                }
+                
+                numbers[i] = number;
+            }
+            
+            destPhoneNumbers[type] = numbers;
+        }
+        
+        return destPhoneNumbers;
+    }
+    
+    /**
+     * @param directory The customers that local and national calls are made to,
+     *                  or null to generate random numbers
+     */
+    public void setSubscriberDirectory(SubscriberDirectory directory) {
+        this.directory = directory;
+    }
+    
+    /**
+     * @return The phone codes used to generate the numbers
+     */
+    public PhoneCodeTable getPhoneCodes() {
+        return phoneCodes;
+    }
 }
@@ -0,0 +1,211 @@
+package com.cdr.gen;
+
+import com.cdr.gen.util.PhoneNumbers;
+import com.cdr.gen.util.RandomSource;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The phone codes of each call type, packed into sorted arrays indexed by the
+ * ordinal of the call type, so that codes and phone numbers can be generated as
+ * packed longs (see {@link PhoneNumbers}) without creating strings.
+ * @author Maycon Viana Bordin <mayconbordin@gmail.com>
+ */
+public class PhoneCodeTable {
+    private static final long[] POWERS_OF_TEN = new long[PhoneNumbers.MAX_DIGITS + 1];
+    private static final int MAX_INT_DIGITS = 9;
+    
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i=1; i<POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i-1] * 10;
+        }
+    }
+    
+    private final List<String> callTypes;
+    private final long[][] codes;
+    
+    /**
+     * Builds the table from the codes of {@link PhoneNumberGenerator#PHONE_CODES}.
+     * @param callTypes The call types, the index of a type is its ordinal in the table
+     */
+    public PhoneCodeTable(List<String> callTypes) {
+        this(callTypes, PhoneNumberGenerator.PHONE_CODES);
+    }
+    
+    /**
+     * @param callTypes The call types, the index of a type is its ordinal in the table
+     * @param phoneCodes The phone codes of each call type
+     */
+    public PhoneCodeTable(List<String> callTypes, Map<String, List<String>> phoneCodes) {
+        this.callTypes = callTypes;
+        codes = new long[callTypes.size()][];
+        
+        for (int type=0; type<codes.length; type++) {
+            List<String> typeCodes = phoneCodes.containsKey(callTypes.get(type))
+                    ? phoneCodes.get(callTypes.get(type)) : Collections.<String>emptyList();
+            
+            codes[type] = new long[typeCodes.size()];
+            for (int i=0; i<codes[type].length; i++) {
+                codes[type][i] = PhoneNumbers.pack(typeCodes.get(i));
+            }
+            
+            // the length is in the upper bits, so the codes are sorted by length
+            // and then by value
+            Arrays.sort(codes[type]);
+        }
+    }
+    
+    /**
+     * @param callType The name of the call type
+     * @return The ordinal of the call type
+     */
+    public int ordinalOf(String callType) {
+        int ordinal = callTypes.indexOf(callType);
+        
+        if (ordinal < 0)
+            throw new IllegalArgumentException("Unknown call type '" + callType + "'.");
+        
+        return ordinal;
+    }
+    
+    /**
+     * @param type The ordinal of the call type
+     * @return The number of codes of the call type
+     */
+    public int size(int type) {
+        return codes[type].length;
+    }
+    
+    /**
+     * @param type The ordinal of the call type
+     * @param index The index of the code
+     * @return The packed phone code
+     */
+    public long getCode(int type, int index) {
+        return codes[type][index];
+    }
+    
+    /**
+     * @param type The ordinal of the call type
+     * @param code The packed phone code
+     * @return The index of the code, or -1 if the call type doesn't have the code
+     */
+    public int indexOf(int type, long code) {
+        int index = Arrays.binarySearch(codes[type], code);
+        return (index < 0) ? -1 : index;
+    }
+    
+    /**
+     * Finds the code of the call type that the phone number starts with, if any.
+     * @param type The ordinal of the call type
+     * @param number The packed phone number
+     * @return The index of the longest code that is a prefix of the number, or -1
+     */
+    public int indexOfPrefix(int type, long number) {
+        int length = PhoneNumbers.length(number);
+        long value = PhoneNumbers.value(number);
+        
+        for (int digits=length; digits>0; digits--) {
+            int index = indexOf(type, PhoneNumbers.pack(digits, value / POWERS_OF_TEN[length - digits]));
+            
+            if (index >= 0)
+                return index;
+        }
+        
+        return -1;
+    }
+    
+    /**
+     * Picks a random code of the call type. The excluded code is skipped by
+     * drawing from the remaining codes, unless it is the only code of the type.
+     * @param random The random number generator
+     * @param type The ordinal of the call type
+     * @param excluded The index of the code to be excluded, or -1
+     * @return The packed phone code
+     */
+    public long getRandomCode(RandomSource random, int type, int excluded) {
+        return codes[type][getRandomCodeIndex(random, type, excluded)];
+    }
+    
+    /**
+     * Picks the index of a random code of the call type, see {@link #getRandomCode(RandomSource, int, int)}.
+     * @param random The random number generator
+     * @param type The ordinal of the call type
+     * @param excluded The index of the code to be excluded, or -1
+     * @return The index of the code
+     */
+    public int getRandomCodeIndex(RandomSource random, int type, int excluded) {
+        int size = codes[type].length;
+        
+        if (size == 0)
+            throw new IllegalStateException("There are no phone codes for the call type '"
+                    + callTypes.get(type) + "'.");
+        
+        if (excluded < 0 || size == 1)
+            return random.nextInt(size);
+        
+        int index = random.nextInt(size - 1);
+        return (index >= excluded) ? index + 1 : index;
+    }
+    
+    /**
+     * @param type The ordinal of the call type
+     * @return A copy of the sorted packed codes of the call type
+     */
+    public long[] getCodes(int type) {
+        return codes[type].clone();
+    }
+    
+    /**
+     * Completes a phone number with random digits.
+     * @param random The random number generator
+     * @param prefix The packed prefix of the number, usually a phone code
+     * @param numDigits The number of digits of the phone number
+     * @return The packed phone number
+     */
+    public static long getRandomNumber(RandomSource random, long prefix, int numDigits) {
+        int prefixDigits = PhoneNumbers.length(prefix);
+        int digits = numDigits - prefixDigits;
+        
+        if (digits <= 0)
+            return prefix;
+        
+        if (numDigits > PhoneNumbers.MAX_DIGITS)
+            throw new IllegalArgumentException("Phone numbers can't have more than "
+                    + PhoneNumbers.MAX_DIGITS + " digits.");
+        
+        long value = PhoneNumbers.value(prefix) * POWERS_OF_TEN[digits];
+        
+        if (digits > MAX_INT_DIGITS) {
+            value += random.nextInt((int) POWERS_OF_TEN[digits - MAX_INT_DIGITS]) * POWERS_OF_TEN[MAX_INT_DIGITS];
+            digits = MAX_INT_DIGITS;
+        }
+        
+        return PhoneNumbers.pack(numDigits, value + random.nextInt((int) POWERS_OF_TEN[digits]));
+    }
+    
+    /**
+     * @param n The exponent, up to {@link PhoneNumbers#MAX_DIGITS}
+     * @return Ten to the power of n
+     */
+    public static long pow10(int n) {
+        return POWERS_OF_TEN[n];
+    }
+    
+    /**
+     * @param number The packed phone number
+     * @param numDigits The number of digits of the prefix
+     * @return The packed prefix of the number
+     */
+    public static long getPrefix(long number, int numDigits) {
+        int length = PhoneNumbers.length(number);
+        
+        if (numDigits >= length)
+            return number;
+        
+        return PhoneNumbers.pack(numDigits, PhoneNumbers.value(number) / POWERS_OF_TEN[length - numDigits]);
+    }
+}
@@ -2,6 +2,7 @@ package com.cdr.gen;
 
 import com.cdr.gen.util.IOUtils;
 import com.cdr.gen.util.JavaUtils;
+import com.cdr.gen.util.RandomSource;
 import com.cdr.gen.util.RandomUtil;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
@@ -12,7 +13,6 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Random;
 import org.apache.log4j.Logger;
 import org.supercsv.io.CsvListReader;
 import org.supercsv.io.ICsvListReader;
@@ -71,14 +71,27 @@ public class PhoneNumberGenerator {
      * @return The random phone number
      */
     public static String getRandomNumber(int numDigits) {
-        Random rnd = new Random(System.currentTimeMillis());
+        char[] number = new char[numDigits];
+        for (int i=0; i<numDigits; i++) {
+            number[i] = (char) ('0' + RandomUtil.randInt(0, 9));
+        }
         
-        String number = "";
+        return new String(number);
+    }
+    
+    /**
+     * Generates a random phone number using the given random number generator.
+     * @param random The random number generator
+     * @param numDigits The number of digits
+     * @return The random phone number
+     */
+    public static String getRandomNumber(RandomSource random, int numDigits) {
+        char[] number = new char[numDigits];
         for (int i=0; i<numDigits; i++) {
-            number += RandomUtil.randInt(0, 9);
+            number[i] = (char) ('0' + random.nextInt(10));
         }
         
-        return number;
+        return new String(number);
     }
     
     /**
@@ -88,20 +101,47 @@ public class PhoneNumberGenerator {
      * @return The phone code
      */
     public static String getRandomPhoneCode(String callType, String currCode) {
-        int num;
-        String code = "";
+        List<String> codes = PHONE_CODES.get(callType);
         
-        if (!PHONE_CODES.containsKey(callType)) {
+        if (codes == null) {
             return null;
         }
         
-        do {
-            num = RandomUtil.randInt(0, PHONE_CODES.get(callType).size()-1);
-            code = PHONE_CODES.get(callType).get(num);
-        } while (code.equals(currCode));
+        int excluded = indexOfExcluded(codes, currCode);
+        int num = RandomUtil.randInt(0, codes.size() - (excluded < 0 ? 1 : 2));
         
-        return code;
+        return codes.get((excluded < 0 || num < excluded) ? num : num+1);
     }
     
+    /**
+     * Returns a randomly picked phone code using the given random number generator.
+     * @param random The random number generator
+     * @param callType The type of call for the phone code
+     * @param currCode The code to be excluded from the returned code
+     * @return The phone code
+     */
+    public static String getRandomPhoneCode(RandomSource random, String callType, String currCode) {
+        List<String> codes = PHONE_CODES.get(callType);
+        
+        if (codes == null) {
+            return null;
+        }
+        
+        int excluded = indexOfExcluded(codes, currCode);
+        int num = random.nextInt(codes.size() - (excluded < 0 ? 0 : 1));
+        
+        return codes.get((excluded < 0 || num < excluded) ? num : num+1);
+    }
     
+    /**
+     * The excluded code is skipped by drawing from the other codes, instead of
+     * drawing again until a different code comes up.
+     * @param codes The phone codes of a call type
+     * @param currCode The code to be excluded
+     * @return The index of the code to be skipped, or -1 if none is, which is also
+     *         the case when the code is the only one
+     */
+    private static int indexOfExcluded(List<String> codes, String currCode) {
+        return (codes.size() > 1) ? codes.indexOf(currCode) : -1;
+    }
 }
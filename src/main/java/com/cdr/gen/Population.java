@@ -1,16 +1,25 @@
 package com.cdr.gen;
 
-import com.cdr.gen.util.RandomUtil;
+import com.cdr.gen.util.PhoneNumbers;
 import com.cdr.gen.util.RandomGaussian;
+import com.cdr.gen.util.RandomSource;
+import com.cdr.gen.util.RandomSources;
+import com.cdr.gen.util.RandomUtil;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collections;
+import java.util.Deque;
 import java.util.List;
 import java.util.Map;
-import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import org.apache.log4j.Logger;
-import org.joda.time.DateTime;
 import org.joda.time.Interval;
-import org.joda.time.format.DateTimeFormat;
 
 /**
  * This class creates the defined number of customers and a set of calls following
@@ -20,229 +29,726 @@ import org.joda.time.format.DateTimeFormat;
  */
 public class Population {
     private static final Logger LOG = Logger.getLogger(Population.class);
+    
+    /**
+     * Number of bits of a call id reserved for the index of the call within its
+     * account, the remaining bits hold the account index. This gives every account,
+     * and therefore every chunk, its own range of call ids.
+     */
+    public static final int CALL_ID_BITS = 24;
+    
+    /**
+     * Bit of the call id set in the records of calls received by the customer.
+     * The terminating record of a call made to another customer has the id of
+     * the call with this bit set, so both records can be matched.
+     */
+    public static final long INCOMING_CALL_FLAG = 1L << 62;
+    
+    public static final int DEFAULT_CHUNK_SIZE = 256;
+    public static final long DEFAULT_PROGRESS_INTERVAL = 10;
+    public static final int DEFAULT_MAX_PLACEMENT_RETRIES = 32;
+    private static final long MILLIS_PER_MINUTE = 60 * 1000L;
+    
     private int size;
-    private Map<String, Long> callsMade;
-    private Map<String, Long> phoneLines;
+    private int threads;
+    private int chunkSize;
+    private int maxPlacementRetries;
+    private int partition = 0;
+    private int numPartitions = 1;
+    private long seed;
+    private String rngAlgorithm;
+    private GeneratorConfig config;
     private List<String> callTypes;
-    private Map<String, Object> outgoingCallParams;
     private List<Person> population;
     
     private CallDistribution callDist;
     private DateTimeDistribution dateTimeDist;
+    private CallRater rater;
     
+    private PhoneCodeTable phoneCodes;
     private PhoneBucketGenerator phoneBucketGen;
+    private int localType;
     
-    private Random random;
+    private SubscriberDirectory directory;
+    private IncomingCallIndex pendingCalls = new IncomingCallIndex();
+    private Checkpointer checkpointer;
+    
+    private final GenerationMetrics metrics = new GenerationMetrics();
+    private long progressIntervalNanos;
+    private long nextProgress;
     
     public Population(Map<String, Object> config) {
-        this.size  = ((Long)config.get("numAccounts")).intValue();
-        callsMade  = (Map<String, Long>) config.get("callsMade");
-        phoneLines = (Map<String, Long>) config.get("phoneLines");
-        callTypes  = (List<String>) config.get("callTypes");
-        outgoingCallParams = (Map<String, Object>) config.get("outgoingCallParams");
+        this(new GeneratorConfig(config));
+    }
+    
+    /**
+     * @param generatorConfig The compiled configuration of the generator
+     */
+    public Population(GeneratorConfig generatorConfig) {
+        Map<String, Object> config = generatorConfig.getOptions();
+        this.config = generatorConfig;
+        this.size  = generatorConfig.getNumAccounts();
+        callTypes  = generatorConfig.getCallTypes();
         population = new ArrayList<Person>(size);
         
-        callDist = new CallDistribution(config);
-        dateTimeDist = new DateTimeDistribution(config);
+        threads = generatorConfig.getThreads();
+        
+        // customers are created in pairs, so a chunk must hold an even number of them
+        chunkSize = generatorConfig.getChunkSize();
+        chunkSize = Math.max(2, chunkSize + (chunkSize % 2));
+        
+        maxPlacementRetries = generatorConfig.getMaxPlacementRetries();
+        progressIntervalNanos = TimeUnit.SECONDS.toNanos(generatorConfig.getProgressInterval());
         
-        phoneBucketGen = new PhoneBucketGenerator(config);
+        callDist = new CallDistribution(generatorConfig);
+        dateTimeDist = new DateTimeDistribution(generatorConfig);
+        rater = new TariffRater(generatorConfig);
+        
+        phoneCodes = new PhoneCodeTable(callTypes);
+        phoneBucketGen = new PhoneBucketGenerator(generatorConfig, phoneCodes);
+        localType = phoneCodes.ordinalOf("Local");
+        
+        if (generatorConfig.getPartition() != null) {
+            setPartition(generatorConfig.getPartition());
+        }
         
-        random = new Random(System.currentTimeMillis());
+        rngAlgorithm = RandomSources.getAlgorithm(config);
+        seed = RandomSources.getSeed(config);
+        LOG.info("Using the " + rngAlgorithm + " random number generator with seed " + seed);
     }
     
     /**
-     * Create the population
+     * Create the population, keeping all customers in memory. The calls of each
+     * customer are held in a compact {@link CallStore}. Use {@link #create(CallSink)}
+     * for populations that don't fit in memory.
      */
     public void create() {
-        RandomGaussian gaussNum;
+        final long firstAccount = (long) firstChunk() * chunkSize;
+        final long lastAccount = Math.min(size, (long) lastChunk() * chunkSize);
+        final List<Person> others = new ArrayList<Person>();
+        
+        try {
+            create(new CallSink() {
+                @Override
+                public void write(Person customer) {
+                    // the terminating records of customers of other partitions
+                    if (customer.getId() < firstAccount || customer.getId() >= lastAccount) {
+                        others.add(customer);
+                        return;
+                    }
+                    
+                    // the terminating records of a customer that was already written
+                    if (customer.getId() - firstAccount < population.size()) {
+                        population.get((int) (customer.getId() - firstAccount)).getCalls().addAll(customer.getCalls());
+                        return;
+                    }
+                    
+                    customer.setCalls(CallStore.of(callTypes, customer.getCalls()).asList());
+                    population.add(customer);
+                }
+
+                @Override
+                public void close() {}
+            });
+        } catch (IOException ex) {
+            LOG.error("Error while creating the population.", ex);
+        }
+        
+        population.addAll(others);
+    }
+    
+    /**
+     * Create the population, handing each customer to the sink as soon as its
+     * calls are generated. The customers are not kept by the population, so memory
+     * usage doesn't grow with the number of accounts.
+     * 
+     * The accounts are split in chunks of <code>chunkSize</code> customers which
+     * are generated by <code>threads</code> workers, each chunk with its own random
+     * number generator. The chunks are handed to the sink in account order, so
+     * the sink is always called from the current thread, unless the sink is a
+     * {@link ConcurrentCallSink}, in which case the workers write to it directly.
+     * 
+     * The terminating records of the calls made to other customers are held in
+     * an {@link IncomingCallIndex} and written with the callee. If the callee
+     * was already written, or the workers write to the sink, they are written
+     * apart as soon as their chunk is done, grouped by callee.
+     * 
+     * The progress is logged every <code>progressInterval</code> seconds and is
+     * available through JMX while the population is created, see {@link GenerationMetrics}.
+     * 
+     * @param sink The destination of the generated customers, it is not closed
+     * @throws IOException If the sink fails to write a customer
+     */
+    public void create(CallSink sink) throws IOException {
+        int firstChunk = firstChunk();
+        int lastChunk = lastChunk();
+        
+        if (checkpointer != null) {
+            firstChunk = Math.max(firstChunk, checkpointer.start(seed, chunkSize, size));
+            pendingCalls = checkpointer.getPendingCalls();
+        }
+        
+        if (config.hasSubscriberDirectory() && directory == null) {
+            directory = new SubscriberDirectory(config, phoneCodes.getCodes(localType),
+                    getNumChunks(), this::createSubscribers);
+            phoneBucketGen.setSubscriberDirectory(directory);
+            LOG.info("Created a directory of " + directory.size() + " subscribers in "
+                    + directory.getNumAreas() + " areas");
+        }
+        
+        metrics.start(Math.max(0, Math.min(size, (long) lastChunk * chunkSize) - (long) firstChunk * chunkSize), sink);
+        nextProgress = System.nanoTime() + progressIntervalNanos;
+        
+        try {
+            createChunks(sink, firstChunk, lastChunk);
+        } finally {
+            metrics.stop();
+        }
+        
+        LOG.info("Created " + metrics);
+    }
+    
+    private void createChunks(CallSink sink, int firstChunk, int lastChunk) throws IOException {
+        if (threads <= 1) {
+            for (int chunk=firstChunk; chunk<lastChunk; chunk++) {
+                writeChunk(sink, chunk, createChunk(chunk, pendingCalls));
+            }
+            writeCustomers(sink, pendingCalls.removeAll());
+            return;
+        }
+        
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        CallSink workerSink = (sink instanceof ConcurrentCallSink) ? sink : null;
         
-        for (int i=0; i<size; i+=2) {
-            LOG.info("Creating person " + (i+1) + " and " + (i+2));
+        try {
+            // keep a bounded window of chunks in flight, so that memory usage stays
+            // constant while the workers are kept busy
+            Deque<Future<ChunkTask>> pending = new ArrayDeque<Future<ChunkTask>>();
+            int nextChunk = firstChunk;
+            
+            while (nextChunk < lastChunk || !pending.isEmpty()) {
+                while (nextChunk < lastChunk && pending.size() < threads * 2) {
+                    pending.add(pool.submit(new ChunkTask(nextChunk++, workerSink)));
+                }
+                
+                ChunkTask task = awaitChunk(pending.poll());
+                pendingCalls.addAll(task.incoming);
+                writeChunk(sink, task.chunk, task.customers);
+            }
+            
+            writeCustomers(sink, pendingCalls.removeAll());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+    
+    /**
+     * Writes the customers of a chunk with the terminating records held for
+     * them, the records of the customers already written are written first.
+     * @param sink The destination of the customers
+     * @param chunk The index of the chunk
+     * @param customers The customers of the chunk, in account order
+     * @throws IOException If the sink fails to write a customer
+     */
+    private void writeChunk(CallSink sink, int chunk, List<Person> customers) throws IOException {
+        writeCustomers(sink, pendingCalls.removeBefore((long) chunk * chunkSize));
+        
+        for (Person p : customers) {
+            List<Call> incoming = pendingCalls.remove(p.getId());
+            
+            if (incoming != null) {
+                p.getCalls().addAll(incoming);
+            }
+            sink.write(p);
+        }
+        
+        if (checkpointer != null) {
+            checkpointer.chunkWritten(chunk + 1, pendingCalls);
+        }
+        
+        if (progressIntervalNanos > 0 && System.nanoTime() >= nextProgress) {
+            LOG.info(metrics);
+            nextProgress = System.nanoTime() + progressIntervalNanos;
+        }
+    }
+    
+    private void writeCustomers(CallSink sink, List<Person> customers) throws IOException {
+        for (Person p : customers) {
+            sink.write(p);
+        }
+    }
+    
+    private ChunkTask awaitChunk(Future<ChunkTask> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while creating the population.");
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof IOException)
+                throw (IOException) ex.getCause();
+            if (ex.getCause() instanceof RuntimeException)
+                throw (RuntimeException) ex.getCause();
+            throw new IllegalStateException("Error while creating the population.", ex.getCause());
+        }
+    }
+    
+    /**
+     * Creates the customers of a chunk of accounts. The random number generator
+     * is derived only from the chunk index, so chunks are independent of each other
+     * and of the thread that creates them.
+     * @param chunk The index of the chunk
+     * @param incoming The index where the terminating records of the calls made
+     *                 to other customers are added
+     * @return The customers of the chunk, in account order
+     */
+    protected List<Person> createChunk(int chunk, IncomingCallIndex incoming) {
+        int first = chunk * chunkSize;
+        int last  = Math.min(size, first + chunkSize);
+        
+        RandomSource random = RandomSources.create(rngAlgorithm, RandomSources.streamSeed(seed, chunk));
+        List<Person> customers = new ArrayList<Person>(last - first);
+        long terminatingRecords = incoming.size();
+        long[] subscribers = (directory != null) ? createSubscribers(chunk) : null;
+        
+        for (int i=first; i<last; i+=2) {
             Person personOne = new Person();
             Person personTwo = new Person();
             
-            // create the phone number
-            LOG.info("Generating phone numbers");
-            personOne.setPhoneNumber(getRandomPhoneNumber());
-            personTwo.setPhoneNumber(getRandomPhoneNumber());
-            
-            // calculate the number of calls made
-            LOG.info("Calculating number of calls made");
-            gaussNum = getRandomGaussian(callsMade.get("stdDev"), callsMade.get("mean"));
-
-            personOne.setNumCalls(gaussNum.getValueOne().longValue());
-            personTwo.setNumCalls(gaussNum.getValueTwo().longValue());
-            
-            // calculate the average duration of a call per type
-            LOG.info("Calculating the average duration of a call per type");
-            for (String callType : callTypes) {
-                // peak time
-                gaussNum = getAvgCallDuration(callType, false);
-                personOne.getAvgCallDuration().put(callType, gaussNum.getValueOne().longValue());
-                personTwo.getAvgCallDuration().put(callType, gaussNum.getValueTwo().longValue());
-                
-                // off peak
-                gaussNum = getAvgCallDuration(callType, true);
-                personOne.getAvgOffPeakCallDuration().put(callType, gaussNum.getValueOne().longValue());
-                personTwo.getAvgOffPeakCallDuration().put(callType, gaussNum.getValueTwo().longValue());
+            // the numbers are the ones in the directory
+            if (subscribers != null) {
+                personOne.setPhoneNumber(getPhoneNumber(subscribers[i - first]));
+                if (i+1 < last) personTwo.setPhoneNumber(getPhoneNumber(subscribers[i + 1 - first]));
             }
             
-            // generate the number of phone lines
-            LOG.info("Generating the number of phone lines");
-            if (phoneLines.get("mean") > 1) {
-                if (phoneLines.get("stdDev") > 1) {
-                    gaussNum = getRandomGaussian(phoneLines.get("stdDev"), phoneLines.get("mean"));
-                    personOne.setPhoneLines(gaussNum.getValueOne().intValue());
-                    personTwo.setPhoneLines(gaussNum.getValueTwo().intValue());
-                } else {
-                    personOne.setPhoneLines(((Long)phoneLines.get("mean")).intValue());
-                    personTwo.setPhoneLines(((Long)phoneLines.get("mean")).intValue());
-                }
-            } else {
-                personOne.setPhoneLines(1);
-                personTwo.setPhoneLines(1);
+            createPair(random, i, personOne, personTwo);
+            
+            customers.add(personOne);
+            if (i+1 < last) customers.add(personTwo);
+        }
+        
+        if (directory != null && config.hasIncomingCalls()) {
+            for (Person p : customers) {
+                addTerminatingCalls(p, incoming);
             }
+        }
+        
+        metrics.chunkCreated(customers, incoming.size() - terminatingRecords);
+        return customers;
+    }
+    
+    /**
+     * Creates the terminating record of each call made to another customer. The
+     * record has the callee as the customer, the caller as the destination and
+     * no cost.
+     * 
+     * The callee may be created by another chunk, so the records don't go through
+     * its {@link CallCalendar} and may overlap the calls of the callee itself. For
+     * the same reason its number of lines isn't known, so the line of the record
+     * is drawn from the <code>phoneLines</code> mean, from its id so that it
+     * doesn't depend on the order in which the chunks are created.
+     * @param caller The customer that made the calls
+     * @param incoming The index of the terminating records
+     */
+    protected void addTerminatingCalls(Person caller, IncomingCallIndex incoming) {
+        long callerNumber = PhoneNumbers.pack(caller.getPhoneNumber());
+        
+        for (Call call : caller.getCalls()) {
+            long callee = call.isIncoming() ? -1 : directory.accountOf(call.getPackedDestPhoneNumber());
             
-            // create the user calls
-            LOG.info("Creating the calls for person " + (i+1));
-            createCalls(personOne);
+            if (callee < 0 || callee == caller.getId())
+                continue;
             
-            LOG.info("Creating the calls for person " + (i+2));
-            createCalls(personTwo);
+            Call record = new Call();
+            record.setId(call.getId() | INCOMING_CALL_FLAG);
+            record.setType(call.getType());
+            record.setLine(getTerminatingLine(record.getId()));
+            record.setTime(call.getStartMillis(), call.getEndMillis());
+            record.setPackedDestPhoneNumber(callerNumber);
+            
+            incoming.add(callee, call.getDestPhoneNumber(), record);
+        }
+    }
+    
+    /**
+     * @param id The id of the terminating record
+     * @return The line of the record, in the same range as the lines of the
+     *         calls of a customer with the mean number of lines
+     */
+    private int getTerminatingLine(long id) {
+        int lines = (config.getPhoneLinesMean() > 1) ? (int) config.getPhoneLinesMean() : 1;
+        double u = (RandomSources.mix(id) >>> 11) * 0x1.0p-53;
+        return (int) (u * lines + 0.5);
+    }
+    
+    /**
+     * Creates two customers at once, as the gaussian values are generated in pairs.
+     * @param random The random number generator
+     * @param i The account index of the first customer
+     * @param personOne The first customer
+     * @param personTwo The second customer
+     */
+    protected void createPair(RandomSource random, int i, Person personOne, Person personTwo) {
+        RandomGaussian gaussNum;
+        
+        personOne.setId(i);
+        personTwo.setId(i+1);
+        
+        // create the phone number, unless it was given by the directory
+        if (personOne.getPhoneNumber() == null)
+            personOne.setPhoneNumber(getRandomPhoneNumber(random));
+        if (personTwo.getPhoneNumber() == null)
+            personTwo.setPhoneNumber(getRandomPhoneNumber(random));
+
+        // calculate the number of calls made
+        gaussNum = getRandomGaussian(random, config.getCallsMadeStdDev(), config.getCallsMadeMean());
 
-            population.add(personOne);
-            population.add(personTwo);
+        personOne.setNumCalls(gaussNum.getValueOne().longValue());
+        personTwo.setNumCalls(gaussNum.getValueTwo().longValue());
+        
+        // calculate the number of calls received from outside the population
+        if (config.hasIncomingCalls()) {
+            gaussNum = getRandomGaussian(random, config.getIncomingCallsStdDev(), config.getIncomingCallsMean());
+            personOne.setNumIncomingCalls(gaussNum.getValueOne().longValue());
+            personTwo.setNumIncomingCalls(gaussNum.getValueTwo().longValue());
         }
+
+        // calculate the average duration of a call per type
+        personOne.setCallTypes(callTypes);
+        personTwo.setCallTypes(callTypes);
+        
+        for (int callType=0; callType<callTypes.size(); callType++) {
+            // peak time
+            gaussNum = getAvgCallDuration(random, callType, false);
+            personOne.setAvgCallDuration(callType, gaussNum.getValueOne().longValue());
+            personTwo.setAvgCallDuration(callType, gaussNum.getValueTwo().longValue());
+
+            // off peak
+            gaussNum = getAvgCallDuration(random, callType, true);
+            personOne.setAvgOffPeakCallDuration(callType, gaussNum.getValueOne().longValue());
+            personTwo.setAvgOffPeakCallDuration(callType, gaussNum.getValueTwo().longValue());
+        }
+
+        // generate the number of phone lines
+        if (config.getPhoneLinesMean() > 1) {
+            if (config.getPhoneLinesStdDev() > 1) {
+                gaussNum = getRandomGaussian(random, config.getPhoneLinesStdDev(), config.getPhoneLinesMean());
+                personOne.setPhoneLines(gaussNum.getValueOne().intValue());
+                personTwo.setPhoneLines(gaussNum.getValueTwo().intValue());
+            } else {
+                personOne.setPhoneLines((int) config.getPhoneLinesMean());
+                personTwo.setPhoneLines((int) config.getPhoneLinesMean());
+            }
+        } else {
+            personOne.setPhoneLines(1);
+            personTwo.setPhoneLines(1);
+        }
+
+        // create the user calls
+        createCalls(random, personOne);
+        createCalls(random, personTwo);
     }
     
     /**
      * Generates random gaussian numbers until they become greater than one.
+     * @param random The random number generator
      * @param stdDev The standard deviation
      * @param mean The average
      * @return A set of two random numbers
      */
-    protected RandomGaussian getRandomGaussian(long stdDev, long mean) {
+    protected RandomGaussian getRandomGaussian(RandomSource random, long stdDev, long mean) {
         RandomGaussian gaussNum;
+        int draws = 0;
         
         do {
-            gaussNum = RandomGaussian.generate(stdDev, mean);
+            gaussNum = RandomGaussian.generate(random, stdDev, mean);
+            draws++;
         } while (gaussNum.getValueOne() < 1 || gaussNum.getValueTwo() < 1);
         
+        metrics.gaussianDrawn(draws);
         return gaussNum;
     }
     
     /**
      * Calculates a random average for the call duration of a given type.
+     * @param random The random number generator
      * @param callType The type of call for which the average will be calculated
      * @param offPeak A boolean informing if the average is for off peak or not
      * @return A set of two random numbers
      */
-    protected RandomGaussian getAvgCallDuration(String callType, boolean offPeak) {
-        Map<String, Object> conf = (Map<String, Object>) outgoingCallParams.get(callType);
-        
-        String meanKey = (offPeak) ? "callOPDur" : "callDur";
-        String stdDevKey = (offPeak) ? "callOPStdDev" : "callStdDev";
-        
-        return getRandomGaussian((Long)conf.get(stdDevKey), (Long)conf.get(meanKey));
+    protected RandomGaussian getAvgCallDuration(RandomSource random, String callType, boolean offPeak) {
+        return getAvgCallDuration(random, config.ordinalOf(callType), offPeak);
+    }
+    
+    /**
+     * Calculates a random average for the call duration of a given type.
+     * @param random The random number generator
+     * @param callType The ordinal of the type of call
+     * @param offPeak A boolean informing if the average is for off peak or not
+     * @return A set of two random numbers
+     */
+    protected RandomGaussian getAvgCallDuration(RandomSource random, int callType, boolean offPeak) {
+        return getRandomGaussian(random, config.getCallStdDev(callType, offPeak), 
+                config.getCallDuration(callType, offPeak));
     }
 
     /**
      * Generates a random phone number of 11 digits.
+     * @param random The random number generator
      * @return The randomly generated phone number
      */
-    protected String getRandomPhoneNumber() {
-        String code = PhoneNumberGenerator.getRandomPhoneCode("Local", "");
-        return code + PhoneNumberGenerator.getRandomNumber(11 - code.length());
+    protected String getRandomPhoneNumber(RandomSource random) {
+        long code = phoneCodes.getRandomCode(random, localType, -1);
+        return PhoneNumbers.unpack(PhoneCodeTable.getRandomNumber(random, code, 11));
+    }
+    
+    /**
+     * Generates the phone numbers of the accounts of a chunk for the
+     * {@link SubscriberDirectory}. The numbers have their own random number
+     * generator, derived from the chunk index, so that they can be generated
+     * again when the chunk is created.
+     * @param chunk The index of the chunk
+     * @return The subscribers of the chunk, in account order
+     */
+    protected long[] createSubscribers(int chunk) {
+        int first = chunk * chunkSize;
+        int last  = Math.min(size, first + chunkSize);
+        
+        RandomSource random = RandomSources.create(rngAlgorithm, RandomSources.streamSeed(seed, -1L - chunk));
+        long[] subscribers = new long[last - first];
+        
+        for (int i=0; i<subscribers.length; i++) {
+            int code = phoneCodes.getRandomCodeIndex(random, localType, -1);
+            long scale = SubscriberDirectory.localScale(phoneCodes.getCode(localType, code));
+            subscribers[i] = SubscriberDirectory.subscriber(code, random.nextInt((int) scale));
+        }
+        
+        return subscribers;
+    }
+    
+    private String getPhoneNumber(long subscriber) {
+        long code = phoneCodes.getCode(localType, SubscriberDirectory.codeOf(subscriber));
+        return PhoneNumbers.unpack(SubscriberDirectory.toPhoneNumber(code, SubscriberDirectory.localNumberOf(subscriber)));
     }
     
     /**
      * Create all calls for a given person according to the number of calls calculated
      * for the person.
+     * @param random The random number generator
      * @param p The person for which the calls will be made
      */
-    protected void createCalls(Person p) {
-        Map<String, List<Interval>> usedTimes = new HashMap<String, List<Interval>>();
+    protected void createCalls(RandomSource random, Person p) {
+        // the calls follow the local time of the customer
+        int zone = dateTimeDist.getZoneOf(p.getPhoneNumber());
+        TimeTable timeTable = dateTimeDist.getTimeTable(zone);
+        CallCalendar calendar = new CallCalendar(dateTimeDist.getStartMinutes(zone), 
+                dateTimeDist.getStartWeights(zone), (int) (p.getNumCalls() + p.getNumIncomingCalls()));
 
         // create a list of call types for each call made
         // it is created beforehand so that we can generate the phone bucket
-        String[] listOfCallTypes = new String[(int) p.getNumCalls()];
-        Map<String, Integer> callTypeSummary = new HashMap<String, Integer>();
+        int[] listOfCallTypes = new int[(int) p.getNumCalls()];
+        int[] callTypeCounts = new int[callTypes.size()];
         
         for (int i=0; i<p.getNumCalls(); i++) {
-            String callType = callDist.getRandomCallType();
-            
-            if (callTypeSummary.containsKey(callType)) {
-                callTypeSummary.put(callType, callTypeSummary.get(callType)+1);
-            } else {
-                callTypeSummary.put(callType, 1);
-            }
-            
+            int callType = callDist.getRandomCallTypeOrdinal(random);
+            callTypeCounts[callType]++;
             listOfCallTypes[i] = callType;
         }
         
-        Map<String, List<String>> phoneBucket = phoneBucketGen.createPhoneBucket(p, callTypeSummary);
+        long[][] phoneBucket = phoneBucketGen.createPhoneBucket(random, 
+                PhoneNumbers.pack(p.getPhoneNumber()), callTypeCounts);
         
         for (int i=0; i<p.getNumCalls(); i++) {
+            long[] destPhoneNumbers = phoneBucket[listOfCallTypes[i]];
+            
             Call call = new Call();
-            call.setId(i);
-            call.setType(listOfCallTypes[i]);
+            call.setId((p.getId() << CALL_ID_BITS) | i);
+            call.setType(callTypes.get(listOfCallTypes[i]));
             call.setLine((int) (random.nextDouble() * p.getPhoneLines() + 0.5));
             
             // pick a random destination phone number
-            call.setDestPhoneNumber(phoneBucket.get(listOfCallTypes[i]).get(
-                    RandomUtil.randInt(0, phoneBucket.get(listOfCallTypes[i]).size()-1)));
-            
+            call.setPackedDestPhoneNumber(destPhoneNumbers[
+                    RandomUtil.randInt(random, 0, destPhoneNumbers.length-1)]);
             
-            long avgCallDuration = p.getAvgCallDuration().get(call.getType());
-            long avgOPCallDuration = p.getAvgOffPeakCallDuration().get(call.getType());
-
-            // pick a random date that doesn't overlap any other calls
-            do {
-                int currDay = dateTimeDist.getDayOfWeek();
-                int currDayName = dateTimeDist.getStartDate().plusDays(currDay).getDayOfWeek();
-                String type = (currDayName == 1 || currDayName == 7) 
-                        ? DateTimeDistribution.TYPE_WEEKEND 
-                        : DateTimeDistribution.TYPE_WEEKDAY;
-                
-                DateTime dateTime = dateTimeDist.getDateTime(type, currDay);
-                int duration = dateTimeDist.getCallDuration(currDayName, 
-                        call.getType(), dateTime.toLocalTime(), avgCallDuration, 
-                        avgOPCallDuration);
-                
-                call.setTime(new Interval(dateTime, dateTime.plusMinutes(duration)));
-            } while (callIntervalOverlap(usedTimes, call.getTime()));
+            // the call is dropped if there's no free time left
+            if (!setRandomTime(random, p, call, listOfCallTypes[i], timeTable, calendar))
+                continue;
         
             // after the date has been picked, calculate the cost of the call
-            call.setCost(dateTimeDist.getCallCost(call));
+            call.setCost(rater.rate(call, listOfCallTypes[i], timeTable));
             
             p.getCalls().add(call);
         }
+        
+        // calls received from outside the population, from a random number of
+        // the call type, they don't cost anything to the customer
+        for (int i=0; i<p.getNumIncomingCalls(); i++) {
+            int callType = callDist.getRandomIncomingCallTypeOrdinal(random);
+            long code = phoneCodes.getRandomCode(random, callType, -1);
+            
+            Call call = new Call();
+            call.setId((p.getId() << CALL_ID_BITS) | (p.getNumCalls() + i) | INCOMING_CALL_FLAG);
+            call.setType(callTypes.get(callType));
+            call.setLine((int) (random.nextDouble() * p.getPhoneLines() + 0.5));
+            call.setPackedDestPhoneNumber(PhoneCodeTable.getRandomNumber(random, code, 
+                    PhoneBucketGenerator.PHONE_NUMBER_DIGITS));
+            
+            if (setRandomTime(random, p, call, callType, timeTable, calendar))
+                p.getCalls().add(call);
+        }
+    }
+    
+    /**
+     * Picks a random date for the call that doesn't overlap any other call of
+     * the customer, and a duration following the averages of the customer.
+     * 
+     * After <code>maxPlacementRetries</code> draws that collide with other calls
+     * the start is drawn from the starts that are still free, and the duration
+     * is cut short if it would overlap the next call, so that the time taken
+     * doesn't grow with how busy the calendar is.
+     * 
+     * @param random The random number generator
+     * @param p The customer
+     * @param call The call
+     * @param callType The ordinal of the type of the call
+     * @param timeTable The calendar of the time zone of the customer
+     * @param calendar The times of the other calls of the customer
+     * @return False if there was no free time left for the call
+     */
+    protected boolean setRandomTime(RandomSource random, Person p, Call call, int callType, 
+            TimeTable timeTable, CallCalendar calendar) {
+        long avgCallDuration = p.getAvgCallDuration(callType);
+        long avgOPCallDuration = p.getAvgOffPeakCallDuration(callType);
+
+        for (int retries=0; retries<maxPlacementRetries; retries++) {
+            int currDay = dateTimeDist.getDayOfWeek(random);
+            long start = dateTimeDist.getStartMinute(random, timeTable, currDay);
+            int duration = dateTimeDist.getCallDuration(random, timeTable, start, callType, 
+                    avgCallDuration, avgOPCallDuration);
+            
+            if (!callIntervalOverlap(calendar, start, start + duration)) {
+                call.setTime(start * MILLIS_PER_MINUTE, (start + duration) * MILLIS_PER_MINUTE);
+                metrics.callTimed(retries);
+                return true;
+            }
+        }
+        
+        metrics.callTimed(maxPlacementRetries);
+        long start = calendar.sampleFreeStart(random);
+        
+        if (start == Long.MIN_VALUE) {
+            metrics.callDropped();
+            return false;
+        }
+        
+        int duration = dateTimeDist.getCallDuration(random, timeTable, start, callType, 
+                avgCallDuration, avgOPCallDuration);
+        duration = (int) Math.min(duration, calendar.getFreeMinutes(start));
+        
+        callIntervalOverlap(calendar, start, start + duration);
+        call.setTime(start * MILLIS_PER_MINUTE, (start + duration) * MILLIS_PER_MINUTE);
+        metrics.callPlacedInFreeStart();
+        return true;
     }
     
     /**
      * Checks if a call time interval is already in use. This function is used to
-     * prevent to calls from the same person happening at the same time.
-     * @param usedTimes A collection which stores already consolidated time intervals
+     * prevent to calls from the same person happening at the same time. If the
+     * interval is free it is added to the used times.
+     * 
+     * The intervals are indexed by epoch minute and a call always takes at least
+     * the minute in which it starts, so that two calls can't start together.
+     * 
+     * @param calendar The times of the already consolidated calls
      * @param time The time interval to be checked
      * @return True if the time interval already exists or False otherwise
      */
-    protected boolean callIntervalOverlap(Map<String, List<Interval>> usedTimes, Interval time) {
-        String date = time.getStart().toString(DateTimeFormat.forPattern("dd/MM/yyyy"));
+    protected boolean callIntervalOverlap(CallCalendar calendar, Interval time) {
+        return callIntervalOverlap(calendar, time.getStartMillis() / MILLIS_PER_MINUTE, 
+                time.getEndMillis() / MILLIS_PER_MINUTE);
+    }
+    
+    /**
+     * Checks if a call time interval is already in use, and if not adds it to
+     * the used times.
+     * @param calendar The times of the already consolidated calls
+     * @param start The start of the call, in epoch minutes
+     * @param end The end of the call, in epoch minutes
+     * @return True if the time interval already exists or False otherwise
+     */
+    protected boolean callIntervalOverlap(CallCalendar calendar, long start, long end) {
+        return !calendar.add(start, Math.max(start + 1, end));
+    }
+
+    /**
+     * Restricts the generation to a range of the accounts, so that the population
+     * can be generated by several processes or machines. The partitions are
+     * contiguous ranges of chunks, and as the chunks, the call ids and the phone
+     * numbers only depend on the seed and the account, the partitions together
+     * have the calls of the whole population.
+     * 
+     * The terminating records of the calls made to customers of other partitions
+     * are written by the partition of the caller, after its own customers.
+     * 
+     * @param partition The partition, as <code>i/N</code>, where <code>i</code>
+     *                  goes from 0 to <code>N-1</code>
+     */
+    public final void setPartition(String partition) {
+        String[] parts = partition.split("/");
         
-        if (usedTimes.containsKey(date)) {
-            for (Interval i : usedTimes.get(date)) {
-                if (time.overlap(i) != null)
-                    return true;
+        try {
+            if (parts.length == 2) {
+                this.partition = Integer.parseInt(parts[0].trim());
+                numPartitions = Integer.parseInt(parts[1].trim());
             }
-        } else {
-            usedTimes.put(date, new ArrayList<Interval>());
+        } catch (NumberFormatException ex) {
+            numPartitions = 0;
         }
         
-        usedTimes.get(date).add(time);
-        
-        return false;
+        if (parts.length != 2 || numPartitions < 1 || this.partition < 0 || this.partition >= numPartitions)
+            throw new IllegalArgumentException("Invalid partition '" + partition + "', expected i/N with 0 <= i < N.");
     }
-
+    
+    private int getNumChunks() {
+        return (size + chunkSize - 1) / chunkSize;
+    }
+    
+    /**
+     * @return The first chunk of the partition
+     */
+    private int firstChunk() {
+        return (int) ((long) getNumChunks() * partition / numPartitions);
+    }
+    
+    /**
+     * @return The chunk after the last one of the partition
+     */
+    private int lastChunk() {
+        return (int) ((long) getNumChunks() * (partition + 1) / numPartitions);
+    }
+    
+    /**
+     * @param checkpointer Records the progress of {@link #create(CallSink)} and
+     *                     gives the chunk where it is resumed, or null
+     */
+    public void setCheckpointer(Checkpointer checkpointer) {
+        this.checkpointer = checkpointer;
+    }
+    
+    /**
+     * @param rater Gives the cost of the calls, instead of the tariff of the configuration
+     */
+    public void setCallRater(CallRater rater) {
+        this.rater = rater;
+    }
+    
+    /**
+     * @return The metrics of the creation of the population
+     */
+    public GenerationMetrics getMetrics() {
+        return metrics;
+    }
+    
     /**
      * @return The generated population
      */
@@ -250,5 +756,33 @@ public class Population {
         return population;
     }
     
-    
+    /**
+     * Creates the customers of a single chunk in a worker thread, the task holds
+     * the customers and the terminating records until they are written. If the
+     * task has its own sink they are written by the worker itself.
+     */
+    private class ChunkTask implements Callable<ChunkTask> {
+        private final int chunk;
+        private final CallSink sink;
+        private final IncomingCallIndex incoming = new IncomingCallIndex();
+        private List<Person> customers;
+
+        public ChunkTask(int chunk, CallSink sink) {
+            this.chunk = chunk;
+            this.sink = sink;
+        }
+
+        @Override
+        public ChunkTask call() throws IOException {
+            customers = createChunk(chunk, incoming);
+            
+            if (sink == null)
+                return this;
+            
+            writeCustomers(sink, customers);
+            writeCustomers(sink, incoming.removeAll());
+            customers = Collections.<Person>emptyList();
+            return this;
+        }
+    }
 }
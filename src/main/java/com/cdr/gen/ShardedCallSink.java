@@ -0,0 +1,286 @@
+package com.cdr.gen;
+
+import com.cdr.gen.util.RandomSources;
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import org.joda.time.DateTimeZone;
+import org.joda.time.LocalDate;
+
+/**
+ * Splits the calls in several output files, so that they can be written by the
+ * workers at the same time and loaded in parallel. The calls are partitioned
+ * either by customer, with all the calls of a customer in the same file
+ * (<code>part-0003.csv</code>), or by the date of the call and then by customer
+ * (<code>date=2014-01-05/part-0003.csv</code>).
+ * 
+ * Each file has its own lock, so workers only wait for each other when writing
+ * to the same file. The order of the records within a file depends on the
+ * scheduling of the workers, unless they are sorted by time, see {@link SortedCallWriter}.
+ * 
+ * At most <code>maxOpenShards</code> files partitioned by date are open at once,
+ * the least recently written one is closed to open another, and it is appended
+ * to when it gets more calls.
+ * 
+ * @author Maycon Viana Bordin <mayconbordin@gmail.com>
+ */
+public class ShardedCallSink implements ConcurrentCallSink {
+    public static final String PARTITION_BY_CUSTOMER = "customer";
+    public static final String PARTITION_BY_DATE = "date";
+    public static final int DEFAULT_MAX_OPEN_SHARDS = 256;
+    
+    private static final long MILLIS_PER_DAY = 24 * 60 * 60 * 1000L;
+    
+    private final File outputDir;
+    private final GeneratorConfig config;
+    private final OutputFormat format;
+    private final int numShards;
+    private final boolean byDate;
+    private final DateTimeZone zone;
+    private final int maxOpenShards;
+    
+    private final CallWriter[] customerShards;
+    private final ConcurrentHashMap<Long, DateShard> dateShards = new ConcurrentHashMap<Long, DateShard>();
+    private final Set<DateShard> openDateShards = Collections.newSetFromMap(new ConcurrentHashMap<DateShard, Boolean>());
+    private final AtomicLong clock = new AtomicLong();
+    private final Object evictionLock = new Object();
+
+    /**
+     * @param outputDir The directory where the files will be created
+     * @param config The configuration of the generator, with the number of <code>shards</code>
+     *               and how they are partitioned (<code>partitionBy</code>)
+     * @throws IOException If the files could not be created
+     */
+    public ShardedCallSink(String outputDir, GeneratorConfig config) throws IOException {
+        this.outputDir = new File(outputDir);
+        this.config = config;
+        
+        format = OutputFormats.forFile(outputDir, config.getOptions());
+        zone = config.getTimeZone();
+        numShards = config.getShards();
+        byDate = PARTITION_BY_DATE.equals(config.getPartitionBy());
+        maxOpenShards = config.getMaxOpenShards();
+        
+        if (!this.outputDir.isDirectory() && !this.outputDir.mkdirs())
+            throw new IOException("Unable to create the output directory '" + outputDir + "'.");
+        
+        customerShards = new CallWriter[byDate ? 0 : numShards];
+        
+        try {
+            for (int i=0; i<customerShards.length; i++) {
+                customerShards[i] = open(file(this.outputDir, i), false);
+            }
+        } catch (IOException ex) {
+            close();
+            throw ex;
+        }
+    }
+
+    @Override
+    public void write(Person customer) throws IOException {
+        int shard = shardOf(customer);
+        
+        if (!byDate) {
+            CallWriter writer = customerShards[shard];
+            
+            synchronized (writer) {
+                writer.write(customer);
+            }
+            return;
+        }
+        
+        long time = clock.incrementAndGet();
+        
+        for (Call c : customer.getCalls()) {
+            long millis = c.getStartMillis();
+            long day = Math.floorDiv(millis + zone.getOffset(millis), MILLIS_PER_DAY);
+            DateShard dateShard = dateShard(day, shard);
+            
+            // the lock of a file is never held while waiting for another one
+            if (!dateShard.isOpen())
+                closeLeastRecentlyWritten(maxOpenShards - 1);
+            
+            synchronized (dateShard) {
+                dateShard.write(customer.getPhoneNumber(), c, time);
+            }
+        }
+    }
+    
+    /**
+     * @param customer The customer
+     * @return The shard of the customer, derived from its account index
+     */
+    private int shardOf(Person customer) {
+        return (int) Math.floorMod(RandomSources.mix(customer.getId()), (long) numShards);
+    }
+    
+    private DateShard dateShard(long day, int shard) throws IOException {
+        Long key = day * numShards + shard;
+        DateShard dateShard = dateShards.get(key);
+        
+        if (dateShard != null)
+            return dateShard;
+        
+        synchronized (dateShards) {
+            dateShard = dateShards.get(key);
+            
+            if (dateShard == null) {
+                File dir = new File(outputDir, "date=" + new LocalDate(day * MILLIS_PER_DAY, DateTimeZone.UTC));
+                
+                if (!dir.isDirectory() && !dir.mkdirs())
+                    throw new IOException("Unable to create the output directory '" + dir + "'.");
+                
+                dateShard = new DateShard(file(dir, shard));
+                dateShards.put(key, dateShard);
+            }
+        }
+        
+        return dateShard;
+    }
+    
+    /**
+     * Closes the files partitioned by date that were written the longest ago
+     * until no more than the given number of them is open.
+     * @param maxOpen The number of files that can stay open
+     * @throws IOException If a file could not be closed
+     */
+    private void closeLeastRecentlyWritten(int maxOpen) throws IOException {
+        synchronized (evictionLock) {
+            while (openDateShards.size() > maxOpen) {
+                DateShard oldest = null;
+                
+                for (DateShard dateShard : openDateShards) {
+                    if (oldest == null || dateShard.lastWritten < oldest.lastWritten)
+                        oldest = dateShard;
+                }
+                
+                if (oldest == null)
+                    break;
+                
+                openDateShards.remove(oldest);
+                
+                synchronized (oldest) {
+                    oldest.close();
+                }
+            }
+        }
+    }
+    
+    private File file(File dir, int shard) {
+        return new File(dir, String.format("part-%04d%s%s", shard, format.getExtension(), 
+                Compression.extensionOf(config.getOptions())));
+    }
+    
+    /**
+     * @param file The file of the shard
+     * @param append True to append to a file closed before, instead of creating it
+     * @return The writer of the shard
+     * @throws IOException If the file could not be opened
+     */
+    private CallWriter open(File file, boolean append) throws IOException {
+        CallWriter writer = append
+                ? OutputFormats.append(format, file.getPath(), config.getOptions())
+                : OutputFormats.open(format, file.getPath(), config.getOptions());
+        return SortedCallWriter.wrap(writer, config);
+    }
+
+    @Override
+    public long getBytesWritten() {
+        long bytes = 0;
+        
+        for (DateShard dateShard : dateShards.values()) {
+            bytes += dateShard.getBytesWritten();
+        }
+        for (CallWriter writer : customerShards) {
+            if (writer != null) bytes += writer.getBytesWritten();
+        }
+        
+        return bytes;
+    }
+
+    @Override
+    public void close() throws IOException {
+        IOException error = null;
+        
+        for (DateShard dateShard : dateShards.values()) {
+            try {
+                synchronized (dateShard) {
+                    dateShard.close();
+                }
+            } catch (IOException ex) {
+                if (error == null) error = ex;
+            }
+        }
+        openDateShards.clear();
+        
+        for (CallWriter writer : customerShards) {
+            if (writer == null)
+                continue;
+            
+            try {
+                synchronized (writer) {
+                    writer.close();
+                }
+            } catch (IOException ex) {
+                if (error == null) error = ex;
+            }
+        }
+        
+        if (error != null)
+            throw error;
+    }
+    
+    /**
+     * A file of the calls of a date and shard, that is opened when written and
+     * may be closed and opened again to be appended to. Guarded by its own lock.
+     */
+    private final class DateShard {
+        private final File file;
+        private volatile CallWriter writer;
+        private volatile long lastWritten;
+        private volatile long bytesClosed;
+        private boolean created = false;
+        
+        DateShard(File file) {
+            this.file = file;
+        }
+        
+        boolean isOpen() {
+            return writer != null;
+        }
+        
+        void write(String phoneNumber, Call call, long time) throws IOException {
+            if (writer == null) {
+                writer = open(file, created);
+                created = true;
+                openDateShards.add(this);
+            }
+            
+            lastWritten = time;
+            writer.write(phoneNumber, call);
+        }
+        
+        long getBytesWritten() {
+            CallWriter current = writer;
+            return bytesClosed + (current != null ? current.getBytesWritten() : 0);
+        }
+        
+        void close() throws IOException {
+            CallWriter current = writer;
+            
+            if (current == null)
+                return;
+            
+            writer = null;
+            
+            try {
+                current.close();
+            } finally {
+                bytesClosed += current.getBytesWritten();
+            }
+        }
+    }
+}
@@ -0,0 +1,279 @@
+package com.cdr.gen;
+
+import com.cdr.gen.util.LongIntHeap;
+import com.cdr.gen.util.PhoneNumbers;
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import org.apache.log4j.Logger;
+
+/**
+ * Writes the calls ordered by start, with an external merge sort, so that the
+ * output can be far larger than the memory.
+ *
+ * The calls are buffered in a {@link CallStore} of <code>sortBufferCalls</code>
+ * calls, and every time the buffer fills up it is sorted and spilled to a
+ * temporary file in the columnar format (a run). When the writer is closed the
+ * runs are merged with a heap, <code>sortMergeFactor</code> runs at a time, into
+ * the output. If all calls fit in the buffer nothing is spilled.
+ *
+ * Calls that start at the same second keep the order in which they were written.
+ *
+ * @author Maycon Viana Bordin <mayconbordin@gmail.com>
+ */
+public class SortedCallWriter implements CallWriter {
+    private static final Logger LOG = Logger.getLogger(SortedCallWriter.class);
+    
+    public static final String SORT_BY_CUSTOMER = "customer";
+    public static final String SORT_BY_TIME = "time";
+    
+    public static final int DEFAULT_BUFFER_CALLS = 1 << 20;
+    public static final int DEFAULT_MERGE_FACTOR = 64;
+    
+    // runs are read a block at a time, small blocks keep the merge memory low
+    private static final int RUN_BLOCK_ROWS = 4096;
+    
+    private final CallWriter output;
+    private final int bufferCalls;
+    private final int mergeFactor;
+    private final File tempDir;
+    
+    private final CallStore buffer;
+    private long[] callers;
+    private String lastPhoneNumber;
+    private long lastCaller;
+    
+    private List<File> runs = new ArrayList<File>();
+    private final List<File> tempFiles = new ArrayList<File>();
+    
+    /**
+     * @param output The destination of the sorted calls, closed with the writer
+     * @param config The configuration of the generator, with the call types and
+     *               the <code>sortBufferCalls</code>, <code>sortMergeFactor</code>
+     *               and <code>sortTempDir</code>
+     */
+    public SortedCallWriter(CallWriter output, GeneratorConfig config) {
+        this.output = output;
+        
+        bufferCalls = config.getSortBufferCalls();
+        mergeFactor = config.getSortMergeFactor();
+        tempDir = (config.getSortTempDir() != null) ? new File(config.getSortTempDir()) : null;
+        
+        int capacity = Math.min(bufferCalls, 1024);
+        buffer = new CallStore(config.getCallTypes(), capacity);
+        callers = new long[capacity];
+    }
+    
+    /**
+     * Wraps the writer in a {@link SortedCallWriter} if the calls are to be sorted
+     * by time, as configured by <code>sortBy</code>.
+     * @param writer The writer of the output
+     * @param config The configuration of the generator
+     * @return The writer that must be used to write the output
+     */
+    public static CallWriter wrap(CallWriter writer, Map<String, Object> config) {
+        return wrap(writer, new GeneratorConfig(config));
+    }
+    
+    /**
+     * Wraps the writer in a {@link SortedCallWriter} if the calls are to be sorted
+     * by time, as configured by <code>sortBy</code>.
+     * @param writer The writer of the output
+     * @param config The compiled configuration of the generator
+     * @return The writer that must be used to write the output
+     */
+    public static CallWriter wrap(CallWriter writer, GeneratorConfig config) {
+        if (SORT_BY_TIME.equals(config.getSortBy()))
+            return new SortedCallWriter(writer, config);
+        
+        return writer;
+    }
+    
+    /**
+     * @return The bytes written to the output, the runs are not counted
+     */
+    @Override
+    public long getBytesWritten() {
+        return output.getBytesWritten();
+    }
+    
+    @Override
+    public void write(String phoneNumber, Call call) throws IOException {
+        if (!phoneNumber.equals(lastPhoneNumber)) {
+            lastCaller = PhoneNumbers.pack(phoneNumber);
+            lastPhoneNumber = phoneNumber;
+        }
+        
+        int i = buffer.add(call);
+        
+        if (i == callers.length) {
+            callers = Arrays.copyOf(callers, callers.length * 2);
+        }
+        callers[i] = lastCaller;
+        
+        if (buffer.size() == bufferCalls) {
+            spill();
+        }
+    }
+    
+    /**
+     * Sorts the buffer and writes it to a new run.
+     * @throws IOException If the run could not be written
+     */
+    private void spill() throws IOException {
+        File run = createRun();
+        runs.add(run);
+        
+        try (ColumnarCallWriter writer = openRun(run)) {
+            int[] index = buffer.sortByStart();
+            
+            for (int i=0; i<index.length; i++) {
+                writer.write(buffer.getId(i), callers[index[i]], buffer.getLine(i),
+                        buffer.getDestPhoneNumber(i), buffer.getStart(i), buffer.getDuration(i),
+                        buffer.getType(i), buffer.getFixedCost(i));
+            }
+        }
+        
+        buffer.clear();
+    }
+    
+    /**
+     * Writes the calls buffered, if nothing has been spilled, or merges the runs
+     * into the output.
+     * @throws IOException If the output could not be written
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            if (runs.isEmpty()) {
+                writeBuffer();
+                return;
+            }
+            
+            if (buffer.size() > 0) {
+                spill();
+            }
+            
+            LOG.info("Merging " + runs.size() + " sorted runs");
+            
+            // merge consecutive groups of runs into longer runs, which keep the
+            // place of the group so that calls starting at the same second keep
+            // their order
+            while (runs.size() > mergeFactor) {
+                List<File> pass = runs;
+                runs = new ArrayList<File>();
+                
+                for (int i=0; i<pass.size(); i+=mergeFactor) {
+                    List<File> group = pass.subList(i, Math.min(pass.size(), i + mergeFactor));
+                    
+                    if (group.size() == 1) {
+                        runs.add(group.get(0));
+                        continue;
+                    }
+                    
+                    File run = createRun();
+                    runs.add(run);
+                    
+                    try (ColumnarCallWriter writer = openRun(run)) {
+                        merge(group, writer);
+                    }
+                    deleteRuns(group);
+                }
+            }
+            
+            merge(runs, output);
+        } finally {
+            try {
+                output.close();
+            } finally {
+                deleteRuns(tempFiles);
+            }
+        }
+    }
+    
+    private void writeBuffer() throws IOException {
+        int[] index = buffer.sortByStart();
+        CallStore.Cursor call = buffer.cursor();
+        
+        for (int i=0; i<index.length; i++) {
+            long caller = callers[index[i]];
+            
+            if (caller != lastCaller) {
+                lastCaller = caller;
+                lastPhoneNumber = PhoneNumbers.unpack(caller);
+            }
+            
+            output.write(lastPhoneNumber, call.moveTo(i));
+        }
+    }
+    
+    /**
+     * Merges the runs with a heap of the start of the current call of each run.
+     * @param group The runs to be merged
+     * @param writer The destination of the merged calls
+     * @throws IOException If a run could not be read or the calls written
+     */
+    private void merge(List<File> group, CallWriter writer) throws IOException {
+        List<ColumnarCallReader> readers = new ArrayList<ColumnarCallReader>(group.size());
+        LongIntHeap heap = new LongIntHeap(group.size());
+        
+        try {
+            for (File run : group) {
+                ColumnarCallReader reader = new ColumnarCallReader(run.getPath());
+                readers.add(reader);
+                
+                if (reader.next()) {
+                    heap.add(reader.getStart(), readers.size() - 1);
+                }
+            }
+            
+            while (!heap.isEmpty()) {
+                ColumnarCallReader reader = readers.get(heap.peekValue());
+                transfer(reader, writer);
+                
+                if (reader.next()) {
+                    heap.replaceTopKey(reader.getStart());
+                } else {
+                    heap.poll();
+                }
+            }
+        } finally {
+            for (ColumnarCallReader reader : readers) {
+                reader.close();
+            }
+        }
+    }
+    
+    private void transfer(ColumnarCallReader reader, CallWriter writer) throws IOException {
+        if (writer instanceof ColumnarCallWriter) {
+            ((ColumnarCallWriter) writer).write(reader.getId(), reader.getPackedPhoneNumber(),
+                    reader.getLine(), reader.getPackedDestPhoneNumber(), reader.getStart(),
+                    reader.getDuration(), reader.getType(), reader.getFixedCost());
+        } else {
+            writer.write(reader.getPhoneNumber(), reader.toCall());
+        }
+    }
+    
+    private File createRun() throws IOException {
+        File run = File.createTempFile("cdr-run-", ".cdrc", tempDir);
+        tempFiles.add(run);
+        return run;
+    }
+    
+    private ColumnarCallWriter openRun(File run) throws IOException {
+        return new ColumnarCallWriter(FileChannel.open(run.toPath(), StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING), RUN_BLOCK_ROWS);
+    }
+    
+    private void deleteRuns(List<File> group) {
+        for (File run : group) {
+            if (run.exists() && !run.delete())
+                LOG.warn("Unable to delete the temporary file '" + run + "'.");
+        }
+    }
+}
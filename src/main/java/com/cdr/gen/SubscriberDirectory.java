@@ -0,0 +1,345 @@
+package com.cdr.gen;
+
+import com.cdr.gen.util.PhoneNumbers;
+import com.cdr.gen.util.RandomSource;
+import java.util.Arrays;
+import java.util.function.IntFunction;
+
+/**
+ * The phone numbers of all the customers of the population, so that calls can
+ * be made to other customers and the calls form a graph.
+ *
+ * The subscribers are grouped by area, the local phone code their number was
+ * generated with. Within an area only the digits after the code are stored, as
+ * sorted ints, next to the account of the subscriber, so each subscriber takes
+ * eight bytes and lookups are binary searches. Areas without subscribers are
+ * not stored.
+ *
+ * Destination numbers are drawn with:
+ * <ul>
+ * <li><code>locality</code>: the probability of a national call going to one
+ * of the <code>neighbourAreas</code> areas next to the area of the caller, in
+ * the order of the codes, instead of any other area;</li>
+ * <li><code>attachment</code>: the skew of the popularity of the subscribers,
+ * the rank of the subscriber is drawn as <code>n * u^attachment</code>, so with
+ * 1 every subscriber is equally likely and with larger values a few subscribers
+ * receive most of the calls. The ranks are scattered over the subscribers, so
+ * the popular subscribers are not the ones with the lowest numbers.</li>
+ * </ul>
+ *
+ * @author Maycon Viana Bordin <mayconbordin@gmail.com>
+ */
+public class SubscriberDirectory {
+    public static final double DEFAULT_LOCALITY = 0.5;
+    public static final int DEFAULT_NEIGHBOUR_AREAS = 8;
+    public static final double DEFAULT_ATTACHMENT = 1.0;
+    
+    // a prime larger than any number of subscribers, multiplying a rank by it
+    // modulo the number of subscribers is a permutation of the ranks
+    private static final long SCATTER_PRIME = 2147483647L;
+    
+    private static final int AREA_SHIFT = 32;
+    private static final long LOCAL_MASK = 0xFFFFFFFFL;
+    
+    private final double locality;
+    private final int neighbourAreas;
+    private final double attachment;
+    
+    // the packed code and the number of digits after the code of each area
+    private final long[] areaCodes;
+    private final long[] areaScales;
+    // the subscribers of area i are at [areaStarts[i], areaStarts[i+1])
+    private final int[] areaStarts;
+    private final int[] localNumbers;
+    private final int[] accounts;
+    
+    /**
+     * Builds the directory from the subscribers of each chunk of accounts. The
+     * subscribers are generated twice, once to count the subscribers of each
+     * area and once to store them, so that the whole population is never held
+     * as packed longs. The accounts are numbered in the order of the chunks.
+     *
+     * @param config The configuration of the generator, with the <code>locality</code>,
+     *               <code>neighbourAreas</code> and <code>attachment</code> of the
+     *               <code>subscriberDirectory</code>
+     * @param phoneCodes The phone codes of the areas
+     * @param numChunks The number of chunks of accounts
+     * @param chunkSubscribers The subscribers of a chunk in account order, encoded
+     *                         by {@link #subscriber(int, int)}
+     */
+    public SubscriberDirectory(GeneratorConfig config, long[] phoneCodes, int numChunks,
+            IntFunction<long[]> chunkSubscribers) {
+        locality = config.getLocality();
+        neighbourAreas = config.getNeighbourAreas();
+        attachment = config.getAttachment();
+        
+        // count the subscribers of each code
+        int[] counts = new int[phoneCodes.length + 1];
+        for (int chunk=0; chunk<numChunks; chunk++) {
+            for (long s : chunkSubscribers.apply(chunk)) {
+                counts[codeOf(s) + 1]++;
+            }
+        }
+        
+        int numAreas = 0;
+        for (int i=1; i<counts.length; i++) {
+            if (counts[i] > 0) numAreas++;
+            counts[i] += counts[i-1];
+        }
+        
+        // store the local numbers and the accounts grouped by code
+        int[] numbers = new int[counts[phoneCodes.length]];
+        int[] owners = new int[numbers.length];
+        int[] next = Arrays.copyOf(counts, phoneCodes.length);
+        int account = 0;
+        
+        for (int chunk=0; chunk<numChunks; chunk++) {
+            for (long s : chunkSubscribers.apply(chunk)) {
+                int i = next[codeOf(s)]++;
+                numbers[i] = localNumberOf(s);
+                owners[i] = account++;
+            }
+        }
+        
+        // sort each area, dropping repeated numbers and empty areas, a number
+        // given to more than one account belongs to the first one
+        areaCodes = new long[numAreas];
+        areaScales = new long[numAreas];
+        areaStarts = new int[numAreas + 1];
+        
+        int area = 0, size = 0;
+        for (int code=0; code<phoneCodes.length; code++) {
+            int from = counts[code], to = counts[code + 1];
+            
+            if (from == to)
+                continue;
+            
+            long[] sorted = new long[to - from];
+            for (int i=from; i<to; i++) {
+                sorted[i - from] = ((long) numbers[i] << 32) | owners[i];
+            }
+            Arrays.sort(sorted);
+            
+            areaCodes[area] = phoneCodes[code];
+            areaScales[area] = localScale(phoneCodes[code]);
+            areaStarts[area] = size;
+            
+            for (int i=0; i<sorted.length; i++) {
+                if (i == 0 || (sorted[i] >>> 32) != (sorted[i-1] >>> 32)) {
+                    numbers[size] = (int) (sorted[i] >>> 32);
+                    owners[size++] = (int) sorted[i];
+                }
+            }
+            
+            area++;
+        }
+        
+        areaStarts[numAreas] = size;
+        localNumbers = Arrays.copyOf(numbers, size);
+        accounts = Arrays.copyOf(owners, size);
+    }
+    
+    /**
+     * Encodes a subscriber for the construction of the directory.
+     * @param code The index of the phone code of the subscriber
+     * @param localNumber The digits of the number after the code
+     * @return The encoded subscriber
+     */
+    public static long subscriber(int code, int localNumber) {
+        return ((long) code << AREA_SHIFT) | (localNumber & LOCAL_MASK);
+    }
+    
+    /**
+     * @param subscriber The encoded subscriber
+     * @return The index of the phone code of the subscriber
+     */
+    public static int codeOf(long subscriber) {
+        return (int) (subscriber >>> AREA_SHIFT);
+    }
+    
+    /**
+     * @param subscriber The encoded subscriber
+     * @return The digits of the number after the code
+     */
+    public static int localNumberOf(long subscriber) {
+        return (int) subscriber;
+    }
+    
+    /**
+     * @param code The packed phone code
+     * @return The number of distinct local numbers of the code
+     */
+    public static long localScale(long code) {
+        return PhoneCodeTable.pow10(PhoneBucketGenerator.PHONE_NUMBER_DIGITS - PhoneNumbers.length(code));
+    }
+    
+    /**
+     * @param code The packed phone code
+     * @param localNumber The digits of the number after the code
+     * @return The packed phone number
+     */
+    public static long toPhoneNumber(long code, int localNumber) {
+        return PhoneNumbers.pack(PhoneBucketGenerator.PHONE_NUMBER_DIGITS, 
+                PhoneNumbers.value(code) * localScale(code) + localNumber);
+    }
+    
+    /**
+     * @return The number of distinct subscribers
+     */
+    public int size() {
+        return localNumbers.length;
+    }
+    
+    /**
+     * @return The number of areas with subscribers
+     */
+    public int getNumAreas() {
+        return areaCodes.length;
+    }
+    
+    /**
+     * @param area The index of the area
+     * @param i The index of the subscriber within the area
+     * @return The packed phone number of the subscriber
+     */
+    public long getNumber(int area, int i) {
+        return toPhoneNumber(areaCodes[area], localNumbers[areaStarts[area] + i]);
+    }
+    
+    /**
+     * @param area The index of the area
+     * @return The number of subscribers of the area
+     */
+    public int getAreaSize(int area) {
+        return areaStarts[area + 1] - areaStarts[area];
+    }
+    
+    /**
+     * Finds the area of a subscriber. As a code can be the prefix of a longer
+     * code, every code the number starts with is tried.
+     * @param number The packed phone number of the subscriber
+     * @return The index of the area, or -1 if the number is not in the directory
+     */
+    public int areaOf(long number) {
+        return (int) (locate(number) >> AREA_SHIFT);
+    }
+    
+    /**
+     * @param number The packed phone number of the subscriber
+     * @return The account of the subscriber, or -1 if the number is not in the directory
+     */
+    public long accountOf(long number) {
+        long location = locate(number);
+        
+        if (location < 0)
+            return -1;
+        
+        return accounts[areaStarts[(int) (location >> AREA_SHIFT)] + (int) location];
+    }
+    
+    /**
+     * @param number The packed phone number
+     * @return The area in the upper bits and the index within the area in the
+     *         lower bits, or -1 if the number is not in the directory
+     */
+    private long locate(long number) {
+        int length = PhoneNumbers.length(number);
+        long value = PhoneNumbers.value(number);
+        long scale = 1;
+        
+        for (int digits=length-1; digits>0; digits--) {
+            scale *= 10;
+            int area = Arrays.binarySearch(areaCodes, PhoneNumbers.pack(digits, value / scale));
+            
+            if (area >= 0 && areaScales[area] == scale) {
+                int i = Arrays.binarySearch(localNumbers, areaStarts[area], areaStarts[area + 1], (int) (value % scale));
+                
+                if (i >= 0)
+                    return ((long) area << AREA_SHIFT) | (i - areaStarts[area]);
+            }
+        }
+        
+        return -1;
+    }
+    
+    /**
+     * Draws a subscriber of the same area as the caller, other than the caller.
+     * @param random The random number generator
+     * @param caller The packed phone number of the caller
+     * @return The packed phone number, or 0 if the caller is alone in its area
+     *         or not in the directory
+     */
+    public long getLocalNumber(RandomSource random, long caller) {
+        long location = locate(caller);
+        
+        if (location < 0)
+            return 0;
+        
+        int area = (int) (location >> AREA_SHIFT);
+        int n = getAreaSize(area);
+        
+        if (n < 2)
+            return 0;
+        
+        // skip the caller by drawing from the other subscribers
+        int i = draw(random, n - 1);
+        return getNumber(area, (i >= (int) location) ? i + 1 : i);
+    }
+    
+    /**
+     * Draws a subscriber of another area than the caller, from the neighbour
+     * areas with probability <code>locality</code>.
+     * @param random The random number generator
+     * @param caller The packed phone number of the caller
+     * @return The packed phone number, or 0 if there is no other area or the
+     *         caller is not in the directory
+     */
+    public long getNationalNumber(RandomSource random, long caller) {
+        int area = areaOf(caller);
+        
+        if (area < 0 || areaCodes.length < 2)
+            return 0;
+        
+        if (random.nextDouble() < locality) {
+            // one of the areas next to the caller's, on either side
+            int first = Math.max(0, area - neighbourAreas);
+            int last  = Math.min(areaCodes.length - 1, area + neighbourAreas);
+            int neighbour = first + random.nextInt(last - first);
+            
+            if (neighbour >= area)
+                neighbour++;
+            
+            return getNumber(neighbour, draw(random, getAreaSize(neighbour)));
+        }
+        
+        // any subscriber outside the area of the caller
+        int excludedFrom = areaStarts[area];
+        int excludedSize = getAreaSize(area);
+        int i = draw(random, localNumbers.length - excludedSize);
+        
+        if (i >= excludedFrom)
+            i += excludedSize;
+        
+        int other = Arrays.binarySearch(areaStarts, i);
+        if (other < 0) other = -other - 2;
+        
+        // skip the empty ranges of repeated starts, there are none as empty
+        // areas are not stored
+        return getNumber(other, i - areaStarts[other]);
+    }
+    
+    /**
+     * Draws a rank following the popularity of the subscribers, and scatters it
+     * over the subscribers.
+     * @param random The random number generator
+     * @param n The number of subscribers
+     * @return The index of a subscriber
+     */
+    private int draw(RandomSource random, int n) {
+        if (attachment == 1.0)
+            return random.nextInt(n);
+        
+        int rank = Math.min(n - 1, (int) (n * Math.pow(random.nextDouble(), attachment)));
+        return (int) ((rank * SCATTER_PRIME) % n);
+    }
+}
@@ -0,0 +1,117 @@
+package com.cdr.gen;
+
+import com.cdr.gen.util.MinuteBitmap;
+
+/**
+ * Rates the calls with the costs per minute of the configuration, at the peak
+ * rate on weekdays and at the off peak rate within the off peak time period,
+ * on weekends and on holidays.
+ *
+ * The rates are resolved beforehand for each type of call, type of day and slot
+ * of {@link #SLOT_MINUTES} minutes of the day, so rating a call is a read from a
+ * table. A slot takes the rate of its first minute, so a boundary of the off
+ * peak time period within a slot takes effect at the next slot.
+ *
+ * The duration is billed in whole minutes, the default, in seconds or in blocks
+ * of a number of seconds, each block started being billed in full. Calls are
+ * billed at the rate of their start, unless the bands are split, in which case
+ * each part of a call that crosses the start or the end of the off peak period
+ * is billed at its own rate.
+ *
+ * @author Maycon Viana Bordin <mayconbordin@gmail.com>
+ */
+public class TariffRater implements CallRater {
+    public static final String BILLING_MINUTE = "minute";
+    public static final String BILLING_SECOND = "second";
+    public static final String BILLING_BLOCK  = "block";
+    
+    public static final int SLOT_MINUTES = 5;
+    public static final int SLOTS_PER_DAY = TimeTable.MINUTES_PER_DAY / SLOT_MINUTES;
+    
+    private static final int SLOT_SECONDS = SLOT_MINUTES * 60;
+    private static final long MILLIS_PER_SECOND = 1000L;
+    
+    // the cost per minute by type of call, and then by type of day and slot
+    private final double[][] rates;
+    
+    private final String billing;
+    private final int blockSeconds;
+    private final boolean splitBands;
+    
+    /**
+     * @param config The configuration of the generator
+     */
+    public TariffRater(GeneratorConfig config) {
+        this(config, config.getOffPeakMinutes());
+    }
+    
+    /**
+     * @param config The configuration of the generator
+     * @param offPeakMinutes The minutes of the day within the off peak time period
+     */
+    public TariffRater(GeneratorConfig config, MinuteBitmap offPeakMinutes) {
+        billing = config.getBilling();
+        blockSeconds = config.getBlockSeconds();
+        splitBands = config.isSplitBands();
+        
+        rates = new double[config.getCallTypes().size()][TimeTable.NUM_DAY_TYPES * SLOTS_PER_DAY];
+        
+        for (int type=0; type<rates.length; type++) {
+            for (int dayType=0; dayType<TimeTable.NUM_DAY_TYPES; dayType++) {
+                for (int slot=0; slot<SLOTS_PER_DAY; slot++) {
+                    boolean offPeak = dayType != TimeTable.WEEKDAY || offPeakMinutes.contains(slot * SLOT_MINUTES);
+                    rates[type][dayType * SLOTS_PER_DAY + slot] = config.getCallCost(type, offPeak);
+                }
+            }
+        }
+    }
+    
+    @Override
+    public double rate(Call call, int callType, TimeTable timeTable) {
+        long seconds = billedSeconds((call.getEndMillis() - call.getStartMillis()) / MILLIS_PER_SECOND);
+        double[] typeRates = rates[callType];
+        
+        long local = timeTable.toLocalMinute(Math.floorDiv(call.getStartMillis(), TimeTable.MILLIS_PER_MINUTE));
+        long localDay = Math.floorDiv(local, (long) TimeTable.MINUTES_PER_DAY);
+        int minuteOfDay = (int) Math.floorMod(local, (long) TimeTable.MINUTES_PER_DAY);
+        
+        int slot = minuteOfDay / SLOT_MINUTES;
+        int dayType = timeTable.getDayType(localDay);
+        
+        if (!splitBands)
+            return seconds * typeRates[dayType * SLOTS_PER_DAY + slot] / 60;
+        
+        long secondOfSlot = (minuteOfDay % SLOT_MINUTES) * 60
+                + Math.floorMod(call.getStartMillis(), TimeTable.MILLIS_PER_MINUTE) / MILLIS_PER_SECOND;
+        double cost = 0;
+        
+        while (seconds > 0) {
+            long part = Math.min(seconds, SLOT_SECONDS - secondOfSlot);
+            cost += part * typeRates[dayType * SLOTS_PER_DAY + slot];
+            seconds -= part;
+            secondOfSlot = 0;
+            
+            if (++slot == SLOTS_PER_DAY) {
+                slot = 0;
+                dayType = timeTable.getDayType(++localDay);
+            }
+        }
+        
+        return cost / 60;
+    }
+    
+    /**
+     * @param seconds The duration of a call, in seconds
+     * @return The billed duration, in seconds
+     */
+    public long billedSeconds(long seconds) {
+        switch (billing) {
+            case BILLING_SECOND:
+                return seconds;
+            case BILLING_BLOCK:
+                return (seconds + blockSeconds - 1) / blockSeconds * blockSeconds;
+            default:
+                return seconds / 60 * 60;
+        }
+    }
+}
@@ -0,0 +1,279 @@
+package com.cdr.gen;
+
+import com.cdr.gen.util.MinuteBitmap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.joda.time.LocalDate;
+
+/**
+ * The calendar of the period of the calls in a time zone, precomputed so that
+ * the generation works with epoch minutes instead of creating dates.
+ *
+ * The offset transitions of the zone within the period, and a week on each side
+ * as the days are drawn by whole weeks, are kept in a table, so converting
+ * between epoch minutes and local minutes, the minutes counted from the local
+ * midnight of 01/01/1970, is a search in a handful of transitions. The day of
+ * the week, the minute of the day and the off peak period then follow from the
+ * local minute. Minutes outside of the table are converted by Joda-Time.
+ *
+ * Each day is a weekday, a weekend day or a holiday, the holidays being billed
+ * at the off peak rate all day long.
+ *
+ * Local times skipped by a transition are moved forward by the length of the
+ * gap, and local times repeated by a transition take the earlier offset.
+ *
+ * @author Maycon Viana Bordin <mayconbordin@gmail.com>
+ */
+public class TimeTable {
+    public static final int MINUTES_PER_DAY = 24 * 60;
+    public static final long MILLIS_PER_MINUTE = 60 * 1000L;
+    
+    public static final int WEEKDAY = 0;
+    public static final int WEEKEND = 1;
+    public static final int HOLIDAY = 2;
+    public static final int NUM_DAY_TYPES = 3;
+    
+    private static final int MARGIN_DAYS = 7;
+    
+    // 01/01/1970 was a thursday
+    private static final int EPOCH_DAY_OF_WEEK = 4;
+    
+    private final DateTimeZone zone;
+    private final long firstDay;
+    
+    // the epoch minutes covered by the table
+    private final long tableStart;
+    private final long tableEnd;
+    
+    // the epoch minute of each transition and the offset, in minutes, before each
+    // transition, with the offset after the last one at the end
+    private final long[] transitions;
+    private final int[] offsets;
+    
+    // the first local minute that is converted with the offset after each transition
+    private final long[] localTransitions;
+    
+    private final MinuteBitmap offPeakMinutes;
+    
+    // the local days of the holidays, sorted, and whether each day of the table is one
+    private final long[] holidays;
+    private final boolean[] holidayTable;
+    
+    /**
+     * @param startDate The midnight of the first day of the period, in the time zone of the table
+     * @param numDays The number of days of the period
+     * @param offPeakStart The minute of the day when the off peak period starts
+     * @param offPeakEnd The minute of the day when the off peak period ends (exclusive)
+     */
+    public TimeTable(DateTime startDate, int numDays, int offPeakStart, int offPeakEnd) {
+        this(startDate, numDays, new MinuteBitmap(offPeakStart, offPeakEnd), Collections.<LocalDate>emptyList());
+    }
+    
+    /**
+     * @param startDate The midnight of the first day of the period, in the time zone of the table
+     * @param numDays The number of days of the period
+     * @param offPeakMinutes The minutes of the day within the off peak time period
+     * @param holidays The days billed at the off peak rate all day long
+     */
+    public TimeTable(DateTime startDate, int numDays, MinuteBitmap offPeakMinutes, List<LocalDate> holidays) {
+        zone = startDate.getZone();
+        firstDay = Math.floorDiv(startDate.getMillis() + zone.getOffset(startDate), MINUTES_PER_DAY * MILLIS_PER_MINUTE);
+        
+        long from = startDate.minusDays(MARGIN_DAYS).getMillis();
+        long until = startDate.plusDays(Math.max(0, numDays) + MARGIN_DAYS).getMillis();
+        tableStart = Math.floorDiv(from, MILLIS_PER_MINUTE);
+        tableEnd = Math.floorDiv(until, MILLIS_PER_MINUTE);
+        
+        List<Long> times = new ArrayList<Long>();
+        List<Integer> zoneOffsets = new ArrayList<Integer>();
+        zoneOffsets.add(offsetMinutes(from));
+        
+        for (long t=zone.nextTransition(from); t > from && t < until; t=zone.nextTransition(t)) {
+            times.add(Math.floorDiv(t, MILLIS_PER_MINUTE));
+            zoneOffsets.add(offsetMinutes(t));
+        }
+        
+        transitions = new long[times.size()];
+        localTransitions = new long[times.size()];
+        offsets = new int[zoneOffsets.size()];
+        offsets[0] = zoneOffsets.get(0);
+        
+        for (int i=0; i<transitions.length; i++) {
+            transitions[i] = times.get(i);
+            offsets[i + 1] = zoneOffsets.get(i + 1);
+            localTransitions[i] = transitions[i] + Math.max(offsets[i], offsets[i + 1]);
+        }
+        
+        this.offPeakMinutes = offPeakMinutes;
+        
+        this.holidays = new long[holidays.size()];
+        for (int i=0; i<holidays.size(); i++) {
+            this.holidays[i] = Math.floorDiv(holidays.get(i).toDateTimeAtStartOfDay(DateTimeZone.UTC).getMillis(),
+                    MINUTES_PER_DAY * MILLIS_PER_MINUTE);
+        }
+        Arrays.sort(this.holidays);
+        
+        holidayTable = new boolean[Math.max(0, numDays) + 2 * MARGIN_DAYS];
+        for (long holiday : this.holidays) {
+            long i = holiday - firstDay + MARGIN_DAYS;
+            
+            if (i >= 0 && i < holidayTable.length)
+                holidayTable[(int) i] = true;
+        }
+    }
+    
+    public DateTimeZone getZone() {
+        return zone;
+    }
+    
+    /**
+     * @param day The day, counted from the start of the period
+     * @return The epoch minute of the midnight of the day
+     */
+    public long getDayStart(int day) {
+        return getStart(day, 0);
+    }
+    
+    /**
+     * @param day The day, counted from the start of the period
+     * @param minuteOfDay The local time, in minutes from midnight
+     * @return The epoch minute of the local time of the day
+     */
+    public long getStart(int day, int minuteOfDay) {
+        return toEpochMinute((firstDay + day) * MINUTES_PER_DAY + minuteOfDay);
+    }
+    
+    /**
+     * @param day The day, counted from the start of the period
+     * @return The day of the week of the day, as given by {@link DateTime#getDayOfWeek()}
+     */
+    public int getDayName(int day) {
+        return dayOfWeek(firstDay + day);
+    }
+    
+    /**
+     * @param minute The epoch minute
+     * @return The day of the week of the minute, as given by {@link DateTime#getDayOfWeek()}
+     */
+    public int getDayOfWeek(long minute) {
+        return dayOfWeek(Math.floorDiv(toLocalMinute(minute), (long) MINUTES_PER_DAY));
+    }
+    
+    /**
+     * @param minute The epoch minute
+     * @return The local time of the minute, in minutes from midnight
+     */
+    public int getMinuteOfDay(long minute) {
+        return (int) Math.floorMod(toLocalMinute(minute), (long) MINUTES_PER_DAY);
+    }
+    
+    /**
+     * @param localDay The local day, counted from 01/01/1970
+     * @return The type of the day: {@link #WEEKDAY}, {@link #WEEKEND} or {@link #HOLIDAY}
+     */
+    public int getDayType(long localDay) {
+        long i = localDay - firstDay + MARGIN_DAYS;
+        boolean holiday = (i >= 0 && i < holidayTable.length)
+                ? holidayTable[(int) i] : Arrays.binarySearch(holidays, localDay) >= 0;
+        
+        if (holiday)
+            return HOLIDAY;
+        
+        return DateTimeDistribution.isWeekend(dayOfWeek(localDay)) ? WEEKEND : WEEKDAY;
+    }
+    
+    /**
+     * @param minute The epoch minute
+     * @return True if the minute is charged at the off peak rate: on weekends,
+     *         on holidays or within the off peak time period
+     */
+    public boolean isOffPeak(long minute) {
+        long local = toLocalMinute(minute);
+        
+        return getDayType(Math.floorDiv(local, (long) MINUTES_PER_DAY)) != WEEKDAY
+                || offPeakMinutes.contains((int) Math.floorMod(local, (long) MINUTES_PER_DAY));
+    }
+    
+    /**
+     * @param dayOfWeek The day of the week, as given by {@link DateTime#getDayOfWeek()}
+     * @param minuteOfDay The minute of the day
+     * @return True if the minute is charged at the off peak rate: on weekends or
+     *         within the off peak time period, the holidays are not known
+     * @deprecated The day of the week doesn't tell the holidays apart, use {@link #isOffPeak(long)}
+     */
+    @Deprecated
+    public boolean isOffPeak(int dayOfWeek, int minuteOfDay) {
+        return DateTimeDistribution.isWeekend(dayOfWeek) || offPeakMinutes.contains(minuteOfDay);
+    }
+    
+    /**
+     * @param minute The epoch minute
+     * @return The offset of the time zone at the minute, in minutes
+     */
+    public int getOffset(long minute) {
+        if (minute < tableStart || minute >= tableEnd)
+            return offsetMinutes(minute * MILLIS_PER_MINUTE);
+        
+        return offsets[countUpTo(transitions, minute)];
+    }
+    
+    /**
+     * @param minute The epoch minute
+     * @return The local minute
+     */
+    public long toLocalMinute(long minute) {
+        return minute + getOffset(minute);
+    }
+    
+    /**
+     * @param localMinute The local minute
+     * @return The epoch minute of the local minute
+     */
+    public long toEpochMinute(long localMinute) {
+        long minute = localMinute - offsets[countUpTo(localTransitions, localMinute)];
+        
+        if (minute < tableStart || minute >= tableEnd)
+            return Math.floorDiv(zone.convertLocalToUTC(localMinute * MILLIS_PER_MINUTE, false), MILLIS_PER_MINUTE);
+        
+        return minute;
+    }
+    
+    /**
+     * @param minute The epoch minute
+     * @return The date and time of the minute, in the time zone of the table
+     */
+    public DateTime toDateTime(long minute) {
+        return new DateTime(minute * MILLIS_PER_MINUTE, zone);
+    }
+    
+    private int offsetMinutes(long millis) {
+        return (int) Math.floorDiv(zone.getOffset(millis), MILLIS_PER_MINUTE);
+    }
+    
+    private static int dayOfWeek(long localDay) {
+        return (int) Math.floorMod(localDay + EPOCH_DAY_OF_WEEK - 1, 7L) + 1;
+    }
+    
+    /**
+     * @return The number of values of the sorted array up to the value
+     */
+    private static int countUpTo(long[] values, long value) {
+        int low = 0, high = values.length;
+        
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            
+            if (values[mid] <= value) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        
+        return low;
+    }
+}
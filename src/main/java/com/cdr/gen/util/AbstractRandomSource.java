@@ -0,0 +1,62 @@
+package com.cdr.gen.util;
+
+/**
+ * Derives bounded integers, doubles and gaussian values from the 64-bit output
+ * of a generator. StrictMath is used so that the values are the same on any host.
+ * @author Maycon Viana Bordin <mayconbordin@gmail.com>
+ */
+public abstract class AbstractRandomSource implements RandomSource {
+    private double nextNextGaussian;
+    private boolean haveNextNextGaussian = false;
+
+    @Override
+    public int nextInt(int bound) {
+        if (bound <= 0)
+            throw new IllegalArgumentException("bound must be positive");
+        
+        // Lemire's multiply-and-shift, with rejection of the biased values
+        long m = (nextLong() >>> 32) * bound;
+        long l = m & 0xFFFFFFFFL;
+        
+        if (l < bound) {
+            long threshold = (0x100000000L - bound) % bound;
+            
+            while (l < threshold) {
+                m = (nextLong() >>> 32) * bound;
+                l = m & 0xFFFFFFFFL;
+            }
+        }
+        
+        return (int) (m >>> 32);
+    }
+
+    @Override
+    public double nextDouble() {
+        return (nextLong() >>> 11) * 0x1.0p-53;
+    }
+
+    /**
+     * Marsaglia's polar method, which produces two values at a time.
+     * @return A normally distributed value
+     */
+    @Override
+    public double nextGaussian() {
+        if (haveNextNextGaussian) {
+            haveNextNextGaussian = false;
+            return nextNextGaussian;
+        }
+        
+        double v1, v2, s;
+        do {
+            v1 = 2 * nextDouble() - 1;
+            v2 = 2 * nextDouble() - 1;
+            s = v1 * v1 + v2 * v2;
+        } while (s >= 1 || s == 0);
+        
+        double multiplier = StrictMath.sqrt(-2 * StrictMath.log(s) / s);
+        nextNextGaussian = v2 * multiplier;
+        haveNextNextGaussian = true;
+        
+        return v1 * multiplier;
+    }
+}
@@ -0,0 +1,96 @@
+package com.cdr.gen.util;
+
+/**
+ * Samples indexes from a discrete probability distribution in constant time,
+ * using the alias method as described by Vose. The tables are built once from
+ * the weights, which don't need to sum to one as they are normalized.
+ * @author Maycon Viana Bordin <mayconbordin@gmail.com>
+ */
+public class AliasSampler {
+    private final double[] probability;
+    private final int[] alias;
+
+    /**
+     * @param weights The weight of each index, must be non-negative and not all zero
+     */
+    public AliasSampler(double[] weights) {
+        int n = weights.length;
+        
+        if (n == 0)
+            throw new IllegalArgumentException("At least one weight is required.");
+        
+        double sum = 0;
+        for (double w : weights) {
+            if (!(w >= 0) || Double.isInfinite(w))
+                throw new IllegalArgumentException("Invalid weight " + w + ".");
+            sum += w;
+        }
+        
+        if (sum <= 0)
+            throw new IllegalArgumentException("The weights must not be all zero.");
+        
+        probability = new double[n];
+        alias = new int[n];
+        
+        double[] scaled = new double[n];
+        int[] small = new int[n];
+        int[] large = new int[n];
+        int numSmall = 0, numLarge = 0;
+        
+        for (int i=0; i<n; i++) {
+            scaled[i] = weights[i] * n / sum;
+            
+            if (scaled[i] < 1)
+                small[numSmall++] = i;
+            else
+                large[numLarge++] = i;
+        }
+        
+        while (numSmall > 0 && numLarge > 0) {
+            int s = small[--numSmall];
+            int l = large[--numLarge];
+            
+            probability[s] = scaled[s];
+            alias[s] = l;
+            
+            scaled[l] = (scaled[l] + scaled[s]) - 1;
+            
+            if (scaled[l] < 1)
+                small[numSmall++] = l;
+            else
+                large[numLarge++] = l;
+        }
+        
+        // whatever is left has, up to rounding errors, a probability of one
+        while (numLarge > 0) {
+            int l = large[--numLarge];
+            probability[l] = 1;
+            alias[l] = l;
+        }
+        
+        while (numSmall > 0) {
+            int s = small[--numSmall];
+            probability[s] = 1;
+            alias[s] = s;
+        }
+    }
+    
+    /**
+     * Draws an index using a single uniform value.
+     * @param random The random number generator
+     * @return An index between zero (inclusive) and {@link #size()} (exclusive)
+     */
+    public int sample(RandomSource random) {
+        double u = random.nextDouble() * probability.length;
+        int column = (int) u;
+        
+        return (u - column < probability[column]) ? column : alias[column];
+    }
+    
+    /**
+     * @return The number of indexes of the distribution
+     */
+    public int size() {
+        return probability.length;
+    }
+}
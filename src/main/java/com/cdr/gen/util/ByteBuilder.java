@@ -0,0 +1,81 @@
+package com.cdr.gen.util;
+
+import java.util.Arrays;
+
+/**
+ * A growable byte array with methods for writing variable-length integers.
+ * @author Maycon Viana Bordin <mayconbordin@gmail.com>
+ */
+public class ByteBuilder {
+    private byte[] bytes;
+    private int size;
+
+    public ByteBuilder(int capacity) {
+        bytes = new byte[Math.max(16, capacity)];
+    }
+    
+    public void writeByte(int value) {
+        ensureCapacity(1);
+        bytes[size++] = (byte) value;
+    }
+    
+    public void writeBytes(byte[] value, int offset, int length) {
+        ensureCapacity(length);
+        System.arraycopy(value, offset, bytes, size, length);
+        size += length;
+    }
+    
+    /**
+     * Writes an unsigned value using 7 bits per byte, least significant group first.
+     * @param value The value, interpreted as unsigned
+     */
+    public void writeVarLong(long value) {
+        ensureCapacity(10);
+        
+        while ((value & ~0x7FL) != 0) {
+            bytes[size++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        
+        bytes[size++] = (byte) value;
+    }
+    
+    /**
+     * Writes a signed value with zig-zag encoding, so that small negative values
+     * take few bytes too.
+     * @param value The signed value
+     */
+    public void writeZigZag(long value) {
+        writeVarLong((value << 1) ^ (value >> 63));
+    }
+    
+    /**
+     * Appends the contents of another builder, prefixed by its length.
+     * @param other The builder to be appended
+     */
+    public void writeSection(ByteBuilder other) {
+        writeVarLong(other.size);
+        writeBytes(other.bytes, 0, other.size);
+    }
+    
+    private void ensureCapacity(int length) {
+        if (size + length > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + length));
+        }
+    }
+    
+    public void clear() {
+        size = 0;
+    }
+    
+    public int size() {
+        return size;
+    }
+    
+    /**
+     * @return The internal array, only the first {@link #size()} bytes are valid
+     */
+    public byte[] array() {
+        return bytes;
+    }
+}
@@ -0,0 +1,79 @@
+package com.cdr.gen.util;
+
+/**
+ * Reads the values written by a {@link ByteBuilder} from a byte array.
+ * @author Maycon Viana Bordin <mayconbordin@gmail.com>
+ */
+public class ByteReader {
+    private byte[] bytes;
+    private int position;
+    private int limit;
+
+    public ByteReader() {
+        this(new byte[0], 0, 0);
+    }
+
+    public ByteReader(byte[] bytes, int offset, int length) {
+        reset(bytes, offset, length);
+    }
+    
+    public final void reset(byte[] bytes, int offset, int length) {
+        this.bytes = bytes;
+        this.position = offset;
+        this.limit = offset + length;
+    }
+    
+    public int readByte() {
+        checkAvailable(1);
+        return bytes[position++] & 0xFF;
+    }
+    
+    public long readVarLong() {
+        long value = 0;
+        
+        for (int shift = 0; shift < 64; shift += 7) {
+            checkAvailable(1);
+            byte b = bytes[position++];
+            value |= (long) (b & 0x7F) << shift;
+            
+            if ((b & 0x80) == 0)
+                return value;
+        }
+        
+        throw new IllegalStateException("Malformed variable-length integer.");
+    }
+    
+    public long readZigZag() {
+        long value = readVarLong();
+        return (value >>> 1) ^ -(value & 1);
+    }
+    
+    /**
+     * Reads a section written by {@link ByteBuilder#writeSection(ByteBuilder)}.
+     * @param section The reader that will be positioned over the section
+     */
+    public void readSection(ByteReader section) {
+        int length = (int) readVarLong();
+        checkAvailable(length);
+        section.reset(bytes, position, length);
+        position += length;
+    }
+    
+    public byte[] array() {
+        return bytes;
+    }
+    
+    public int position() {
+        return position;
+    }
+    
+    public void skip(int length) {
+        checkAvailable(length);
+        position += length;
+    }
+    
+    private void checkAvailable(int length) {
+        if (position + length > limit)
+            throw new IllegalStateException("Unexpected end of data.");
+    }
+}
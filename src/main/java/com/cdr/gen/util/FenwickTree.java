@@ -0,0 +1,120 @@
+package com.cdr.gen.util;
+
+/**
+ * A binary indexed tree of non-negative integer weights, which updates a weight
+ * and finds the position of a cumulative weight in logarithmic time, so that a
+ * position can be drawn with probability proportional to its weight while the
+ * weights change.
+ *
+ * The weights are integers so that removing weights doesn't accumulate rounding
+ * errors and a position whose weight was set to zero is never drawn.
+ *
+ * @author Maycon Viana Bordin <mayconbordin@gmail.com>
+ */
+public class FenwickTree {
+    private final long[] tree;
+    private final long[] weights;
+    private long total;
+    
+    /**
+     * @param weights The initial weights, copied
+     */
+    public FenwickTree(long[] weights) {
+        this.weights = weights.clone();
+        tree = new long[weights.length + 1];
+        
+        for (int i=1; i<tree.length; i++) {
+            if (weights[i-1] < 0)
+                throw new IllegalArgumentException("The weights can't be negative.");
+            
+            tree[i] += weights[i-1];
+            total += weights[i-1];
+            
+            int parent = i + (i & -i);
+            if (parent < tree.length) {
+                tree[parent] += tree[i];
+            }
+        }
+    }
+    
+    public int size() {
+        return weights.length;
+    }
+    
+    /**
+     * @return The sum of all weights
+     */
+    public long total() {
+        return total;
+    }
+    
+    /**
+     * @param i The position
+     * @return The weight of the position
+     */
+    public long get(int i) {
+        return weights[i];
+    }
+    
+    /**
+     * @param i The position
+     * @param weight The new weight of the position
+     */
+    public void set(int i, long weight) {
+        if (weight < 0)
+            throw new IllegalArgumentException("The weights can't be negative.");
+        
+        long delta = weight - weights[i];
+        weights[i] = weight;
+        total += delta;
+        
+        for (int j=i+1; j<tree.length; j+=(j & -j)) {
+            tree[j] += delta;
+        }
+    }
+    
+    /**
+     * @param i The end of the range (exclusive)
+     * @return The sum of the weights of the positions before i
+     */
+    public long prefixSum(int i) {
+        long sum = 0;
+        for (int j=i; j>0; j-=(j & -j)) {
+            sum += tree[j];
+        }
+        return sum;
+    }
+    
+    /**
+     * @param target A cumulative weight, from 0 (inclusive) to {@link #total()} (exclusive)
+     * @return The position whose range of cumulative weights holds the target,
+     *         always a position with a positive weight
+     */
+    public int find(long target) {
+        int pos = 0;
+        
+        for (int step=Integer.highestOneBit(tree.length); step>0; step>>=1) {
+            int next = pos + step;
+            
+            if (next < tree.length && tree[next] <= target) {
+                pos = next;
+                target -= tree[next];
+            }
+        }
+        
+        return pos;
+    }
+    
+    /**
+     * Draws a position with probability proportional to its weight.
+     * @param random The random number generator
+     * @return The position, or -1 if all the weights are zero
+     */
+    public int sample(RandomSource random) {
+        if (total <= 0)
+            return -1;
+        
+        long target = (long) (random.nextDouble() * total);
+        return find(Math.min(target, total - 1));
+    }
+}
@@ -0,0 +1,116 @@
+package com.cdr.gen.util;
+
+import java.util.Arrays;
+
+/**
+ * A set of non-overlapping, half-open intervals <code>[start, end)</code> kept
+ * sorted in primitive arrays. Overlap checks are binary searches that don't
+ * allocate, and as the intervals are not grouped by day, intervals that cross
+ * midnight are handled like any other.
+ * @author Maycon Viana Bordin <mayconbordin@gmail.com>
+ */
+public class IntervalIndex {
+    private long[] starts;
+    private long[] ends;
+    private int size;
+
+    public IntervalIndex() {
+        this(16);
+    }
+
+    public IntervalIndex(int capacity) {
+        starts = new long[Math.max(1, capacity)];
+        ends   = new long[Math.max(1, capacity)];
+    }
+    
+    /**
+     * @param start The start of the interval (inclusive)
+     * @param end The end of the interval (exclusive)
+     * @return True if the interval overlaps any interval of the index
+     */
+    public boolean overlaps(long start, long end) {
+        // the intervals don't overlap each other, so the ends are sorted too and
+        // only the last interval starting before the end needs to be checked
+        int i = lowerBound(end);
+        return i > 0 && ends[i-1] > start;
+    }
+    
+    /**
+     * Adds the interval to the index, unless it overlaps an existing one.
+     * @param start The start of the interval (inclusive)
+     * @param end The end of the interval (exclusive)
+     * @return True if the interval was added, false if it overlaps another interval
+     */
+    public boolean add(long start, long end) {
+        int i = lowerBound(end);
+        
+        if (i > 0 && ends[i-1] > start)
+            return false;
+        
+        if (size == starts.length) {
+            starts = Arrays.copyOf(starts, size * 2);
+            ends   = Arrays.copyOf(ends, size * 2);
+        }
+        
+        System.arraycopy(starts, i, starts, i+1, size-i);
+        System.arraycopy(ends, i, ends, i+1, size-i);
+        starts[i] = start;
+        ends[i] = end;
+        size++;
+        
+        return true;
+    }
+    
+    /**
+     * @param value The value to be searched
+     * @return The start of the first interval that starts at or after the value,
+     *         or {@link Long#MAX_VALUE} if there is none
+     */
+    public long nextStart(long value) {
+        int i = lowerBound(value);
+        return (i < size) ? starts[i] : Long.MAX_VALUE;
+    }
+    
+    /**
+     * @param i The position of the interval, in start order
+     * @return The start of the interval
+     */
+    public long getStart(int i) {
+        return starts[i];
+    }
+    
+    /**
+     * @param i The position of the interval, in start order
+     * @return The end of the interval
+     */
+    public long getEnd(int i) {
+        return ends[i];
+    }
+    
+    public void clear() {
+        size = 0;
+    }
+    
+    public int size() {
+        return size;
+    }
+    
+    /**
+     * @param value The value to be searched
+     * @return The number of intervals that start before the value
+     */
+    private int lowerBound(long value) {
+        int low = 0, high = size;
+        
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            
+            if (starts[mid] < value)
+                low = mid + 1;
+            else
+                high = mid;
+        }
+        
+        return low;
+    }
+}
@@ -0,0 +1,94 @@
+package com.cdr.gen.util;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A histogram of non-negative values in power of two buckets, which can be
+ * updated by many threads at once with little contention. Bucket 0 counts the
+ * zeros and bucket <code>b</code> the values from <code>2^(b-1)</code> to
+ * <code>2^b - 1</code>.
+ *
+ * @author Maycon Viana Bordin <mayconbordin@gmail.com>
+ */
+public class LongHistogram {
+    public static final int NUM_BUCKETS = 65;
+    
+    private final LongAdder[] buckets = new LongAdder[NUM_BUCKETS];
+    private final LongAdder sum = new LongAdder();
+    
+    public LongHistogram() {
+        for (int i=0; i<buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+    
+    /**
+     * @param value The value, negative values are counted as zero
+     */
+    public void record(long value) {
+        if (value < 0)
+            value = 0;
+        
+        buckets[bucketOf(value)].increment();
+        sum.add(value);
+    }
+    
+    /**
+     * @param value The value
+     * @return The index of the bucket of the value
+     */
+    public static int bucketOf(long value) {
+        return 64 - Long.numberOfLeadingZeros(value);
+    }
+    
+    /**
+     * @return The number of values recorded
+     */
+    public long getCount() {
+        long count = 0;
+        for (LongAdder bucket : buckets) {
+            count += bucket.sum();
+        }
+        return count;
+    }
+    
+    public double getMean() {
+        long count = getCount();
+        return count > 0 ? sum.sum() / (double) count : 0;
+    }
+    
+    /**
+     * @return The number of values of each bucket
+     */
+    public long[] getCounts() {
+        long[] counts = new long[NUM_BUCKETS];
+        for (int i=0; i<counts.length; i++) {
+            counts[i] = buckets[i].sum();
+        }
+        return counts;
+    }
+    
+    /**
+     * @param quantile The quantile, from 0 to 1
+     * @return The upper bound of the bucket of the quantile, or 0 if there are no values
+     */
+    public long getQuantile(double quantile) {
+        long[] counts = getCounts();
+        long count = 0;
+        for (long c : counts) {
+            count += c;
+        }
+        
+        long rank = (long) Math.ceil(quantile * count);
+        long seen = 0;
+        
+        for (int i=0; i<counts.length; i++) {
+            seen += counts[i];
+            
+            if (seen >= rank && counts[i] > 0)
+                return (i == 0) ? 0 : (i == 64) ? Long.MAX_VALUE : (1L << i) - 1;
+        }
+        
+        return 0;
+    }
+}
@@ -0,0 +1,133 @@
+package com.cdr.gen.util;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * A binary min-heap of entries made of a long key and an int value, stored in
+ * primitive arrays so that the k-way merges that use it don't allocate. Entries
+ * with the same key are ordered by value, which keeps the merges deterministic.
+ * @author Maycon Viana Bordin <mayconbordin@gmail.com>
+ */
+public class LongIntHeap {
+    private long[] keys;
+    private int[] values;
+    private int size;
+
+    public LongIntHeap() {
+        this(16);
+    }
+
+    public LongIntHeap(int capacity) {
+        keys   = new long[Math.max(1, capacity)];
+        values = new int[Math.max(1, capacity)];
+    }
+    
+    public void add(long key, int value) {
+        if (size == keys.length) {
+            keys   = Arrays.copyOf(keys, size * 2);
+            values = Arrays.copyOf(values, size * 2);
+        }
+        
+        int i = size++;
+        
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            
+            if (!less(key, value, keys[parent], values[parent]))
+                break;
+            
+            keys[i] = keys[parent];
+            values[i] = values[parent];
+            i = parent;
+        }
+        
+        keys[i] = key;
+        values[i] = value;
+    }
+    
+    /**
+     * @return The smallest key of the heap
+     */
+    public long peekKey() {
+        checkNotEmpty();
+        return keys[0];
+    }
+    
+    /**
+     * @return The value of the entry with the smallest key
+     */
+    public int peekValue() {
+        checkNotEmpty();
+        return values[0];
+    }
+    
+    /**
+     * Removes the entry with the smallest key.
+     * @return The value of the removed entry
+     */
+    public int poll() {
+        checkNotEmpty();
+        int value = values[0];
+        
+        if (--size > 0) {
+            siftDown(keys[size], values[size]);
+        }
+        
+        return value;
+    }
+    
+    /**
+     * Replaces the key of the entry with the smallest key, which is cheaper than
+     * removing it and adding it back when a merged run advances to its next element.
+     * @param key The new key of the top entry
+     */
+    public void replaceTopKey(long key) {
+        checkNotEmpty();
+        siftDown(key, values[0]);
+    }
+    
+    public int size() {
+        return size;
+    }
+    
+    public boolean isEmpty() {
+        return size == 0;
+    }
+    
+    public void clear() {
+        size = 0;
+    }
+    
+    private void siftDown(long key, int value) {
+        int i = 0;
+        int half = size >>> 1;
+        
+        while (i < half) {
+            int child = 2 * i + 1;
+            int right = child + 1;
+            
+            if (right < size && less(keys[right], values[right], keys[child], values[child]))
+                child = right;
+            
+            if (!less(keys[child], values[child], key, value))
+                break;
+            
+            keys[i] = keys[child];
+            values[i] = values[child];
+            i = child;
+        }
+        
+        keys[i] = key;
+        values[i] = value;
+    }
+    
+    private static boolean less(long key, int value, long otherKey, int otherValue) {
+        return key < otherKey || (key == otherKey && value < otherValue);
+    }
+    
+    private void checkNotEmpty() {
+        if (size == 0)
+            throw new NoSuchElementException("The heap is empty.");
+    }
+}
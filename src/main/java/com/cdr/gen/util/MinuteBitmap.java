@@ -0,0 +1,84 @@
+package com.cdr.gen.util;
+
+/**
+ * A set of minutes of the day, kept as one bit per minute, so that checking if
+ * a minute is in the set is a single bit test. The minutes are added by windows
+ * <code>[start, end)</code>, and a window that doesn't end after its start wraps
+ * around midnight, so a window from 18:00 to 08:00 covers the night and one that
+ * ends at its start covers the whole day.
+ * @author Maycon Viana Bordin <mayconbordin@gmail.com>
+ */
+public class MinuteBitmap {
+    public static final int MINUTES_PER_DAY = 24 * 60;
+    
+    private final long[] bits = new long[(MINUTES_PER_DAY + 63) >>> 6];
+    
+    public MinuteBitmap() {
+    }
+    
+    /**
+     * @param start The minute of the day when the window starts (inclusive)
+     * @param end The minute of the day when the window ends (exclusive)
+     */
+    public MinuteBitmap(int start, int end) {
+        add(start, end);
+    }
+    
+    /**
+     * Adds the minutes of a window, wrapping around midnight when the window
+     * doesn't end after its start.
+     * @param start The minute of the day when the window starts (inclusive)
+     * @param end The minute of the day when the window ends (exclusive)
+     */
+    public void add(int start, int end) {
+        checkMinute(start);
+        checkMinute(end);
+        
+        if (end <= start) {
+            addRange(start, MINUTES_PER_DAY);
+            addRange(0, end);
+        } else {
+            addRange(start, end);
+        }
+    }
+    
+    /**
+     * @param minute The minute of the day, from 0 to 1439
+     * @return True if the minute is in the set
+     */
+    public boolean contains(int minute) {
+        return (bits[minute >>> 6] & (1L << minute)) != 0;
+    }
+    
+    /**
+     * @return The number of minutes in the set
+     */
+    public int cardinality() {
+        int count = 0;
+        for (long word : bits) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+    
+    private void addRange(int start, int end) {
+        if (start >= end)
+            return;
+        
+        int last = end - 1;
+        int firstWord = start >>> 6, lastWord = last >>> 6;
+        
+        // -1L << n keeps the bits from n up and -1L >>> (63 - n) the bits up to n
+        for (int w=firstWord; w<=lastWord; w++) {
+            long mask = -1L;
+            if (w == firstWord) mask &= -1L << start;
+            if (w == lastWord)  mask &= -1L >>> (63 - (last & 63));
+            bits[w] |= mask;
+        }
+    }
+    
+    private static void checkMinute(int minute) {
+        if (minute < 0 || minute >= MINUTES_PER_DAY)
+            throw new IllegalArgumentException("The minute of the day must be between 0 and " + (MINUTES_PER_DAY - 1) + ".");
+    }
+}
@@ -0,0 +1,54 @@
+package com.cdr.gen.util;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Waits until given instants of the {@link System#nanoTime()} clock. The thread
+ * is parked until shortly before the deadline and then spins, as parking alone
+ * overshoots by tens of microseconds, which at high rates adds up to a rate well
+ * below the target.
+ * @author Maycon Viana Bordin <mayconbordin@gmail.com>
+ */
+public class Pacer {
+    /**
+     * How long before the deadline the pacer stops parking and starts spinning.
+     */
+    public static final long DEFAULT_SPIN_NANOS = 100000;
+    
+    private final long spinNanos;
+
+    public Pacer() {
+        this(DEFAULT_SPIN_NANOS);
+    }
+
+    public Pacer(long spinNanos) {
+        this.spinNanos = spinNanos;
+    }
+    
+    /**
+     * Waits until the deadline, returning immediately if it has already passed.
+     * @param deadline The instant to wait for, in {@link System#nanoTime()} units
+     * @return The current instant, which is never before the deadline
+     * @throws InterruptedException If the thread is interrupted while waiting
+     */
+    public long awaitUntil(long deadline) throws InterruptedException {
+        long now = System.nanoTime();
+        
+        while (now - deadline < 0) {
+            long remaining = deadline - now;
+            
+            if (remaining > spinNanos) {
+                LockSupport.parkNanos(remaining - spinNanos);
+            } else {
+                Thread.yield();
+            }
+            
+            if (Thread.interrupted())
+                throw new InterruptedException();
+            
+            now = System.nanoTime();
+        }
+        
+        return now;
+    }
+}
@@ -0,0 +1,177 @@
+package com.cdr.gen.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A channel that compresses the written bytes in gzip format. The data is split
+ * in blocks that are compressed in parallel, each one as an independent gzip
+ * member, and the members are written in order. A file of concatenated members
+ * is a valid gzip file, readable by any gzip tool.
+ * @author Maycon Viana Bordin <mayconbordin@gmail.com>
+ */
+public class ParallelGzipChannel implements WritableByteChannel, Flushable {
+    private final WritableByteChannel channel;
+    private final ExecutorService executor;
+    private final int level;
+    private final int maxPending;
+    
+    private byte[] block;
+    private int position;
+    private final Deque<Future<byte[]>> pending = new ArrayDeque<Future<byte[]>>();
+    private boolean open = true;
+    private long compressedBytes;
+
+    /**
+     * @param channel The destination of the compressed data, closed with this channel
+     * @param level The compression level, from 0 to 9
+     * @param blockSize The number of uncompressed bytes of each block
+     * @param executor The executor that compresses the blocks, it is not shut down
+     * @param maxPending The maximum number of blocks being compressed at once
+     */
+    public ParallelGzipChannel(WritableByteChannel channel, int level, int blockSize,
+            ExecutorService executor, int maxPending) {
+        if (level < 0 || level > 9)
+            throw new IllegalArgumentException("Invalid compression level " + level + ".");
+        
+        this.channel = channel;
+        this.level = level;
+        this.executor = executor;
+        this.maxPending = Math.max(1, maxPending);
+        this.block = new byte[Math.max(1024, blockSize)];
+    }
+
+    @Override
+    public int write(ByteBuffer src) throws IOException {
+        if (!open)
+            throw new ClosedChannelException();
+        
+        int written = src.remaining();
+        
+        while (src.hasRemaining()) {
+            int length = Math.min(src.remaining(), block.length - position);
+            src.get(block, position, length);
+            position += length;
+            
+            if (position == block.length) {
+                submitBlock();
+            }
+        }
+        
+        return written;
+    }
+    
+    /**
+     * Compresses the buffered bytes as a complete gzip member and writes all
+     * pending members, so that the data written so far forms a valid gzip file.
+     * @throws IOException If the data could not be written
+     */
+    @Override
+    public void flush() throws IOException {
+        if (position > 0) {
+            submitBlock();
+        }
+        
+        while (!pending.isEmpty()) {
+            writeMember(pending.poll());
+        }
+    }
+    
+    /**
+     * @return The number of compressed bytes written to the destination so far
+     */
+    public long getCompressedBytes() {
+        return compressedBytes;
+    }
+    
+    private void submitBlock() throws IOException {
+        final byte[] data = block;
+        final int length = position;
+        
+        pending.add(executor.submit(new Callable<byte[]>() {
+            @Override
+            public byte[] call() throws IOException {
+                return compress(data, length);
+            }
+        }));
+        
+        block = new byte[block.length];
+        position = 0;
+        
+        while (pending.size() >= maxPending) {
+            writeMember(pending.poll());
+        }
+    }
+    
+    private byte[] compress(byte[] data, int length) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(length / 4 + 64);
+        
+        GZIPOutputStream gzip = new GZIPOutputStream(out, 64 * 1024) {
+            {
+                def.setLevel(level);
+            }
+        };
+        
+        gzip.write(data, 0, length);
+        gzip.close();
+        
+        return out.toByteArray();
+    }
+    
+    private void writeMember(Future<byte[]> future) throws IOException {
+        byte[] member;
+        
+        try {
+            member = future.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while compressing the output.");
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof IOException)
+                throw (IOException) ex.getCause();
+            throw new IOException("Error while compressing the output.", ex.getCause());
+        }
+        
+        ByteBuffer buffer = ByteBuffer.wrap(member);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        
+        compressedBytes += member.length;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return open;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!open)
+            return;
+        
+        try {
+            flush();
+        } finally {
+            open = false;
+            
+            for (Future<byte[]> future : pending) {
+                future.cancel(true);
+            }
+            
+            channel.close();
+        }
+    }
+}
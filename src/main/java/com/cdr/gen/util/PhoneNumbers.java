@@ -0,0 +1,81 @@
+package com.cdr.gen.util;
+
+/**
+ * Packs phone numbers of up to 15 digits into a long. The number of digits is
+ * kept in the four upper bits, so that leading zeros are preserved, and the
+ * value of the digits in the remaining 60 bits.
+ * @author Maycon Viana Bordin <mayconbordin@gmail.com>
+ */
+public final class PhoneNumbers {
+    public static final int MAX_DIGITS = 15;
+    
+    private static final int LENGTH_SHIFT = 60;
+    private static final long VALUE_MASK = (1L << LENGTH_SHIFT) - 1;
+
+    private PhoneNumbers() {}
+    
+    /**
+     * @param number The phone number, made only of digits
+     * @return The packed phone number
+     */
+    public static long pack(CharSequence number) {
+        int length = number.length();
+        
+        if (length > MAX_DIGITS)
+            throw new IllegalArgumentException("Phone number '" + number + "' has more than " 
+                    + MAX_DIGITS + " digits.");
+        
+        long value = 0;
+        for (int i=0; i<length; i++) {
+            int digit = number.charAt(i) - '0';
+            
+            if (digit < 0 || digit > 9)
+                throw new IllegalArgumentException("Phone number '" + number + "' is not numeric.");
+            
+            value = value * 10 + digit;
+        }
+        
+        return ((long) length << LENGTH_SHIFT) | value;
+    }
+    
+    /**
+     * @param length The number of digits
+     * @param value The value of the digits
+     * @return The packed phone number
+     */
+    public static long pack(int length, long value) {
+        return ((long) length << LENGTH_SHIFT) | value;
+    }
+    
+    /**
+     * @param packed The packed phone number
+     * @return The number of digits of the phone number
+     */
+    public static int length(long packed) {
+        return (int) (packed >>> LENGTH_SHIFT);
+    }
+    
+    /**
+     * @param packed The packed phone number
+     * @return The value of the digits of the phone number
+     */
+    public static long value(long packed) {
+        return packed & VALUE_MASK;
+    }
+    
+    /**
+     * @param packed The packed phone number
+     * @return The phone number, with its leading zeros
+     */
+    public static String unpack(long packed) {
+        char[] digits = new char[length(packed)];
+        long value = value(packed);
+        
+        for (int i=digits.length-1; i>=0; i--) {
+            digits[i] = (char) ('0' + (value % 10));
+            value /= 10;
+        }
+        
+        return new String(digits);
+    }
+}
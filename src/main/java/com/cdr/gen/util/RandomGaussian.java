@@ -1,7 +1,5 @@
 package com.cdr.gen.util;
 
-import java.util.Random;
-
 public class RandomGaussian {
     private double valueOne;
     private double valueTwo;
@@ -12,8 +10,10 @@ public class RandomGaussian {
     }
     
     public static RandomGaussian generate(double stdDev, double mean) {
-        Random rnd = new Random(System.currentTimeMillis());
-        
+        return generate(RandomSources.threadLocal(), stdDev, mean);
+    }
+    
+    public static RandomGaussian generate(RandomSource rnd, double stdDev, double mean) {
         double v1 = rnd.nextGaussian();
         double v2 = rnd.nextGaussian();
         
@@ -0,0 +1,35 @@
+package com.cdr.gen.util;
+
+/**
+ * A source of pseudo-random numbers. Implementations are not thread-safe, each
+ * worker must have its own source, obtained with {@link #split()} or created
+ * from a derived seed with {@link RandomSources#create(String, long)}.
+ * @author Maycon Viana Bordin <mayconbordin@gmail.com>
+ */
+public interface RandomSource {
+    /**
+     * @return A uniformly distributed long value
+     */
+    long nextLong();
+    
+    /**
+     * @param bound The upper bound (exclusive), must be positive
+     * @return A uniformly distributed value between zero (inclusive) and bound (exclusive)
+     */
+    int nextInt(int bound);
+    
+    /**
+     * @return A uniformly distributed value between 0.0 (inclusive) and 1.0 (exclusive)
+     */
+    double nextDouble();
+    
+    /**
+     * @return A normally distributed value with mean 0.0 and standard deviation 1.0
+     */
+    double nextGaussian();
+    
+    /**
+     * @return A new source whose sequence is statistically independent of this one
+     */
+    RandomSource split();
+}
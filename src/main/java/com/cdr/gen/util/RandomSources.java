@@ -0,0 +1,121 @@
+package com.cdr.gen.util;
+
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Creates the {@link RandomSource}s used by the generator. A run is driven by a
+ * single master <code>seed</code>, from which independent streams are derived,
+ * and the algorithm is selected by the <code>rng</code> configuration parameter.
+ * @author Maycon Viana Bordin <mayconbordin@gmail.com>
+ */
+public final class RandomSources {
+    public static final String SPLITTABLE = "splittable";
+    public static final String XOSHIRO256 = "xoshiro256";
+    
+    static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+    
+    private static final RandomSource THREAD_LOCAL = new ThreadLocalRandomSource();
+
+    private RandomSources() {}
+    
+    /**
+     * @param algorithm The name of the algorithm: {@link #SPLITTABLE} or {@link #XOSHIRO256}
+     * @param seed The seed of the generator
+     * @return A new random source
+     */
+    public static RandomSource create(String algorithm, long seed) {
+        if (SPLITTABLE.equals(algorithm)) {
+            return new SplittableRandomSource(seed);
+        } else if (XOSHIRO256.equals(algorithm)) {
+            return new Xoshiro256Source(seed);
+        }
+        
+        throw new IllegalArgumentException("Unknown random number generator '" + algorithm + "'.");
+    }
+    
+    /**
+     * @param config The configuration
+     * @return The name of the algorithm set in the configuration, or {@link #SPLITTABLE}
+     */
+    public static String getAlgorithm(Map<String, Object> config) {
+        return config.containsKey("rng") ? (String) config.get("rng") : SPLITTABLE;
+    }
+    
+    /**
+     * @param config The configuration
+     * @return The master seed set in the configuration, or a fresh one if none is set
+     */
+    public static long getSeed(Map<String, Object> config) {
+        if (config.containsKey("seed")) {
+            return ((Number) config.get("seed")).longValue();
+        }
+        
+        return mix(System.nanoTime() ^ System.currentTimeMillis());
+    }
+    
+    /**
+     * @param config The configuration
+     * @return A random source with the algorithm and seed of the configuration
+     */
+    public static RandomSource fromConfig(Map<String, Object> config) {
+        return create(getAlgorithm(config), getSeed(config));
+    }
+    
+    /**
+     * Derives the seed of an independent stream, such as the one of a chunk of
+     * accounts, from the master seed.
+     * @param seed The master seed
+     * @param stream The index of the stream
+     * @return The seed of the stream
+     */
+    public static long streamSeed(long seed, long stream) {
+        return mix(seed + mix(stream * GOLDEN_GAMMA + GOLDEN_GAMMA));
+    }
+    
+    /**
+     * The SplitMix64 finalizer.
+     * @param z The value to be mixed
+     * @return The mixed value
+     */
+    public static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+    
+    /**
+     * @return A thread-safe source backed by {@link ThreadLocalRandom}, for code
+     *         that doesn't need to be reproducible
+     */
+    public static RandomSource threadLocal() {
+        return THREAD_LOCAL;
+    }
+    
+    private static class ThreadLocalRandomSource implements RandomSource {
+        @Override
+        public long nextLong() {
+            return ThreadLocalRandom.current().nextLong();
+        }
+
+        @Override
+        public int nextInt(int bound) {
+            return ThreadLocalRandom.current().nextInt(bound);
+        }
+
+        @Override
+        public double nextDouble() {
+            return ThreadLocalRandom.current().nextDouble();
+        }
+
+        @Override
+        public double nextGaussian() {
+            return ThreadLocalRandom.current().nextGaussian();
+        }
+
+        @Override
+        public RandomSource split() {
+            return new SplittableRandomSource(nextLong());
+        }
+    }
+}
@@ -1,9 +1,6 @@
 package com.cdr.gen.util;
 
-import java.util.Random;
-
 public class RandomUtil {
-    private static Random rand = new Random();
     /**
      * Returns a pseudo-random number between min and max, inclusive.
      * The difference between min and max can be at most
@@ -12,27 +9,32 @@ public class RandomUtil {
      * @param min Minimum value
      * @param max Maximum value.  Must be greater than min.
      * @return Integer between min and max, inclusive.
-     * @see java.util.Random#nextInt(int)
+     * @see RandomSource#nextInt(int)
      */
     public static int randInt(int min, int max) {
-
-        // Usually this can be a field rather than a method variable
-        //Random rand = new Random();
-        rand.setSeed(System.currentTimeMillis());
-
+        return randInt(RandomSources.threadLocal(), min, max);
+    }
+    
+    /**
+     * Returns a pseudo-random number between min and max, inclusive, drawn from
+     * the given generator instead of the shared one.
+     *
+     * @param rand The random number generator
+     * @param min Minimum value
+     * @param max Maximum value.  Must be greater than min.
+     * @return Integer between min and max, inclusive.
+     */
+    public static int randInt(RandomSource rand, int min, int max) {
         // nextInt is normally exclusive of the top value,
         // so add 1 to make it inclusive
-        int randomNum = rand.nextInt((max - min) + 1) + min;
-
-        return randomNum;
+        return rand.nextInt((max - min) + 1) + min;
     }
     
     public static double randDouble(double min, double max) {
-        //Random rand = new Random();
-        rand.setSeed(System.currentTimeMillis());
-        
-        double randomNum = min + (rand.nextDouble() * ((max - min) + 1));
-
-        return randomNum;
+        return randDouble(RandomSources.threadLocal(), min, max);
+    }
+    
+    public static double randDouble(RandomSource rand, double min, double max) {
+        return min + (rand.nextDouble() * ((max - min) + 1));
     }
 }
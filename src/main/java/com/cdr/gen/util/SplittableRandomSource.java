@@ -0,0 +1,39 @@
+package com.cdr.gen.util;
+
+import java.util.SplittableRandom;
+
+/**
+ * A {@link RandomSource} backed by {@link SplittableRandom}.
+ * @author Maycon Viana Bordin <mayconbordin@gmail.com>
+ */
+public class SplittableRandomSource extends AbstractRandomSource {
+    private final SplittableRandom random;
+
+    public SplittableRandomSource(long seed) {
+        this(new SplittableRandom(seed));
+    }
+
+    private SplittableRandomSource(SplittableRandom random) {
+        this.random = random;
+    }
+
+    @Override
+    public long nextLong() {
+        return random.nextLong();
+    }
+
+    @Override
+    public int nextInt(int bound) {
+        return random.nextInt(bound);
+    }
+
+    @Override
+    public double nextDouble() {
+        return random.nextDouble();
+    }
+
+    @Override
+    public RandomSource split() {
+        return new SplittableRandomSource(random.split());
+    }
+}
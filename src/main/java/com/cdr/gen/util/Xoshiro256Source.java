@@ -0,0 +1,37 @@
+package com.cdr.gen.util;
+
+/**
+ * A {@link RandomSource} implementing the xoshiro256** generator by Blackman
+ * and Vigna, seeded through SplitMix64.
+ * @author Maycon Viana Bordin <mayconbordin@gmail.com>
+ */
+public class Xoshiro256Source extends AbstractRandomSource {
+    private long s0, s1, s2, s3;
+
+    public Xoshiro256Source(long seed) {
+        s0 = RandomSources.mix(seed += RandomSources.GOLDEN_GAMMA);
+        s1 = RandomSources.mix(seed += RandomSources.GOLDEN_GAMMA);
+        s2 = RandomSources.mix(seed += RandomSources.GOLDEN_GAMMA);
+        s3 = RandomSources.mix(seed + RandomSources.GOLDEN_GAMMA);
+    }
+
+    @Override
+    public long nextLong() {
+        long result = Long.rotateLeft(s1 * 5, 7) * 9;
+        long t = s1 << 17;
+        
+        s2 ^= s0;
+        s3 ^= s1;
+        s1 ^= s2;
+        s0 ^= s3;
+        s2 ^= t;
+        s3 = Long.rotateLeft(s3, 45);
+        
+        return result;
+    }
+
+    @Override
+    public RandomSource split() {
+        return new Xoshiro256Source(nextLong());
+    }
+}
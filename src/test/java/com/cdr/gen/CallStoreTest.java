@@ -0,0 +1,96 @@
+package com.cdr.gen;
+
+import java.util.Arrays;
+import java.util.List;
+import junit.framework.TestCase;
+import org.joda.time.DateTime;
+import org.joda.time.Interval;
+
+public class CallStoreTest extends TestCase {
+    private static final List<String> CALL_TYPES = Arrays.asList("Free", "Local", "Intl");
+    
+    public CallStoreTest(String testName) {
+        super(testName);
+    }
+
+    /**
+     * Test that the calls read back from the store are equal to the stored ones.
+     */
+    public void testRoundTrip() {
+        CallStore store = new CallStore(CALL_TYPES, 1);
+        DateTime start = new DateTime(2014, 1, 5, 23, 55);
+        
+        for (int i=0; i<10; i++) {
+            store.add(createCall(i, start.plusMinutes(i * 7)));
+        }
+        
+        assertEquals(10, store.size());
+        
+        for (int i=0; i<10; i++) {
+            Call expected = createCall(i, start.plusMinutes(i * 7));
+            Call actual = store.get(i);
+            
+            assertEquals(expected.getId(), actual.getId());
+            assertEquals(expected.getLine(), actual.getLine());
+            assertEquals(expected.getType(), actual.getType());
+            assertEquals(expected.getDestPhoneNumber(), actual.getDestPhoneNumber());
+            assertEquals(expected.getTime(), actual.getTime());
+            assertEquals(expected.getCost(), actual.getCost(), 0.00001);
+        }
+    }
+    
+    /**
+     * Test that the list of views writes through to the store.
+     */
+    public void testListView() {
+        CallStore store = new CallStore(CALL_TYPES, 1);
+        List<Call> calls = store.asList();
+        
+        calls.add(createCall(0, new DateTime(2014, 1, 5, 10, 0)));
+        calls.get(0).setType("Free");
+        calls.get(0).setDestPhoneNumber("00123");
+        
+        assertEquals(1, store.size());
+        assertEquals(0, store.getTypeOrdinal(0));
+        assertEquals("00123", calls.get(0).getDestPhoneNumber());
+    }
+    
+    /**
+     * Test that a cursor reads each call as the views do, and writes through.
+     */
+    public void testCursor() {
+        CallStore store = new CallStore(CALL_TYPES, 4);
+        for (int i=0; i<4; i++) {
+            store.add(createCall(i, new DateTime(2014, 1, 5, 10, i)));
+        }
+        
+        CallStore.Cursor cursor = store.cursor();
+        for (int i=0; i<store.size(); i++) {
+            assertSame(cursor, cursor.moveTo(i));
+            assertEquals(store.get(i).getId(), cursor.getId());
+            assertEquals(store.get(i).getStartMillis(), cursor.getStartMillis());
+            assertEquals(store.get(i).getCost(), cursor.getCost(), 0);
+        }
+        
+        cursor.moveTo(2).setCost(1.23456);
+        assertEquals(12346, store.getFixedCost(2));
+        
+        try {
+            cursor.moveTo(4);
+            fail("A cursor can't be moved past the calls of the store.");
+        } catch (IndexOutOfBoundsException ex) {
+            // expected
+        }
+    }
+    
+    private Call createCall(int i, DateTime start) {
+        Call call = new Call();
+        call.setId(i);
+        call.setLine(i % 2);
+        call.setType(CALL_TYPES.get(i % CALL_TYPES.size()));
+        call.setDestPhoneNumber("0" + (1684000000L + i * 37));
+        call.setTime(new Interval(start, start.plusMinutes(i + 1)));
+        call.setCost(i * 1.25);
+        return call;
+    }
+}
@@ -0,0 +1,91 @@
+package com.cdr.gen;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import junit.framework.TestCase;
+
+public class CheckpointerTest extends TestCase {
+    private CDRGen generator;
+    private File dir;
+    
+    public CheckpointerTest(String testName) {
+        super(testName);
+    }
+    
+    @Override
+    protected void setUp() throws Exception {
+        generator = new CDRGen();
+        dir = Files.createTempDirectory("cdr-checkpoint-").toFile();
+        
+        Map<String, Object> checkpoint = new HashMap<String, Object>();
+        checkpoint.put("interval", 2L);
+        
+        generator.setOption("numAccounts", 60L);
+        generator.setOption("chunkSize", 6L);
+        generator.setOption("threads", 2L);
+        generator.setOption("subscriberDirectory", new HashMap<String, Object>());
+        generator.setOption("checkpoint", checkpoint);
+    }
+    
+    @Override
+    protected void tearDown() throws Exception {
+        for (File f : dir.listFiles()) {
+            f.delete();
+        }
+        dir.delete();
+    }
+    
+    /**
+     * Test that a run that dies and is resumed produces the same file as a run
+     * that was never interrupted, for the csv and the compressed columnar format.
+     */
+    public void testResume() throws IOException {
+        assertResumed("calls.csv");
+        assertResumed("calls.cdrc.gz");
+    }
+    
+    private void assertResumed(String name) throws IOException {
+        generator.setOption("seed", 42L);
+        File expected = new File(dir, "expected-" + name);
+        generator.generateToFile(expected.getPath());
+        assertFalse(new File(expected.getPath() + Checkpointer.EXTENSION).exists());
+        
+        File resumed = new File(dir, name);
+        File checkpointFile = new File(resumed.getPath() + Checkpointer.EXTENSION);
+        Checkpointer checkpointer = new Checkpointer(resumed.getPath(), generator.getGeneratorConfig());
+        assertFalse(checkpointer.load());
+        
+        // the run dies while creating the 6th chunk, after the checkpoint at 4
+        Population population = new Population(generator.getGeneratorConfig()) {
+            @Override
+            protected List<Person> createChunk(int chunk, IncomingCallIndex incoming) {
+                if (chunk == 5)
+                    throw new IllegalStateException("Killed");
+                return super.createChunk(chunk, incoming);
+            }
+        };
+        population.setCheckpointer(checkpointer);
+        
+        try (CallWriter writer = checkpointer.open(generator.getConfig())) {
+            population.create(writer);
+            fail();
+        } catch (IllegalStateException ex) {
+            assertTrue(ex.getMessage().contains("Killed"));
+        }
+        
+        assertTrue(checkpointFile.exists());
+        assertFalse(Arrays.equals(Files.readAllBytes(expected.toPath()), Files.readAllBytes(resumed.toPath())));
+        
+        // a run without a fixed seed is resumed with the seed of the checkpoint
+        generator.setOption("seed", null);
+        generator.generateToFile(resumed.getPath());
+        
+        assertFalse(checkpointFile.exists());
+        assertTrue(Arrays.equals(Files.readAllBytes(expected.toPath()), Files.readAllBytes(resumed.toPath())));
+    }
+}
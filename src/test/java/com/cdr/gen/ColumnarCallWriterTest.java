@@ -0,0 +1,68 @@
+package com.cdr.gen;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.util.HashMap;
+import java.util.Map;
+import junit.framework.TestCase;
+
+public class ColumnarCallWriterTest extends TestCase {
+    
+    public ColumnarCallWriterTest(String testName) {
+        super(testName);
+    }
+
+    /**
+     * Test that the calls read back are the ones written, and that the file is
+     * smaller than the text output.
+     */
+    public void testWriteAndRead() throws IOException {
+        Map<String, Object> config = new HashMap<String, Object>(new CDRGen().getConfig());
+        config.put("numAccounts", 20L);
+        
+        Population population = new Population(config);
+        population.create();
+        
+        ByteArrayOutputStream columnar = new ByteArrayOutputStream();
+        ByteArrayOutputStream csv = new ByteArrayOutputStream();
+        
+        // small blocks, so that several of them are written
+        CallWriter writer = new ColumnarCallWriter(Channels.newChannel(columnar), 1000);
+        CallWriter csvWriter = new CsvCallWriter(Channels.newChannel(csv));
+        
+        for (Person p : population.getPopulation()) {
+            writer.write(p);
+            csvWriter.write(p);
+        }
+        
+        writer.close();
+        csvWriter.close();
+        
+        ColumnarCallReader reader = new ColumnarCallReader(
+                Channels.newChannel(new ByteArrayInputStream(columnar.toByteArray())));
+        
+        for (Person p : population.getPopulation()) {
+            for (Call expected : p.getCalls()) {
+                assertTrue(reader.next());
+                
+                Call actual = reader.toCall();
+                assertEquals(p.getPhoneNumber(), reader.getPhoneNumber());
+                assertEquals(expected.getId(), actual.getId());
+                assertEquals(expected.getLine(), actual.getLine());
+                assertEquals(expected.getDestPhoneNumber(), actual.getDestPhoneNumber());
+                assertEquals(expected.getType(), actual.getType());
+                assertEquals(expected.getTime(), actual.getTime());
+                assertEquals(expected.getCost(), actual.getCost(), 0.00001);
+            }
+        }
+        
+        assertFalse(reader.next());
+        assertFalse(reader.next());
+        reader.close();
+        
+        assertTrue("Columnar size: " + columnar.size() + ", CSV size: " + csv.size(),
+                columnar.size() * 3 < csv.size());
+    }
+}
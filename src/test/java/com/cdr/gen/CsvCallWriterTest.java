@@ -0,0 +1,64 @@
+package com.cdr.gen;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import junit.framework.TestCase;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.joda.time.Interval;
+import org.joda.time.format.DateTimeFormat;
+import org.joda.time.format.DateTimeFormatter;
+
+public class CsvCallWriterTest extends TestCase {
+    
+    public CsvCallWriterTest(String testName) {
+        super(testName);
+    }
+
+    /**
+     * Test that the lines are the same as the ones formatted with Joda, including
+     * calls around a daylight saving time transition.
+     */
+    public void testWrite() throws IOException {
+        DateTimeZone zone = DateTimeZone.forID("America/Sao_Paulo");
+        DateTimeFormatter dateFormatter = DateTimeFormat.forPattern("dd/MM/yyyy");
+        DateTimeFormatter timeFormatter = DateTimeFormat.forPattern("HH:mm:ss");
+        String newLine = System.getProperty("line.separator");
+        
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        StringBuilder expected = new StringBuilder();
+        
+        // a tiny buffer forces several flushes
+        CsvCallWriter writer = new CsvCallWriter(Channels.newChannel(out), 16, zone);
+        DateTime start = new DateTime(2014, 2, 15, 20, 0, zone);
+        
+        for (int i=0; i<500; i++) {
+            Call c = new Call();
+            c.setId(((long) i << Population.CALL_ID_BITS) | i);
+            c.setLine(i % 3);
+            c.setType(i % 2 == 0 ? "Local" : "Intl");
+            c.setDestPhoneNumber("0" + (1684000000L + i));
+            c.setCost(i % 5 == 0 ? i * 0.25 : i * 4);
+            
+            DateTime callStart = start.plusMinutes(i * 7);
+            c.setTime(new Interval(callStart, callStart.plusSeconds(i * 13)));
+            
+            writer.write("01684444444", c);
+            expected.append(c.getId()).append(",01684444444,")
+                    .append(c.getLine()).append(",")
+                    .append(c.getDestPhoneNumber()).append(",")
+                    .append(c.getTime().getStart().withZone(zone).toString(dateFormatter)).append(",")
+                    .append(c.getTime().getEnd().withZone(zone).toString(dateFormatter)).append(",")
+                    .append(c.getTime().getStart().withZone(zone).toString(timeFormatter)).append(",")
+                    .append(c.getTime().getEnd().withZone(zone).toString(timeFormatter)).append(",")
+                    .append(c.getType()).append(",")
+                    .append(c.getCost())
+                    .append(newLine);
+        }
+        
+        writer.close();
+        assertEquals(expected.toString(), new String(out.toByteArray(), StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,88 @@
+package com.cdr.gen;
+
+import com.cdr.gen.util.LongHistogram;
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.Map;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import junit.framework.TestCase;
+
+public class GenerationMetricsTest extends TestCase {
+    public GenerationMetricsTest(String testName) {
+        super(testName);
+    }
+    
+    /**
+     * Test that the metrics count every customer and record, and that they are
+     * registered in the MBean server only while the population is created.
+     */
+    public void testMetrics() throws Exception {
+        CDRGen generator = new CDRGen();
+        Map<String, Object> config = new HashMap<String, Object>(generator.getConfig());
+        config.put("numAccounts", 120L);
+        config.put("chunkSize", 16L);
+        config.put("threads", 2L);
+        config.put("seed", 99L);
+        config.put("subscriberDirectory", new HashMap<String, Object>());
+        
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        final ObjectName pattern = ObjectName.getInstance("com.cdr.gen:type=GenerationMetrics,*");
+        final long[] written = new long[2];
+        
+        Population population = new Population(config);
+        population.create(new CallSink() {
+            @Override
+            public void write(Person customer) {
+                if (written[0] == 0)
+                    assertEquals(1, server.queryNames(pattern, null).size());
+                
+                written[0] += customer.getCalls().size();
+                for (Call c : customer.getCalls()) {
+                    // the calls timed for the customer, not the terminating records
+                    if ((c.getId() & ~Population.INCOMING_CALL_FLAG) >>> Population.CALL_ID_BITS == customer.getId())
+                        written[1]++;
+                }
+            }
+            
+            @Override
+            public long getBytesWritten() {
+                return 1000;
+            }
+            
+            @Override
+            public void close() {}
+        });
+        
+        GenerationMetrics metrics = population.getMetrics();
+        assertTrue(server.queryNames(pattern, null).isEmpty());
+        
+        assertEquals(120, metrics.getCustomers());
+        assertEquals(120, metrics.getTotalCustomers());
+        assertEquals(written[0], metrics.getCalls());
+        assertEquals(120, metrics.getCallCounts().getCount());
+        assertEquals(written[1], metrics.getRetryCounts().getCount());
+        assertEquals(1000, metrics.getBytesWritten());
+        assertEquals(0.0, metrics.getEtaSeconds(), 1e-9);
+        assertTrue(metrics.getCallsPerSecond() > 0);
+        assertTrue(metrics.getGaussianRejectionRate() >= 0 && metrics.getGaussianRejectionRate() < 1);
+        assertTrue(metrics.toString().startsWith("120/120 customers (100.0%)"));
+    }
+    
+    public void testHistogram() {
+        LongHistogram histogram = new LongHistogram();
+        assertEquals(0, histogram.getQuantile(0.5));
+        
+        for (int i=0; i<100; i++) {
+            histogram.record(i);
+        }
+        
+        assertEquals(100, histogram.getCount());
+        assertEquals(49.5, histogram.getMean(), 1e-9);
+        assertEquals(1, histogram.getCounts()[0]);
+        assertEquals(2, histogram.getCounts()[2]);
+        assertEquals(63, histogram.getQuantile(0.5));
+        assertEquals(127, histogram.getQuantile(0.99));
+        assertEquals(0, histogram.getQuantile(0));
+    }
+}
@@ -0,0 +1,247 @@
+package com.cdr.gen;
+
+import com.cdr.gen.util.RandomSources;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import junit.framework.TestCase;
+
+public class GeneratorConfigTest extends TestCase {
+    public GeneratorConfigTest(String testName) {
+        super(testName);
+    }
+    
+    /**
+     * Test that the parameters of the call types are compiled by ordinal and
+     * that the probabilities are normalized.
+     */
+    public void testCompile() {
+        Map<String, Object> options = new CDRGen().getConfig();
+        GeneratorConfig config = new GeneratorConfig(options);
+        
+        int local = config.ordinalOf("Local");
+        Map<String, Object> params = (Map<String, Object>) ((Map<String, Object>) options.get("outgoingCallParams")).get("Local");
+        
+        assertEquals("Local", config.getCallTypes().get(local));
+        assertEquals(params.get("callCost"), config.getCallCost(local, false));
+        assertEquals(params.get("callOPCost"), config.getCallCost(local, true));
+        assertEquals(params.get("callOPStdDev2"), config.getCallStdDev2(local, true));
+        
+        double sum = 0;
+        for (double p : config.getDayProbabilities()) {
+            sum += p;
+        }
+        assertEquals(1.0, sum, 1e-9);
+        
+        try {
+            config.ordinalOf("Unknown");
+            fail("An unknown call type should be rejected.");
+        } catch (IllegalArgumentException ex) {
+            // expected
+        }
+    }
+    
+    /**
+     * Test that invalid configurations are rejected with the option at fault.
+     */
+    public void testInvalid() {
+        Map<String, Object> config = copy(new CDRGen().getConfig());
+        params(config).remove("callDur");
+        assertInvalid(config, "outgoingCallParams.Local.callDur");
+        
+        config = copy(new CDRGen().getConfig());
+        params(config).put("callProb", 0.9);
+        assertInvalid(config, "callProb");
+        
+        config = copy(new CDRGen().getConfig());
+        params(config).put("callCost", 1.5);
+        assertInvalid(config, "outgoingCallParams.Local.callCost");
+        
+        // would draw forever, as a duration of at least 1 minute is never drawn
+        config = copy(new CDRGen().getConfig());
+        params(config).put("callDur", 0L);
+        params(config).put("callStdDev", 0L);
+        assertInvalid(config, "outgoingCallParams.Local.callDur");
+        
+        config = copy(new CDRGen().getConfig());
+        ((Map<String, Object>) config.get("offPeakTimePeriod")).put("start", "25:00");
+        assertInvalid(config, "offPeakTimePeriod.start");
+        
+        config = copy(new CDRGen().getConfig());
+        config.put("offPeakTimePeriod", Arrays.asList(window("12:00", "14:00"), window("18:00", "8:00")));
+        assertEquals(16 * 60, new GeneratorConfig(config).getOffPeakMinutes().cardinality());
+        
+        config.put("offPeakTimePeriod", Arrays.asList(window("12:00", "14:00"), window("18:00", "8")));
+        assertInvalid(config, "offPeakTimePeriod[1].end");
+        
+        config = copy(new CDRGen().getConfig());
+        config.put("endDate", config.get("startDate"));
+        assertInvalid(config, "endDate");
+        
+        config = copy(new CDRGen().getConfig());
+        config.put("timeZone", "Mars/Olympus_Mons");
+        assertInvalid(config, "timeZone");
+        
+        config = copy(new CDRGen().getConfig());
+        config.put("tariff", new HashMap<String, Object>());
+        ((Map<String, Object>) config.get("tariff")).put("billing", "hour");
+        assertInvalid(config, "tariff.billing");
+        
+        config = copy(new CDRGen().getConfig());
+        Map<String, Object> callParams = (Map<String, Object>) config.get("outgoingCallParams");
+        for (Object params : callParams.values()) {
+            ((Map<String, Object>) params).put("incomingProb", 0.0);
+        }
+        assertInvalid(config, "incomingProb");
+    }
+    
+    /**
+     * Test that the options of the run are compiled with their defaults and
+     * rejected with the option at fault.
+     */
+    public void testRunOptions() {
+        Map<String, Object> config = copy(new CDRGen().getConfig());
+        GeneratorConfig compiled = new GeneratorConfig(config);
+        assertEquals(Population.DEFAULT_CHUNK_SIZE, compiled.getChunkSize());
+        assertEquals(SortedCallWriter.SORT_BY_CUSTOMER, compiled.getSortBy());
+        assertFalse(compiled.isSharded());
+        assertFalse(compiled.hasSubscriberDirectory());
+        
+        config.put("threads", 0L);
+        assertInvalid(config, "threads");
+        
+        config = copy(new CDRGen().getConfig());
+        config.put("chunkSize", "big");
+        assertInvalid(config, "chunkSize");
+        
+        config = copy(new CDRGen().getConfig());
+        config.put("sortBy", "caller");
+        assertInvalid(config, "sortBy");
+        
+        config = copy(new CDRGen().getConfig());
+        config.put("sortMergeFactor", 1L);
+        assertInvalid(config, "sortMergeFactor");
+        
+        config = copy(new CDRGen().getConfig());
+        config.put("shards", 4L);
+        config.put("partitionBy", "week");
+        assertInvalid(config, "partitionBy");
+        
+        config = copy(new CDRGen().getConfig());
+        config.put("subscriberDirectory", new HashMap<String, Object>());
+        ((Map<String, Object>) config.get("subscriberDirectory")).put("locality", 1.5);
+        assertInvalid(config, "subscriberDirectory.locality");
+        
+        config = copy(new CDRGen().getConfig());
+        config.put("partition", "0/2");
+        assertInvalid(config, "partition");
+        
+        config = copy(new CDRGen().getConfig());
+        config.put("checkpoint", new HashMap<String, Object>());
+        config.put("sortBy", SortedCallWriter.SORT_BY_TIME);
+        assertInvalid(config, "checkpoint");
+        
+        config = copy(new CDRGen().getConfig());
+        config.put("shards", 4L);
+        config.put("maxOpenShards", 0L);
+        assertInvalid(config, "maxOpenShards");
+    }
+    
+    /**
+     * Test that the options read when the output is written and the random
+     * number generator is created are checked with the rest of the configuration.
+     */
+    public void testOutputOptions() {
+        Map<String, Object> config = copy(new CDRGen().getConfig());
+        config.put("outputFormat", ColumnarOutputFormat.NAME);
+        config.put("columnarBlockRows", 1024L);
+        config.put("compression", Compression.GZIP);
+        config.put("rng", RandomSources.XOSHIRO256);
+        new GeneratorConfig(config);
+        
+        config.put("outputFormat", "parquet");
+        assertInvalid(config, "outputFormat");
+        
+        config = copy(new CDRGen().getConfig());
+        config.put("columnarBlockRows", "x");
+        assertInvalid(config, "columnarBlockRows");
+        
+        config = copy(new CDRGen().getConfig());
+        config.put("compression", 5L);
+        assertInvalid(config, "compression");
+        
+        config = copy(new CDRGen().getConfig());
+        config.put("compression", "zstd");
+        assertInvalid(config, "compression");
+        
+        Map<String, Object> compression = new HashMap<String, Object>();
+        compression.put("level", 10L);
+        config.put("compression", compression);
+        assertInvalid(config, "compression.level");
+        
+        compression.put("level", 1L);
+        compression.put("threads", 0L);
+        assertInvalid(config, "compression.threads");
+        
+        config = copy(new CDRGen().getConfig());
+        config.put("rng", "mersenne");
+        assertInvalid(config, "rng");
+        
+        config = copy(new CDRGen().getConfig());
+        config.put("seed", "abc");
+        assertInvalid(config, "seed");
+    }
+    
+    /**
+     * Test that the calls from outside the population follow the probabilities
+     * of the call types, except for the types that don't make calls.
+     */
+    public void testIncomingProbabilities() {
+        Map<String, Object> options = copy(new CDRGen().getConfig());
+        GeneratorConfig config = new GeneratorConfig(options);
+        double[] calls = config.getCallProbabilities();
+        double[] incoming = config.getIncomingCallProbabilities();
+        
+        int local = config.ordinalOf("Local");
+        int mobile = config.ordinalOf("Mobile");
+        assertEquals(0.0, incoming[config.ordinalOf("Free")]);
+        assertEquals(0.0, incoming[config.ordinalOf("PRS")]);
+        assertEquals(calls[local] / calls[mobile], incoming[local] / incoming[mobile], 1e-9);
+        
+        params(options).put("incomingProb", 0.0);
+        incoming = new GeneratorConfig(options).getIncomingCallProbabilities();
+        assertEquals(0.0, incoming[local]);
+        assertTrue(incoming[mobile] > calls[mobile]);
+    }
+    
+    private void assertInvalid(Map<String, Object> config, String option) {
+        try {
+            new GeneratorConfig(config);
+            fail("The configuration should be rejected for '" + option + "'.");
+        } catch (IllegalArgumentException ex) {
+            assertTrue(ex.getMessage(), ex.getMessage().contains(option));
+        }
+    }
+    
+    private Map<String, Object> window(String start, String end) {
+        Map<String, Object> window = new HashMap<String, Object>();
+        window.put("start", start);
+        window.put("end", end);
+        return window;
+    }
+    
+    private Map<String, Object> params(Map<String, Object> config) {
+        return (Map<String, Object>) ((Map<String, Object>) config.get("outgoingCallParams")).get("Local");
+    }
+    
+    private Map<String, Object> copy(Map<String, Object> map) {
+        Map<String, Object> copy = new HashMap<String, Object>(map);
+        
+        for (Map.Entry<String, Object> e : copy.entrySet()) {
+            if (e.getValue() instanceof Map)
+                e.setValue(copy((Map<String, Object>) e.getValue()));
+        }
+        
+        return copy;
+    }
+}
@@ -0,0 +1,82 @@
+package com.cdr.gen;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import junit.framework.TestCase;
+
+public class LiveEmitterTest extends TestCase {
+    private CDRGen generator;
+    
+    public LiveEmitterTest(String testName) {
+        super(testName);
+        
+        generator = new CDRGen();
+    }
+    
+    private CallMerger createCalls(Map<String, Object> config) throws IOException {
+        config.put("seed", 42L);
+        config.put("numAccounts", 4L);
+        
+        CallMerger calls = new CallMerger((List<String>) config.get("callTypes"));
+        new Population(config).create(calls);
+        return calls;
+    }
+
+    /**
+     * Test that all calls are emitted in start order, at no more than the rate.
+     */
+    public void testEmitAtRate() throws IOException {
+        Map<String, Object> config = new HashMap<String, Object>(generator.getConfig());
+        Map<String, Object> live = new HashMap<String, Object>();
+        live.put("rate", 5000L);
+        config.put("live", live);
+        
+        CallMerger calls = createCalls(config);
+        final List<Long> starts = new ArrayList<Long>();
+        
+        LiveEmitter emitter = new LiveEmitter(config);
+        emitter.emit(calls, new CallWriter() {
+            @Override
+            public void write(String phoneNumber, Call call) {
+                starts.add(call.getTime().getStartMillis());
+            }
+
+            @Override
+            public void close() {}
+        });
+        
+        assertEquals(calls.getNumCalls(), starts.size());
+        for (int i=1; i<starts.size(); i++) {
+            assertTrue(starts.get(i-1) <= starts.get(i));
+        }
+        
+        LiveMetrics metrics = emitter.getMetrics();
+        long minNanos = TimeUnit.SECONDS.toNanos(starts.size() - 1) / 5000;
+        
+        assertEquals(starts.size(), metrics.getEmitted());
+        assertTrue(metrics.getElapsedNanos() >= minNanos);
+        assertTrue(metrics.getAchievedRate() > 0);
+        assertTrue(metrics.getAchievedRate() <= 5000 * 1.01);
+        assertTrue(metrics.getTargetRate() <= 5000 * 1.01);
+        assertTrue(metrics.toString(), metrics.toString().startsWith(starts.size() + " calls emitted"));
+    }
+    
+    public void testInvalidConfig() {
+        Map<String, Object> config = new HashMap<String, Object>(generator.getConfig());
+        Map<String, Object> live = new HashMap<String, Object>();
+        live.put("rate", 100L);
+        live.put("speedup", 100L);
+        config.put("live", live);
+        
+        try {
+            new LiveEmitter(config);
+            fail("Expected an IllegalArgumentException");
+        } catch (IllegalArgumentException ex) {
+            // expected
+        }
+    }
+}
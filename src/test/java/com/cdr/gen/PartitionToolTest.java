@@ -0,0 +1,96 @@
+package com.cdr.gen;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import junit.framework.TestCase;
+
+public class PartitionToolTest extends TestCase {
+    private static final int NUM_PARTITIONS = 3;
+    
+    private CDRGen generator;
+    private File dir;
+    
+    public PartitionToolTest(String testName) {
+        super(testName);
+    }
+    
+    @Override
+    protected void setUp() throws Exception {
+        generator = new CDRGen();
+        dir = Files.createTempDirectory("cdr-partition-").toFile();
+        
+        generator.setOption("numAccounts", 50L);
+        generator.setOption("chunkSize", 4L);
+        generator.setOption("seed", 4321L);
+        generator.setOption("subscriberDirectory", new HashMap<String, Object>());
+    }
+    
+    @Override
+    protected void tearDown() throws Exception {
+        for (File f : dir.listFiles()) {
+            f.delete();
+        }
+        dir.delete();
+    }
+    
+    /**
+     * Test that the partitions together have the same records as a single run,
+     * for the csv and the compressed columnar format.
+     */
+    public void testPartitions() throws IOException {
+        assertPartitions("calls.csv");
+        assertPartitions("calls.cdrc.gz");
+    }
+    
+    private void assertPartitions(String name) throws IOException {
+        String reference = new File(dir, "reference-" + name).getPath();
+        generator.generateToFile(reference);
+        
+        List<String> parts = new ArrayList<String>();
+        for (int i=0; i<NUM_PARTITIONS; i++) {
+            String part = new File(dir, "part" + i + "-" + name).getPath();
+            generator.setOption("partition", i + "/" + NUM_PARTITIONS);
+            generator.generateToFile(part);
+            parts.add(part);
+        }
+        generator.setOption("partition", null);
+        
+        assertTrue(PartitionTool.verify(parts, reference));
+        assertFalse(PartitionTool.verify(Arrays.asList(parts.get(0), parts.get(1), parts.get(1)), null));
+        assertFalse(PartitionTool.verify(parts.subList(0, 2), reference));
+        
+        String merged = new File(dir, "merged-" + name).getPath();
+        PartitionTool.merge(merged, parts);
+        assertTrue(PartitionTool.verify(Arrays.asList(merged), reference));
+    }
+    
+    public void testInvalidPartition() {
+        Map<String, Object> config = new HashMap<String, Object>(generator.getConfig());
+        
+        for (String partition : new String[] {"3/3", "-1/3", "1", "a/b", "0/0"}) {
+            config.put("partition", partition);
+            
+            try {
+                new Population(config);
+                fail(partition);
+            } catch (IllegalArgumentException ex) {
+                assertTrue(ex.getMessage().contains(partition));
+            }
+        }
+        
+        config.put("partition", "0/2");
+        config.remove("seed");
+        
+        try {
+            new Population(config);
+            fail();
+        } catch (IllegalArgumentException ex) {
+        }
+    }
+}
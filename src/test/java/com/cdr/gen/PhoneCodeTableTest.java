@@ -0,0 +1,67 @@
+package com.cdr.gen;
+
+import com.cdr.gen.util.PhoneNumbers;
+import com.cdr.gen.util.RandomSource;
+import com.cdr.gen.util.SplittableRandomSource;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import junit.framework.TestCase;
+
+public class PhoneCodeTableTest extends TestCase {
+    private static final List<String> CALL_TYPES = Arrays.asList("Local", "Intl", "PRS");
+    
+    private PhoneCodeTable table;
+    
+    public PhoneCodeTableTest(String testName) {
+        super(testName);
+        
+        Map<String, List<String>> codes = new HashMap<String, List<String>>();
+        codes.put("Local", Arrays.asList("0168", "01684", "0113"));
+        codes.put("Intl", Arrays.asList("0033"));
+        table = new PhoneCodeTable(CALL_TYPES, codes);
+    }
+
+    /**
+     * Test that the excluded code is never picked, and that a type with a
+     * single code doesn't loop forever.
+     */
+    public void testRandomCodeExclusion() {
+        RandomSource random = new SplittableRandomSource(42);
+        int excluded = table.indexOf(0, PhoneNumbers.pack("01684"));
+        
+        assertTrue(excluded >= 0);
+        
+        for (int i=0; i<1000; i++) {
+            assertFalse(table.getRandomCode(random, 0, excluded) == PhoneNumbers.pack("01684"));
+        }
+        
+        assertEquals(PhoneNumbers.pack("0033"), table.getRandomCode(random, 1, 0));
+        assertEquals(0, table.size(2));
+    }
+    
+    public void testIndexOfPrefix() {
+        assertEquals(table.indexOf(0, PhoneNumbers.pack("01684")), 
+                table.indexOfPrefix(0, PhoneNumbers.pack("01684123456")));
+        assertEquals(table.indexOf(0, PhoneNumbers.pack("0168")), 
+                table.indexOfPrefix(0, PhoneNumbers.pack("01681123456")));
+        assertEquals(-1, table.indexOfPrefix(0, PhoneNumbers.pack("02000000000")));
+    }
+    
+    public void testRandomNumber() {
+        RandomSource random = new SplittableRandomSource(42);
+        
+        for (int i=0; i<100; i++) {
+            String number = PhoneNumbers.unpack(PhoneCodeTable.getRandomNumber(random, PhoneNumbers.pack("0033"), 11));
+            assertEquals(11, number.length());
+            assertTrue(number.startsWith("0033"));
+            
+            number = PhoneNumbers.unpack(PhoneCodeTable.getRandomNumber(random, PhoneNumbers.pack("00"), 15));
+            assertEquals(15, number.length());
+            assertTrue(number.startsWith("00"));
+        }
+        
+        assertEquals("01684", PhoneNumbers.unpack(PhoneCodeTable.getPrefix(PhoneNumbers.pack("01684123456"), 5)));
+    }
+}
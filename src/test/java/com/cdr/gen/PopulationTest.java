@@ -1,9 +1,19 @@
 package com.cdr.gen;
 
+import com.cdr.gen.util.IntervalIndex;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import junit.framework.TestCase;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeConstants;
+import org.joda.time.DateTimeZone;
+import org.joda.time.LocalDate;
 import org.joda.time.format.DateTimeFormat;
 import org.joda.time.format.DateTimeFormatter;
 
@@ -65,4 +75,348 @@ public class PopulationTest extends TestCase {
             ex.printStackTrace();
         } 
     }
+    
+    /**
+     * Test that the same seed produces the same population, whatever the number
+     * of threads used to create it.
+     */
+    public void testCreateIsReproducible() {
+        Map<String, Object> config = new HashMap<String, Object>(generator.getConfig());
+        config.put("numAccounts", 21L);
+        config.put("chunkSize", 4L);
+        config.put("seed", 1234L);
+        
+        config.put("threads", 1L);
+        Population sequential = new Population(config);
+        sequential.create();
+        
+        config.put("threads", 3L);
+        Population parallel = new Population(config);
+        parallel.create();
+        
+        List<Person> one = sequential.getPopulation();
+        List<Person> two = parallel.getPopulation();
+        assertEquals(21, one.size());
+        assertEquals(one.size(), two.size());
+        
+        for (int i=0; i<one.size(); i++) {
+            assertEquals(i, one.get(i).getId());
+            assertEquals(one.get(i).getPhoneNumber(), two.get(i).getPhoneNumber());
+            assertEquals(one.get(i).getCalls().size(), two.get(i).getCalls().size());
+            
+            for (int j=0; j<one.get(i).getCalls().size(); j++) {
+                Call a = one.get(i).getCalls().get(j);
+                Call b = two.get(i).getCalls().get(j);
+                
+                assertEquals(a.getId(), b.getId());
+                assertEquals(a.getDestPhoneNumber(), b.getDestPhoneNumber());
+                assertEquals(a.getTime(), b.getTime());
+                assertEquals(a.getCost(), b.getCost());
+            }
+        }
+    }
+    
+    /**
+     * Test that customers with more calls than free minutes in the period are
+     * created without overlapping calls, placing the calls in the free starts
+     * once the draws keep colliding, and dropping those that don't fit.
+     */
+    public void testBusyCalendar() {
+        Map<String, Object> callsMade = new HashMap<String, Object>();
+        callsMade.put("mean", 3000L);
+        callsMade.put("stdDev", 10L);
+        
+        Map<String, Object> config = new HashMap<String, Object>(generator.getConfig());
+        config.put("numAccounts", 4L);
+        config.put("threads", 1L);
+        config.put("seed", 7L);
+        config.put("callsMade", callsMade);
+        config.put("endDate", "08/01/2014");
+        
+        Population population = new Population(config);
+        population.create();
+        
+        for (Person p : population.getPopulation()) {
+            IntervalIndex used = new IntervalIndex();
+            assertTrue(p.getCalls().size() <= p.getNumCalls() + p.getNumIncomingCalls());
+            
+            for (Call c : p.getCalls()) {
+                long start = c.getTime().getStartMillis() / 60000;
+                long end = Math.max(start + 1, c.getTime().getEndMillis() / 60000);
+                assertTrue(used.add(start, end));
+            }
+        }
+        
+        GenerationMetrics metrics = population.getMetrics();
+        assertTrue(metrics.getFreeStartPlacements() > 0);
+        assertTrue(metrics.getDroppedCalls() > 0);
+        assertTrue(metrics.getRetryCounts().getQuantile(1.0) < 64);
+    }
+    
+    /**
+     * Test that the weight of a day of <code>dayDistribution</code> is given to
+     * that day of the week.
+     */
+    public void testDayDistribution() {
+        Map<String, Object> days = new HashMap<String, Object>();
+        for (String day : DateTimeDistribution.DAYS) {
+            days.put(day, day.equals("sun") ? 1.0 : 0.0);
+        }
+        
+        Map<String, Object> options = new HashMap<String, Object>(generator.getConfig());
+        options.put("numAccounts", 6L);
+        options.put("threads", 1L);
+        options.put("seed", 11L);
+        options.put("dayDistribution", days);
+        
+        GeneratorConfig config = new GeneratorConfig(options);
+        Population population = new Population(config);
+        population.create();
+        
+        for (Person p : population.getPopulation()) {
+            for (Call c : p.getCalls()) {
+                DateTime start = new DateTime(c.getStartMillis(), config.getTimeZone());
+                assertEquals(start.toString(), DateTimeConstants.SUNDAY, start.getDayOfWeek());
+            }
+        }
+    }
+    
+    /**
+     * Test that the calls of the customers of an area with its own time zone
+     * follow their local time, and the others the time zone of the configuration.
+     */
+    public void testTimeZones() {
+        Map<String, Object> areas = new HashMap<String, Object>();
+        areas.put("01", "Asia/Tokyo");
+        
+        Map<String, Object> options = new HashMap<String, Object>(generator.getConfig());
+        options.put("numAccounts", 40L);
+        options.put("threads", 1L);
+        options.put("seed", 99L);
+        options.put("timeZone", "America/Sao_Paulo");
+        options.put("areaTimeZones", areas);
+        
+        GeneratorConfig config = new GeneratorConfig(options);
+        Population population = new Population(config);
+        population.create();
+        
+        LocalDate startDate = DateTimeFormat.forPattern("dd/MM/yyyy").parseLocalDate(config.getStartDate());
+        TimeTable tokyo = new TimeTable(startDate.toDateTimeAtStartOfDay(DateTimeZone.forID("Asia/Tokyo")), 
+                90, config.getOffPeakMinutes(), config.getHolidays());
+        TimeTable saoPaulo = new TimeTable(startDate.toDateTimeAtStartOfDay(config.getTimeZone()), 
+                90, config.getOffPeakMinutes(), config.getHolidays());
+        int[] customers = new int[2];
+        
+        for (Person p : population.getPopulation()) {
+            boolean inTokyo = p.getPhoneNumber().startsWith("01");
+            TimeTable table = inTokyo ? tokyo : saoPaulo;
+            customers[inTokyo ? 0 : 1]++;
+            
+            for (Call c : p.getCalls()) {
+                if (c.isIncoming())
+                    continue;
+                
+                long start = c.getStartMillis() / TimeTable.MILLIS_PER_MINUTE;
+                long minutes = (c.getEndMillis() - c.getStartMillis()) / TimeTable.MILLIS_PER_MINUTE;
+                long cost = config.getCallCost(config.ordinalOf(c.getType()), table.isOffPeak(start));
+                
+                assertEquals(minutes * cost, c.getCost(), 1e-9);
+            }
+        }
+        
+        assertTrue(customers[0] > 0);
+        assertTrue(customers[1] > 0);
+    }
+    
+    /**
+     * Test that every terminating record matches a call made to the customer by
+     * another customer, and that they are the same whatever the number of threads.
+     */
+    public void testIncomingCalls() {
+        Map<String, Object> config = new HashMap<String, Object>(generator.getConfig());
+        config.put("numAccounts", 40L);
+        config.put("chunkSize", 6L);
+        config.put("seed", 1234L);
+        config.put("subscriberDirectory", new HashMap<String, Object>());
+        
+        config.put("threads", 1L);
+        Population sequential = new Population(config);
+        sequential.create();
+        
+        config.put("threads", 3L);
+        Population parallel = new Population(config);
+        parallel.create();
+        
+        List<Person> one = sequential.getPopulation();
+        List<Person> two = parallel.getPopulation();
+        assertEquals(40, one.size());
+        
+        Map<Long, Call> outgoing = new HashMap<Long, Call>();
+        Map<Long, Person> callers = new HashMap<Long, Person>();
+        int onNet = 0, offNet = 0;
+        
+        for (Person p : one) {
+            for (Call c : p.getCalls()) {
+                if (!c.isIncoming()) {
+                    outgoing.put(c.getId(), c);
+                    callers.put(c.getId(), p);
+                }
+            }
+        }
+        
+        for (int i=0; i<one.size(); i++) {
+            Person p = one.get(i);
+            assertEquals(p.getCalls().size(), two.get(i).getCalls().size());
+            
+            for (int j=0; j<p.getCalls().size(); j++) {
+                Call c = p.getCalls().get(j);
+                assertEquals(c.getId(), two.get(i).getCalls().get(j).getId());
+                
+                if (!c.isIncoming())
+                    continue;
+                
+                assertEquals(0.0, c.getCost());
+                Call call = outgoing.get(c.getId() & ~Population.INCOMING_CALL_FLAG);
+                
+                if (call == null) {
+                    offNet++;
+                    continue;
+                }
+                
+                onNet++;
+                assertEquals(p.getPhoneNumber(), call.getDestPhoneNumber());
+                assertEquals(callers.get(call.getId()).getPhoneNumber(), c.getDestPhoneNumber());
+                assertEquals(call.getTime(), c.getTime());
+                assertEquals(call.getType(), c.getType());
+            }
+        }
+        
+        assertTrue(onNet > 0);
+        assertTrue(offNet > 0);
+    }
+    
+    /**
+     * Test that a sink gets every customer once, in account order, and that the
+     * terminating records of customers already written are handed to it apart,
+     * so that no call is lost or repeated.
+     */
+    public void testCreateToSink() throws IOException {
+        Map<String, Object> config = new HashMap<String, Object>(generator.getConfig());
+        config.put("numAccounts", 40L);
+        config.put("chunkSize", 6L);
+        config.put("threads", 3L);
+        config.put("seed", 1234L);
+        config.put("subscriberDirectory", new HashMap<String, Object>());
+        
+        final List<Long> accounts = new ArrayList<Long>();
+        final Map<Long, List<Long>> callsOf = new HashMap<Long, List<Long>>();
+        final Map<String, Long> accountOf = new HashMap<String, Long>();
+        final Map<Long, String> destOf = new HashMap<Long, String>();
+        final int[] lateRecords = new int[1];
+        
+        new Population(config).create(new CallSink() {
+            @Override
+            public void write(Person customer) {
+                List<Long> calls = callsOf.get(customer.getId());
+                
+                if (calls == null) {
+                    accounts.add(customer.getId());
+                    accountOf.put(customer.getPhoneNumber(), customer.getId());
+                    calls = new ArrayList<Long>();
+                    callsOf.put(customer.getId(), calls);
+                } else {
+                    lateRecords[0] += customer.getCalls().size();
+                }
+                
+                for (Call c : customer.getCalls()) {
+                    calls.add(c.getId());
+                    
+                    if (!c.isIncoming())
+                        destOf.put(c.getId(), c.getDestPhoneNumber());
+                }
+            }
+
+            @Override
+            public void close() {}
+        });
+        
+        assertEquals(40, accounts.size());
+        assertTrue(lateRecords[0] > 0);
+        
+        Set<Long> terminating = new HashSet<Long>();
+        
+        for (int i=0; i<accounts.size(); i++) {
+            assertEquals(i, accounts.get(i).longValue());
+            
+            for (long id : callsOf.get(accounts.get(i))) {
+                if ((id & Population.INCOMING_CALL_FLAG) != 0 && destOf.containsKey(id & ~Population.INCOMING_CALL_FLAG))
+                    assertTrue(terminating.add(id));
+            }
+            assertEquals(callsOf.get(accounts.get(i)).size(), new HashSet<Long>(callsOf.get(accounts.get(i))).size());
+        }
+        
+        for (Map.Entry<Long, String> call : destOf.entrySet()) {
+            Long callee = accountOf.get(call.getValue());
+            
+            if (callee != null) {
+                long record = call.getKey() | Population.INCOMING_CALL_FLAG;
+                assertTrue(terminating.remove(record));
+                assertTrue(callsOf.get(callee).contains(record));
+            }
+        }
+        assertTrue(terminating.isEmpty());
+    }
+    
+    /**
+     * Test that with a directory the calls of each customer still don't overlap
+     * each other, apart from the terminating records, which have a line and are
+     * never of a type that only receives calls when they come from outside.
+     */
+    public void testTerminatingRecords() {
+        Map<String, Object> phoneLines = new HashMap<String, Object>();
+        phoneLines.put("mean", 3L);
+        phoneLines.put("stdDev", 0L);
+        
+        Map<String, Object> config = new HashMap<String, Object>(generator.getConfig());
+        config.put("numAccounts", 30L);
+        config.put("chunkSize", 8L);
+        config.put("threads", 1L);
+        config.put("seed", 4321L);
+        config.put("phoneLines", phoneLines);
+        config.put("subscriberDirectory", new HashMap<String, Object>());
+        
+        Population population = new Population(config);
+        population.create();
+        
+        Map<Long, Call> outgoing = new HashMap<Long, Call>();
+        for (Person p : population.getPopulation()) {
+            for (Call c : p.getCalls()) {
+                if (!c.isIncoming())
+                    outgoing.put(c.getId(), c);
+            }
+        }
+        
+        boolean[] lines = new boolean[4];
+        
+        for (Person p : population.getPopulation()) {
+            IntervalIndex used = new IntervalIndex();
+            
+            for (Call c : p.getCalls()) {
+                if (c.isIncoming() && outgoing.containsKey(c.getId() & ~Population.INCOMING_CALL_FLAG)) {
+                    assertTrue(c.getLine() >= 0 && c.getLine() <= 3);
+                    lines[c.getLine()] = true;
+                    continue;
+                }
+                
+                if (c.isIncoming())
+                    assertFalse(c.getType(), GeneratorConfig.NON_ORIGINATING_TYPES.contains(c.getType()));
+                
+                long start = c.getStartMillis() / TimeTable.MILLIS_PER_MINUTE;
+                long end = Math.max(start + 1, c.getEndMillis() / TimeTable.MILLIS_PER_MINUTE);
+                assertTrue(used.add(start, end));
+            }
+        }
+        
+        assertTrue(lines[1] && lines[2]);
+    }
 }
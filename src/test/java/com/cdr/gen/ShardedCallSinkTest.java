@@ -0,0 +1,167 @@
+package com.cdr.gen;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import junit.framework.TestCase;
+import org.joda.time.LocalDate;
+import org.joda.time.format.DateTimeFormat;
+import org.joda.time.format.DateTimeFormatter;
+
+public class ShardedCallSinkTest extends TestCase {
+    private static final int NUM_SHARDS = 4;
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormat.forPattern("dd/MM/yyyy");
+    
+    private CDRGen generator;
+    private File dir;
+    private String reference;
+    
+    public ShardedCallSinkTest(String testName) {
+        super(testName);
+    }
+    
+    @Override
+    protected void setUp() throws Exception {
+        generator = new CDRGen();
+        dir = Files.createTempDirectory("cdr-shards-").toFile();
+        
+        generator.setOption("numAccounts", 40L);
+        generator.setOption("chunkSize", 4L);
+        generator.setOption("threads", 3L);
+        generator.setOption("seed", 2468L);
+        generator.setOption("subscriberDirectory", new HashMap<String, Object>());
+        
+        reference = new File(dir, "reference.csv").getPath();
+        generator.generateToFile(reference);
+        
+        generator.setOption("shards", (long) NUM_SHARDS);
+    }
+    
+    @Override
+    protected void tearDown() throws Exception {
+        delete(dir);
+    }
+    
+    /**
+     * Test that all the calls of a customer, made and received, are in the same
+     * shard, and that the shards together have the records of a single file.
+     */
+    public void testByCustomer() throws IOException {
+        File output = new File(dir, "by-customer.csv");
+        generator.generateToFile(output.getPath());
+        
+        Map<String, String> shardOf = new HashMap<String, String>();
+        List<String> shards = new ArrayList<String>();
+        
+        for (int i=0; i<NUM_SHARDS; i++) {
+            File shard = new File(output, String.format("part-%04d.csv", i));
+            assertTrue(shard.getPath(), shard.isFile());
+            shards.add(shard.getPath());
+            
+            for (String line : Files.readAllLines(shard.toPath(), StandardCharsets.UTF_8)) {
+                String previous = shardOf.put(line.split(",")[1], shard.getName());
+                assertTrue(line, previous == null || previous.equals(shard.getName()));
+            }
+        }
+        
+        assertEquals(NUM_SHARDS, output.list().length);
+        assertTrue(PartitionTool.verify(shards, reference));
+    }
+    
+    /**
+     * Test that the calls are split by the date of their start and then by
+     * customer, with the files only created for the dates with calls, and that
+     * the shards together have the records of a single file.
+     */
+    public void testByDate() throws IOException {
+        generator.setOption("partitionBy", ShardedCallSink.PARTITION_BY_DATE);
+        File output = new File(dir, "by-date.csv");
+        generator.generateToFile(output.getPath());
+        
+        assertTrue(assertByDate(output, "part-000[0-3]\\.csv").size() > NUM_SHARDS);
+    }
+    
+    /**
+     * Test that with more files than can be open at once, the files closed
+     * to open others are appended to, plain and compressed, and the shards
+     * still have the records of a single file.
+     */
+    public void testByDateWithFewOpenFiles() throws IOException {
+        generator.setOption("partitionBy", ShardedCallSink.PARTITION_BY_DATE);
+        generator.setOption("maxOpenShards", 2L);
+        
+        File output = new File(dir, "few-open.csv");
+        generator.generateToFile(output.getPath());
+        assertTrue(assertByDate(output, "part-000[0-3]\\.csv").size() > 2);
+        
+        File compressed = new File(dir, "few-open-gzip");
+        generator.setOption("compression", Compression.GZIP);
+        generator.generateToFile(compressed.getPath());
+        assertTrue(assertByDate(compressed, "part-000[0-3]\\.csv\\.gz").size() > 2);
+    }
+    
+    /**
+     * Checks that each file has only calls of its date and that the files
+     * together have the records of the reference.
+     * @return The paths of the files
+     */
+    private List<String> assertByDate(File output, String namePattern) throws IOException {
+        List<String> shards = new ArrayList<String>();
+        File[] dates = output.listFiles();
+        assertTrue(dates.length > 1);
+        
+        for (File date : dates) {
+            assertTrue(date.getName(), date.getName().matches("date=\\d{4}-\\d{2}-\\d{2}"));
+            LocalDate day = LocalDate.parse(date.getName().substring("date=".length()));
+            
+            for (File shard : date.listFiles()) {
+                assertTrue(shard.getName(), shard.getName().matches(namePattern));
+                shards.add(shard.getPath());
+                
+                List<String> lines = readLines(shard);
+                assertFalse(shard.getPath(), lines.isEmpty());
+                
+                for (String line : lines) {
+                    assertEquals(line, day, DATE_FORMATTER.parseLocalDate(line.split(",")[4]));
+                }
+            }
+        }
+        
+        assertTrue(PartitionTool.verify(shards, reference));
+        return shards;
+    }
+    
+    private static List<String> readLines(File file) throws IOException {
+        List<String> lines = new ArrayList<String>();
+        
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                Channels.newInputStream(Compression.openInput(file.getPath())), StandardCharsets.UTF_8))) {
+            String line;
+            
+            while ((line = reader.readLine()) != null) {
+                lines.add(line);
+            }
+        }
+        
+        return lines;
+    }
+    
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+}
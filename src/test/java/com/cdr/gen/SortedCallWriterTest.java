@@ -0,0 +1,84 @@
+package com.cdr.gen;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import junit.framework.TestCase;
+
+public class SortedCallWriterTest extends TestCase {
+    private CDRGen generator;
+    
+    public SortedCallWriterTest(String testName) {
+        super(testName);
+        
+        generator = new CDRGen();
+    }
+    
+    /**
+     * Test the external sort, with several merge passes.
+     */
+    public void testSortWithRuns() throws IOException {
+        Map<String, Object> config = new HashMap<String, Object>(generator.getConfig());
+        config.put("sortBufferCalls", 100L);
+        config.put("sortMergeFactor", 3L);
+        
+        checkSorted(config);
+    }
+    
+    /**
+     * Test the sort of calls that fit in the buffer.
+     */
+    public void testSortInMemory() throws IOException {
+        checkSorted(new HashMap<String, Object>(generator.getConfig()));
+    }
+    
+    private void checkSorted(Map<String, Object> config) throws IOException {
+        config.put("seed", 42L);
+        config.put("numAccounts", 10L);
+        config.put("threads", 1L);
+        config.put("sortBy", "time");
+        
+        final Map<Long, String> callers = new HashMap<Long, String>();
+        final List<Long> ids = new ArrayList<Long>();
+        final List<Long> starts = new ArrayList<Long>();
+        
+        CallWriter writer = SortedCallWriter.wrap(new CallWriter() {
+            @Override
+            public void write(String phoneNumber, Call call) {
+                assertEquals(callers.get(call.getId()), phoneNumber);
+                ids.add(call.getId());
+                starts.add(call.getTime().getStartMillis());
+            }
+
+            @Override
+            public void close() {}
+        }, config);
+        
+        assertTrue(writer instanceof SortedCallWriter);
+        
+        Population population = new Population(config);
+        population.create();
+        
+        for (Person p : population.getPopulation()) {
+            for (Call c : p.getCalls()) {
+                callers.put(c.getId(), p.getPhoneNumber());
+                writer.write(p.getPhoneNumber(), c);
+            }
+        }
+        writer.close();
+        
+        assertEquals(callers.size(), ids.size());
+        
+        for (int i=1; i<starts.size(); i++) {
+            assertTrue(starts.get(i-1) <= starts.get(i));
+        }
+        
+        List<Long> expected = new ArrayList<Long>(callers.keySet());
+        Collections.sort(expected);
+        Collections.sort(ids);
+        assertEquals(expected, ids);
+    }
+}
@@ -0,0 +1,122 @@
+package com.cdr.gen;
+
+import com.cdr.gen.util.PhoneNumbers;
+import com.cdr.gen.util.RandomSource;
+import com.cdr.gen.util.SplittableRandomSource;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import junit.framework.TestCase;
+
+public class SubscriberDirectoryTest extends TestCase {
+    private static final long[] CODES = {
+        PhoneNumbers.pack("0113"), PhoneNumbers.pack("0168"), PhoneNumbers.pack("0191"), PhoneNumbers.pack("01684")
+    };
+    
+    public SubscriberDirectoryTest(String testName) {
+        super(testName);
+    }
+    
+    private SubscriberDirectory createDirectory(Map<String, Object> directory) {
+        Map<String, Object> config = new HashMap<String, Object>(new CDRGen().getConfig());
+        config.put("subscriberDirectory", directory);
+        
+        // the codes of the table are sorted, 01684 is longer than the others
+        long[] codes = CODES.clone();
+        Arrays.sort(codes);
+        
+        return new SubscriberDirectory(new GeneratorConfig(config), codes, 2, chunk -> {
+            long[] subscribers = new long[50];
+            for (int i=0; i<subscribers.length; i++) {
+                // code 2 (0191) is left empty
+                int code = (i % 3 == 2) ? 3 : i % 3;
+                subscribers[i] = SubscriberDirectory.subscriber(code, chunk * 1000 + i);
+            }
+            return subscribers;
+        });
+    }
+    
+    public void testAreas() {
+        SubscriberDirectory directory = createDirectory(new HashMap<String, Object>());
+        
+        assertEquals(100, directory.size());
+        assertEquals(3, directory.getNumAreas());
+        
+        for (int area=0; area<directory.getNumAreas(); area++) {
+            for (int i=0; i<directory.getAreaSize(area); i++) {
+                long number = directory.getNumber(area, i);
+                assertEquals(11, PhoneNumbers.length(number));
+                assertEquals(area, directory.areaOf(number));
+            }
+        }
+        
+        assertEquals(-1, directory.areaOf(PhoneNumbers.pack("01910000001")));
+        assertEquals(-1, directory.areaOf(PhoneNumbers.pack("01130099999")));
+    }
+    
+    /**
+     * Test that local numbers are in the area of the caller and national numbers
+     * are not, and that the caller never calls itself.
+     */
+    public void testDraws() {
+        Map<String, Object> config = new HashMap<String, Object>();
+        config.put("attachment", 2.0);
+        SubscriberDirectory directory = createDirectory(config);
+        RandomSource random = new SplittableRandomSource(42);
+        
+        long caller = directory.getNumber(1, 3);
+        Set<Long> called = new HashSet<Long>();
+        
+        for (int i=0; i<1000; i++) {
+            long local = directory.getLocalNumber(random, caller);
+            assertFalse(local == caller);
+            assertEquals(1, directory.areaOf(local));
+            called.add(local);
+            
+            long national = directory.getNationalNumber(random, caller);
+            assertTrue(directory.areaOf(national) >= 0);
+            assertFalse(directory.areaOf(national) == 1);
+        }
+        
+        assertTrue(called.size() > 1);
+        assertEquals(0, directory.getLocalNumber(random, PhoneNumbers.pack("01910000001")));
+    }
+    
+    /**
+     * Test that with the directory the national destinations of the population
+     * are the numbers of other customers. Local calls of customers alone in
+     * their area fall back to random numbers.
+     */
+    public void testPopulation() {
+        CDRGen generator = new CDRGen();
+        Map<String, Object> config = new HashMap<String, Object>(generator.getConfig());
+        config.put("numAccounts", 200L);
+        config.put("seed", 1234L);
+        config.put("threads", 1L);
+        config.put("subscriberDirectory", new HashMap<String, Object>());
+        
+        Population population = new Population(config);
+        population.create();
+        
+        Set<String> numbers = new HashSet<String>();
+        for (Person p : population.getPopulation()) {
+            numbers.add(p.getPhoneNumber());
+        }
+        
+        int national = 0;
+        for (Person p : population.getPopulation()) {
+            for (Call c : p.getCalls()) {
+                assertFalse(c.getDestPhoneNumber().equals(p.getPhoneNumber()));
+                
+                if (c.getType().equals("National") && !c.isIncoming()) {
+                    national++;
+                    assertTrue(numbers.contains(c.getDestPhoneNumber()));
+                }
+            }
+        }
+        
+        assertTrue(national > 0);
+    }
+}
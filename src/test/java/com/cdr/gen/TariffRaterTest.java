@@ -0,0 +1,116 @@
+package com.cdr.gen;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import junit.framework.TestCase;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+
+public class TariffRaterTest extends TestCase {
+    private static final DateTime START_DATE = new DateTime(2014, 1, 1, 0, 0, DateTimeZone.UTC);
+    
+    public TariffRaterTest(String testName) {
+        super(testName);
+    }
+    
+    /**
+     * Test that the duration is billed in whole minutes, seconds or blocks, at
+     * the rate of the start of the call.
+     */
+    public void testBilling() {
+        // a wednesday, from 17:58:30 to 18:01:00
+        Call call = call(new DateTime(2014, 1, 8, 17, 58, 30, DateTimeZone.UTC), 150);
+        
+        assertEquals(2 * 4.0, rate(call, tariff(TariffRater.BILLING_MINUTE, false)), 1e-9);
+        assertEquals(150 * 4.0 / 60, rate(call, tariff(TariffRater.BILLING_SECOND, false)), 1e-9);
+        assertEquals(3 * 4.0, rate(call, tariff(TariffRater.BILLING_BLOCK, false)), 1e-9);
+        
+        Map<String, Object> tariff = tariff(TariffRater.BILLING_BLOCK, false);
+        tariff.put("blockSeconds", 30L);
+        assertEquals(150 * 4.0 / 60, rate(call, tariff), 1e-9);
+    }
+    
+    /**
+     * Test that the parts of a call before and after the start of the off peak
+     * period are billed at their own rates when the bands are split.
+     */
+    public void testSplitBands() {
+        Call call = call(new DateTime(2014, 1, 8, 17, 58, 30, DateTimeZone.UTC), 150);
+        assertEquals((90 * 4.0 + 60 * 1.0) / 60, rate(call, tariff(TariffRater.BILLING_SECOND, true)), 1e-9);
+        
+        // a call that doesn't cross the boundary is billed as a whole
+        call = call(new DateTime(2014, 1, 8, 10, 0, 0, DateTimeZone.UTC), 3600);
+        assertEquals(60 * 4.0, rate(call, tariff(TariffRater.BILLING_MINUTE, true)), 1e-9);
+    }
+    
+    /**
+     * Test that saturdays and sundays are billed at the off peak rate all day
+     * long, mondays at the peak rate outside of the off peak period, and that a
+     * call from a friday into a saturday changes rate at midnight.
+     */
+    public void testWeekend() {
+        Map<String, Object> tariff = tariff(TariffRater.BILLING_MINUTE, false);
+        
+        // 11/01/2014 is a saturday
+        assertEquals(10 * 1.0, rate(call(new DateTime(2014, 1, 11, 12, 0, 0, DateTimeZone.UTC), 600), tariff), 1e-9);
+        assertEquals(10 * 1.0, rate(call(new DateTime(2014, 1, 12, 12, 0, 0, DateTimeZone.UTC), 600), tariff), 1e-9);
+        assertEquals(10 * 4.0, rate(call(new DateTime(2014, 1, 13, 12, 0, 0, DateTimeZone.UTC), 600), tariff), 1e-9);
+        
+        // from a friday into a saturday
+        Call call = call(new DateTime(2014, 1, 10, 23, 59, 0, DateTimeZone.UTC), 120);
+        assertEquals(2 * 4.0, rate(call, tariff), 1e-9);
+        assertEquals(4.0 + 1.0, rate(call, tariff(TariffRater.BILLING_SECOND, true)), 1e-9);
+    }
+    
+    /**
+     * Test that holidays are billed at the off peak rate all day long.
+     */
+    public void testHolidays() {
+        Map<String, Object> tariff = tariff(TariffRater.BILLING_SECOND, true);
+        tariff.put("holidays", Arrays.asList("08/01/2014"));
+        GeneratorConfig config = config(tariff);
+        TimeTable table = new TimeTable(START_DATE, 59, config.getOffPeakMinutes(), config.getHolidays());
+        
+        long minute = new DateTime(2014, 1, 8, 10, 0, DateTimeZone.UTC).getMillis() / TimeTable.MILLIS_PER_MINUTE;
+        assertTrue(table.isOffPeak(minute));
+        assertFalse(table.isOffPeak(minute + TimeTable.MINUTES_PER_DAY));
+        assertEquals(TimeTable.HOLIDAY, table.getDayType(minute / TimeTable.MINUTES_PER_DAY));
+        
+        // from a tuesday into the holiday
+        Call call = call(new DateTime(2014, 1, 7, 23, 59, 0, DateTimeZone.UTC), 120);
+        assertEquals(4.0 + 1.0, new TariffRater(config).rate(call, config.ordinalOf("Local"), table), 1e-9);
+    }
+    
+    private double rate(Call call, Map<String, Object> tariff) {
+        GeneratorConfig config = config(tariff);
+        TimeTable table = new TimeTable(START_DATE, 59, 18 * 60, 20 * 60);
+        
+        return new TariffRater(config).rate(call, config.ordinalOf("Local"), table);
+    }
+    
+    private GeneratorConfig config(Map<String, Object> tariff) {
+        Map<String, Object> options = new HashMap<String, Object>(new CDRGen().getConfig());
+        Map<String, Object> offPeak = new HashMap<String, Object>();
+        offPeak.put("start", "18:00");
+        offPeak.put("end", "20:00");
+        
+        options.put("offPeakTimePeriod", offPeak);
+        options.put("tariff", tariff);
+        return new GeneratorConfig(options);
+    }
+    
+    private Map<String, Object> tariff(String billing, boolean splitBands) {
+        Map<String, Object> tariff = new HashMap<String, Object>();
+        tariff.put("billing", billing);
+        tariff.put("splitBands", splitBands);
+        return tariff;
+    }
+    
+    private Call call(DateTime start, int seconds) {
+        Call call = new Call();
+        call.setType("Local");
+        call.setTime(start.getMillis(), start.plusSeconds(seconds).getMillis());
+        return call;
+    }
+}
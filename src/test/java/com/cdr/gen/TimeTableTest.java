@@ -0,0 +1,96 @@
+package com.cdr.gen;
+
+import junit.framework.TestCase;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeConstants;
+import org.joda.time.DateTimeZone;
+
+public class TimeTableTest extends TestCase {
+    public TimeTableTest(String testName) {
+        super(testName);
+    }
+    
+    /**
+     * Test that the table gives the same days, times and off peak periods as
+     * Joda-Time, inside and outside of the period of the table.
+     */
+    public void testTable() {
+        DateTime startDate = new DateTime(2014, 1, 1, 0, 0, DateTimeZone.UTC);
+        TimeTable table = new TimeTable(startDate, 30, 18 * 60, 20 * 60);
+        
+        for (int day=-10; day<45; day++) {
+            DateTime date = startDate.plusDays(day);
+            assertEquals(date.getMillis() / TimeTable.MILLIS_PER_MINUTE, table.getDayStart(day));
+            
+            for (int minute=0; minute<TimeTable.MINUTES_PER_DAY; minute+=7) {
+                DateTime time = date.plusMinutes(minute);
+                long epochMinute = time.getMillis() / TimeTable.MILLIS_PER_MINUTE;
+                
+                assertEquals(time.getDayOfWeek(), table.getDayOfWeek(epochMinute));
+                assertEquals(time.getMinuteOfDay(), table.getMinuteOfDay(epochMinute));
+                assertEquals(time, table.toDateTime(epochMinute));
+                
+                boolean offPeak = DateTimeDistribution.isWeekend(time.getDayOfWeek())
+                        || (minute >= 18 * 60 && minute < 20 * 60);
+                assertEquals(offPeak, table.isOffPeak(epochMinute));
+            }
+        }
+    }
+    
+    /**
+     * Test that saturdays and sundays are weekend days, charged at the off peak
+     * rate all day long, and mondays are weekdays.
+     */
+    public void testWeekend() {
+        DateTime saturday = new DateTime(2014, 1, 4, 0, 0, DateTimeZone.UTC);
+        TimeTable table = new TimeTable(saturday, 7, 18 * 60, 20 * 60);
+        long noon = saturday.getMillis() / TimeTable.MILLIS_PER_MINUTE + 12 * 60;
+        long day = saturday.getMillis() / (TimeTable.MINUTES_PER_DAY * TimeTable.MILLIS_PER_MINUTE);
+        
+        assertEquals(DateTimeConstants.SATURDAY, table.getDayName(0));
+        assertEquals(TimeTable.WEEKEND, table.getDayType(day));
+        assertTrue(table.isOffPeak(noon));
+        
+        assertEquals(DateTimeConstants.SUNDAY, table.getDayName(1));
+        assertEquals(TimeTable.WEEKEND, table.getDayType(day + 1));
+        assertTrue(table.isOffPeak(noon + TimeTable.MINUTES_PER_DAY));
+        
+        assertEquals(DateTimeConstants.MONDAY, table.getDayName(2));
+        assertEquals(TimeTable.WEEKDAY, table.getDayType(day + 2));
+        assertFalse(table.isOffPeak(noon + 2 * TimeTable.MINUTES_PER_DAY));
+        assertTrue(table.isOffPeak(noon + 2 * TimeTable.MINUTES_PER_DAY + 6 * 60));
+        
+        assertEquals("sat", DateTimeDistribution.DAYS[DateTimeDistribution.dayIndex(DateTimeConstants.SATURDAY)]);
+        assertEquals("sun", DateTimeDistribution.DAYS[DateTimeDistribution.dayIndex(DateTimeConstants.SUNDAY)]);
+        assertEquals("mon", DateTimeDistribution.DAYS[DateTimeDistribution.dayIndex(DateTimeConstants.MONDAY)]);
+    }
+    
+    /**
+     * Test that the local times follow the transitions of the time zone, with
+     * the local times skipped by a transition moved forward and the repeated
+     * ones taking the earlier offset.
+     */
+    public void testTransitions() {
+        DateTimeZone zone = DateTimeZone.forID("Europe/Berlin");
+        DateTime startDate = new DateTime(2014, 3, 1, 0, 0, zone);
+        TimeTable table = new TimeTable(startDate, 270, 18 * 60, 20 * 60);
+        
+        for (DateTime time=startDate.minusDays(20); time.isBefore(startDate.plusDays(300)); time=time.plusMinutes(13)) {
+            long minute = time.getMillis() / TimeTable.MILLIS_PER_MINUTE;
+            
+            assertEquals(time.getDayOfWeek(), table.getDayOfWeek(minute));
+            assertEquals(time.getMinuteOfDay(), table.getMinuteOfDay(minute));
+        }
+        
+        // 30/03/2014 02:00 doesn't exist, the clocks moved to 03:00
+        DateTime gap = table.toDateTime(table.getStart(29, 2 * 60 + 30));
+        assertEquals(new DateTime(2014, 3, 30, 3, 30, zone), gap);
+        assertEquals(new DateTime(2014, 3, 30, 0, 0, zone), table.toDateTime(table.getDayStart(29)));
+        
+        // 26/10/2014 02:30 happens twice, the first one is summer time
+        DateTime overlap = table.toDateTime(table.getStart(239, 2 * 60 + 30));
+        assertEquals(2 * 60 * 60 * 1000, zone.getOffset(overlap));
+        assertEquals(2 * 60 + 30, overlap.getMinuteOfDay());
+        assertEquals(7, table.getDayName(239));
+    }
+}
@@ -0,0 +1,43 @@
+package com.cdr.gen.util;
+
+import junit.framework.TestCase;
+
+public class AliasSamplerTest extends TestCase {
+    
+    public AliasSamplerTest(String testName) {
+        super(testName);
+    }
+
+    /**
+     * Test that the frequencies of the samples follow the normalized weights.
+     */
+    public void testSample() {
+        double[] weights = new double[]{0.5, 0.0, 1.5, 2.0};
+        AliasSampler sampler = new AliasSampler(weights);
+        RandomSource random = new SplittableRandomSource(42);
+        
+        int n = 200000;
+        int[] counts = new int[weights.length];
+        
+        for (int i=0; i<n; i++) {
+            counts[sampler.sample(random)]++;
+        }
+        
+        assertEquals(0, counts[1]);
+        assertEquals(0.125, counts[0] / (double) n, 0.005);
+        assertEquals(0.375, counts[2] / (double) n, 0.005);
+        assertEquals(0.5, counts[3] / (double) n, 0.005);
+    }
+    
+    public void testInvalidWeights() {
+        try {
+            new AliasSampler(new double[]{0.0, 0.0});
+            fail("Weights that are all zero must be rejected");
+        } catch (IllegalArgumentException ex) {}
+        
+        try {
+            new AliasSampler(new double[]{0.5, -0.1});
+            fail("Negative weights must be rejected");
+        } catch (IllegalArgumentException ex) {}
+    }
+}
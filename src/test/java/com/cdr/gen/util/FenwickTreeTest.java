@@ -0,0 +1,52 @@
+package com.cdr.gen.util;
+
+import junit.framework.TestCase;
+
+public class FenwickTreeTest extends TestCase {
+    
+    public FenwickTreeTest(String testName) {
+        super(testName);
+    }
+
+    public void testFind() {
+        FenwickTree tree = new FenwickTree(new long[] {3, 0, 5, 1, 0, 2});
+        
+        assertEquals(11, tree.total());
+        assertEquals(8, tree.prefixSum(3));
+        assertEquals(0, tree.find(0));
+        assertEquals(0, tree.find(2));
+        assertEquals(2, tree.find(3));
+        assertEquals(2, tree.find(7));
+        assertEquals(3, tree.find(8));
+        assertEquals(5, tree.find(10));
+        
+        tree.set(2, 0);
+        tree.set(4, 4);
+        assertEquals(10, tree.total());
+        assertEquals(3, tree.find(3));
+        assertEquals(4, tree.find(4));
+        assertEquals(5, tree.find(9));
+    }
+    
+    /**
+     * Test that positions are drawn in proportion to their weights and that
+     * positions without weight are never drawn.
+     */
+    public void testSample() {
+        FenwickTree tree = new FenwickTree(new long[] {1, 0, 3, 0});
+        RandomSource random = new SplittableRandomSource(42);
+        int[] counts = new int[tree.size()];
+        
+        for (int i=0; i<40000; i++) {
+            counts[tree.sample(random)]++;
+        }
+        
+        assertEquals(0, counts[1]);
+        assertEquals(0, counts[3]);
+        assertEquals(3.0, counts[2] / (double) counts[0], 0.2);
+        
+        tree.set(0, 0);
+        tree.set(2, 0);
+        assertEquals(-1, tree.sample(random));
+    }
+}
@@ -0,0 +1,46 @@
+package com.cdr.gen.util;
+
+import junit.framework.TestCase;
+
+public class IntervalIndexTest extends TestCase {
+    
+    public IntervalIndexTest(String testName) {
+        super(testName);
+    }
+
+    public void testAdd() {
+        IntervalIndex index = new IntervalIndex(1);
+        
+        assertTrue(index.add(100, 110));
+        assertTrue(index.add(50, 60));
+        assertTrue(index.add(110, 120));
+        assertTrue(index.add(60, 100));
+        assertEquals(4, index.size());
+        
+        assertFalse(index.add(55, 56));
+        assertFalse(index.add(119, 130));
+        assertFalse(index.add(0, 1000));
+        assertEquals(4, index.size());
+        
+        assertFalse(index.overlaps(120, 130));
+        assertFalse(index.overlaps(0, 50));
+        
+        index.clear();
+        assertEquals(0, index.size());
+        assertFalse(index.overlaps(0, 1000));
+    }
+    
+    /**
+     * Test that an interval crossing midnight collides with the calls of the
+     * next day.
+     */
+    public void testCrossingMidnight() {
+        IntervalIndex index = new IntervalIndex();
+        long midnight = 1440;
+        
+        assertTrue(index.add(midnight - 10, midnight + 20));
+        assertTrue(index.overlaps(midnight + 5, midnight + 6));
+        assertFalse(index.add(midnight + 19, midnight + 30));
+        assertTrue(index.add(midnight + 20, midnight + 30));
+    }
+}
@@ -0,0 +1,63 @@
+package com.cdr.gen.util;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import junit.framework.TestCase;
+
+public class LongIntHeapTest extends TestCase {
+    
+    public LongIntHeapTest(String testName) {
+        super(testName);
+    }
+
+    /**
+     * Test that the entries are polled in key order, ties in value order.
+     */
+    public void testPoll() {
+        SplittableRandom random = new SplittableRandom(42);
+        LongIntHeap heap = new LongIntHeap(1);
+        long[] expected = new long[1000];
+        
+        for (int i=0; i<expected.length; i++) {
+            long key = random.nextInt(100);
+            heap.add(key, i);
+            expected[i] = (key << 32) | i;
+        }
+        
+        Arrays.sort(expected);
+        assertEquals(expected.length, heap.size());
+        
+        for (long e : expected) {
+            assertEquals(e >>> 32, heap.peekKey());
+            assertEquals((int) e, heap.poll());
+        }
+        
+        assertTrue(heap.isEmpty());
+    }
+    
+    /**
+     * Test a merge of sorted runs, advancing the top run in place.
+     */
+    public void testReplaceTopKey() {
+        long[][] runs = {{1, 4, 9}, {2, 3, 10, 11}, {5}, {0, 6, 7, 8}};
+        int[] positions = new int[runs.length];
+        LongIntHeap heap = new LongIntHeap();
+        
+        for (int i=0; i<runs.length; i++) {
+            heap.add(runs[i][0], i);
+        }
+        
+        for (long expected=0; expected<12; expected++) {
+            int run = heap.peekValue();
+            assertEquals(expected, heap.peekKey());
+            
+            if (++positions[run] < runs[run].length) {
+                heap.replaceTopKey(runs[run][positions[run]]);
+            } else {
+                heap.poll();
+            }
+        }
+        
+        assertTrue(heap.isEmpty());
+    }
+}
@@ -0,0 +1,60 @@
+package com.cdr.gen.util;
+
+import junit.framework.TestCase;
+
+public class MinuteBitmapTest extends TestCase {
+    
+    public MinuteBitmapTest(String testName) {
+        super(testName);
+    }
+    
+    /**
+     * Test that a window from 18:00 to 08:00 covers the night, wrapping around
+     * midnight, and ends before 08:00.
+     */
+    public void testWrap() {
+        MinuteBitmap bitmap = new MinuteBitmap(18 * 60, 8 * 60);
+        
+        for (int m=0; m<MinuteBitmap.MINUTES_PER_DAY; m++) {
+            assertEquals("minute " + m, m >= 18 * 60 || m < 8 * 60, bitmap.contains(m));
+        }
+        assertEquals(14 * 60, bitmap.cardinality());
+        
+        assertEquals(MinuteBitmap.MINUTES_PER_DAY, new MinuteBitmap(600, 600).cardinality());
+        assertEquals(6 * 60, new MinuteBitmap(18 * 60, 0).cardinality());
+    }
+    
+    /**
+     * Test that every window, including the ones on the boundaries of the words,
+     * sets exactly its minutes.
+     */
+    public void testWindows() {
+        int[][] windows = {{0, 1}, {63, 65}, {127, 128}, {700, 1380}, {1380, 1439}, {1430, 20}};
+        MinuteBitmap all = new MinuteBitmap();
+        boolean[] expected = new boolean[MinuteBitmap.MINUTES_PER_DAY];
+        
+        for (int[] window : windows) {
+            MinuteBitmap bitmap = new MinuteBitmap(window[0], window[1]);
+            all.add(window[0], window[1]);
+            
+            for (int m=0; m<MinuteBitmap.MINUTES_PER_DAY; m++) {
+                boolean inside = (window[0] < window[1])
+                        ? m >= window[0] && m < window[1] : m >= window[0] || m < window[1];
+                
+                assertEquals("minute " + m, inside, bitmap.contains(m));
+                expected[m] |= inside;
+            }
+        }
+        
+        for (int m=0; m<MinuteBitmap.MINUTES_PER_DAY; m++) {
+            assertEquals("minute " + m, expected[m], all.contains(m));
+        }
+        
+        try {
+            all.add(0, MinuteBitmap.MINUTES_PER_DAY);
+            fail("A minute out of the day should be rejected.");
+        } catch (IllegalArgumentException ex) {
+            // expected
+        }
+    }
+}
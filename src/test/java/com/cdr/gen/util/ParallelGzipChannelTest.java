@@ -0,0 +1,56 @@
+package com.cdr.gen.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPInputStream;
+import junit.framework.TestCase;
+
+public class ParallelGzipChannelTest extends TestCase {
+    
+    public ParallelGzipChannelTest(String testName) {
+        super(testName);
+    }
+
+    /**
+     * Test that the concatenated members are decompressed back to the input.
+     */
+    public void testWrite() throws IOException {
+        byte[] data = new byte[100000];
+        for (int i=0; i<data.length; i++) {
+            data[i] = (byte) ("0123456789,;\n".charAt((i * 7 + i / 13) % 13));
+        }
+        
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ParallelGzipChannel channel = new ParallelGzipChannel(
+                Channels.newChannel(out), 6, 4096, executor, 4);
+        
+        // write in pieces that don't match the block size
+        for (int i=0; i<data.length; i+=3000) {
+            channel.write(ByteBuffer.wrap(data, i, Math.min(3000, data.length - i)));
+        }
+        
+        channel.close();
+        executor.shutdown();
+        
+        assertEquals(out.size(), channel.getCompressedBytes());
+        assertTrue(out.size() < data.length);
+        
+        GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(out.toByteArray()));
+        ByteArrayOutputStream decompressed = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        
+        while ((read = in.read(buffer)) > 0) {
+            decompressed.write(buffer, 0, read);
+        }
+        
+        assertTrue(Arrays.equals(data, decompressed.toByteArray()));
+    }
+}